@@ -18,22 +18,31 @@
 package be.nabu.libs.types.binding.json;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.net.URI;
 import java.nio.charset.Charset;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 
 import org.slf4j.LoggerFactory;
 
 import be.nabu.libs.converter.ConverterFactory;
 import be.nabu.libs.property.ValueUtils;
 import be.nabu.libs.property.api.Value;
+import be.nabu.libs.resources.api.LocatableResource;
 import be.nabu.libs.resources.api.ReadableResource;
 import be.nabu.libs.types.BaseTypeInstance;
 import be.nabu.libs.types.CollectionHandlerFactory;
@@ -65,17 +74,18 @@ import be.nabu.utils.codec.TranscoderUtils;
 import be.nabu.utils.codec.impl.Base64Encoder;
 import be.nabu.utils.io.IOUtils;
 import be.nabu.utils.io.api.ByteBuffer;
-import be.nabu.utils.io.api.CharBuffer;
 import be.nabu.utils.io.api.ReadableContainer;
 
 public class JSONBinding extends BaseTypeBinding {
 
+	private static final long MAPPING_THRESHOLD = 1024*1024;
+
 	private Charset charset;
 	private CollectionHandler collectionHandler = CollectionHandlerFactory.getInstance().getHandler();
 	private ComplexType type;
 	
 	// @2024-06-29 I updated setEmptyArrays to true so the parser (by default) better reflects the actual data coming in
-	private boolean allowDynamicElements, addDynamicElementDefinitions, ignoreUnknownElements, camelCaseDashes, camelCaseUnderscores, parseNumbers, allowRaw, setEmptyArrays = true, ignoreEmptyStrings, expandKeyValuePairs, useAlias = true, addDynamicStringsOnly;
+	private boolean allowDynamicElements, addDynamicElementDefinitions, ignoreUnknownElements, camelCaseDashes, camelCaseUnderscores, parseNumbers, allowRaw, setEmptyArrays = true, ignoreEmptyStrings, expandKeyValuePairs, useAlias = true, addDynamicStringsOnly, shareDynamicTypes;
 	// @2025-05-12 we have a usecase where an element in swagger is defined first as "@id", then another element "id". because the swagger parser is working without a fixed definition, when looking for "id", it can't find the definition of course at which point the fallback to "@id" becomes problematic
 	// there are good usecases where we _dont_ want the fallback, however it is set to true by default for legacy reasons
 	private boolean allowAttributeFallback = true;
@@ -88,6 +98,28 @@ public class JSONBinding extends BaseTypeBinding {
 	private boolean marshalExplicitNullValues = false; 
 	private boolean marshalStreams = true;
 	private boolean enableMapSupport;
+	// fully dynamic documents with a known shape reuse the type that was generated for it
+	private JSONShapeRegistry shapeRegistry;
+	// large arrays can be parsed in parallel on this pool
+	private ForkJoinPool forkJoinPool;
+	private List<String> parallelPaths;
+	private boolean useValueDecoders = true;
+	// the processed field names are shared by every parse of this binding
+	private volatile JSONFieldNameCache fieldNameCache;
+	// local files are parsed straight from a memory mapping, this bypasses whatever the resource does in its readable (e.g. decompression) so it has to be enabled explicitly
+	private boolean mapFiles;
+	// the document is kept in memory and its values are only parsed when they are accessed
+	private boolean lazy;
+	// the objects in arrays at these paths are handed off one by one while parsing
+	private Map<String, JSONElementHandler> handlers;
+	// if set, only these paths are parsed
+	private List<String> projection;
+	// the limits for a single document, 0 means there is no limit
+	private int maxDepth, maxElements, maxDynamicElements;
+	private long maxDocumentSize, maxStringLength;
+	// a sealed binding can no longer be modified, which allows it to reuse the parser state per thread
+	private boolean sealed;
+	private ThreadLocal<ParserState> parserStates;
 	
 	public JSONBinding(ModifiableComplexTypeGenerator complexTypeGenerator, Charset charset) {
 		this(complexTypeGenerator.newComplexType(), charset);
@@ -128,6 +160,7 @@ public class JSONBinding extends BaseTypeBinding {
 							throw new IllegalArgumentException("Can not find collection handler for " + value.getClass() + ": " + value);
 						}
 						boolean isFirst = true;
+						JSONMarshalPlan plan = JSONMarshalPlan.get(content.getType());
 						for (Object child : (Iterable) value) {
 							if (isFirst) {
 								isFirst = false;
@@ -135,7 +168,7 @@ public class JSONBinding extends BaseTypeBinding {
 							else {
 								writer.write(", ");
 							}
-							marshal(writer, child, element, 0);
+							marshal(writer, child, element, plan, 0);
 						}
 					}
 					if (prettyPrint) {
@@ -158,7 +191,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 	
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private void marshal(Writer writer, ComplexContent content, int depth, Value<?>...values) throws IOException {
+	void marshal(Writer writer, ComplexContent content, int depth, Value<?>...values) throws IOException {
 		// check if it's a matrix
 		Boolean matrix = ValueUtils.getValue(MatrixProperty.getInstance(), values);
 		if (matrix == null || !matrix) {
@@ -173,6 +206,7 @@ public class JSONBinding extends BaseTypeBinding {
 		}
 		String dynamicKey = ignoreDynamicNames ? null : ValueUtils.getValue(DynamicNameProperty.getInstance(), values);
 		TypeInstance keyValueInstance = new BaseTypeInstance(BeanResolver.getInstance().resolve(KeyValuePair.class));
+		JSONMarshalPlan plan = JSONMarshalPlan.get((ComplexType) content.getType());
 		for (Element<?> element : TypeUtils.getAllChildren((ComplexType) content.getType())) {
 			// by default we don't print the dynamic keys
 			if (dynamicKey != null && element.getName().equals(dynamicKey)) {
@@ -348,7 +382,7 @@ public class JSONBinding extends BaseTypeBinding {
 								if (prettyPrint) {
 									printDepth(writer, depth + 2);
 								}
-								marshal(writer, child, element, depth + 1);
+								marshal(writer, child, element, plan, depth + 1);
 							}
 							if (prettyPrint && hasContent) {
 								writer.write("\n");
@@ -397,7 +431,7 @@ public class JSONBinding extends BaseTypeBinding {
 				else {
 					writer.write("\"" + (alias == null ? element.getName() : alias.getValue()) + "\": ");
 				}
-				marshal(writer, value, element, depth);
+				marshal(writer, value, element, plan, depth);
 			}
 			else if (marshalNonExistingRequiredFields) {
 				Value<Integer> minOccurs = element.getProperty(MinOccursProperty.getInstance());
@@ -432,8 +466,15 @@ public class JSONBinding extends BaseTypeBinding {
 		}
 	}
 
+	void marshal(Writer writer, Object value, Element<?> element, int depth) throws IOException {
+		marshal(writer, value, element, null, depth);
+	}
+	
+	/**
+	 * The plan of the parent type is optional, without it simple values always go through the marshallable type
+	 */
 	@SuppressWarnings({ "unchecked" })
-	private void marshal(Writer writer, Object value, Element<?> element, int depth) throws IOException {
+	private void marshal(Writer writer, Object value, Element<?> element, JSONMarshalPlan plan, int depth) throws IOException {
 		try {
 			if (value instanceof Callable) {
 				try {
@@ -491,7 +532,11 @@ public class JSONBinding extends BaseTypeBinding {
 					writer.write(value.toString());
 				}
 				else {
-					marshalSimpleValue(writer, value, (Marshallable<?>) element.getType(), element.getProperties());
+					// strings, numbers and booleans don't need an encoder
+					JSONValueEncoder encoder = plan == null || value instanceof String || value instanceof Number || value instanceof Boolean ? null : plan.getEncoder(element);
+					if (encoder == null || !encoder.encode(writer, value)) {
+						marshalSimpleValue(writer, value, (Marshallable<?>) element.getType(), element.getProperties());
+					}
 				}
 			}
 		}
@@ -519,14 +564,29 @@ public class JSONBinding extends BaseTypeBinding {
 //				marshalledValue = marshalledValue.replace("\\", "\\\\").replace("\"", "\\\"")
 //						.replace("\n", "\\n").replaceAll("\r", "").replace("\t", "\\t");
 //			}
-			writer.write("\"" + marshalledValue + "\"");
+			writer.write('"');
+			writer.write(marshalledValue);
+			writer.write('"');
 		}
 	}
 	
 	public static String escape(String content, boolean raw, boolean allowNilCharacter) {
-		StringBuilder builder = new StringBuilder();
-		char previous = 0;
-		for (int i = 0; i < content.length(); i++) {
+		int i = 0;
+		// most values don't need any escaping, we only start building once we find something that does
+		while (i < content.length()) {
+			char current = content.charAt(i);
+			if (current < 32 || current == '\\' || current == '"' || current == '/') {
+				break;
+			}
+			i++;
+		}
+		if (i == content.length()) {
+			return content;
+		}
+		StringBuilder builder = new StringBuilder(content.length() + 16);
+		builder.append(content, 0, i);
+		char previous = i > 0 ? content.charAt(i - 1) : 0;
+		for (; i < content.length(); i++) {
 			char current = content.charAt(i);
 			switch(current) {
 				case '\\':
@@ -578,7 +638,184 @@ public class JSONBinding extends BaseTypeBinding {
 	
 	@Override
 	protected ComplexContent unmarshal(ReadableResource resource, Window[] windows, Value<?>... values) throws IOException, ParseException {
-		ReadableContainer<CharBuffer> readable = IOUtils.wrapReadable(resource.getReadable(), charset);
+		ParserState state = sealed ? acquireParserState() : null;
+		try {
+			JSONUnmarshaller jsonUnmarshaller = state == null ? newUnmarshaller() : state.unmarshaller;
+			jsonUnmarshaller.setWindows(windows);
+			jsonUnmarshaller.setHandlers(handlers);
+			jsonUnmarshaller.setProjection(projection);
+			// dynamic definitions are added to the root type, a sealed binding can be used by multiple threads so every document gets its own
+			boolean dynamicRoot = sealed && complexTypeGenerator != null && allowDynamicElements && addDynamicElementDefinitions && TypeUtils.getAllChildren(type).isEmpty();
+			if (isLazy(windows)) {
+				return jsonUnmarshaller.unmarshalLazy(readFully(resource), dynamicRoot ? complexTypeGenerator.newComplexType() : type);
+			}
+			JSONTokenizer tokenizer = getMappedTokenizer(resource);
+			if (tokenizer == null) {
+				tokenizer = state == null ? JSONTokenizer.newTokenizer(resource.getReadable(), charset) : state.getTokenizer(resource.getReadable(), charset);
+			}
+			return unmarshal(jsonUnmarshaller, tokenizer, dynamicRoot ? complexTypeGenerator.newComplexType() : type, values);
+		}
+		finally {
+			if (state != null) {
+				state.release();
+				parserStates.set(state);
+			}
+		}
+	}
+	
+	/**
+	 * Parses the document with an unmarshaller that is configured for this binding, the type is the root we parse into
+	 */
+	ComplexContent unmarshal(JSONUnmarshaller unmarshaller, JSONTokenizer tokenizer, ComplexType type, Value<?>...values) throws IOException, ParseException {
+		return unmarshaller.unmarshal(tokenizer, type);
+	}
+	
+	/**
+	 * Windows, handlers and projections decide up front what to do with parts of the document, that doesn't combine with lazy parsing
+	 */
+	boolean isLazy(Window [] windows) {
+		return lazy && (windows == null || windows.length == 0) && (handlers == null || handlers.isEmpty()) && (projection == null || projection.isEmpty());
+	}
+	
+	/**
+	 * Reads the whole document as utf-8, we stop reading once the maximum document size is exceeded
+	 */
+	private byte [] readFully(ReadableResource resource) throws IOException {
+		ReadableContainer<ByteBuffer> readable = resource.getReadable();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte [] buffer = new byte[JSONTokenizer.READ_SIZE];
+		long read;
+		while ((maxDocumentSize <= 0 || output.size() <= maxDocumentSize) && (read = readable.read(IOUtils.wrap(buffer, false))) > 0) {
+			output.write(buffer, 0, (int) read);
+		}
+		return JSONByteTokenizer.UTF8.equals(charset) ? output.toByteArray() : new String(output.toByteArray(), charset).getBytes(JSONByteTokenizer.UTF8);
+	}
+	
+	/**
+	 * Larger local utf-8 files are mapped into memory instead of being read, returns null if the resource does not qualify
+	 */
+	JSONTokenizer getMappedTokenizer(ReadableResource resource) throws IOException {
+		if (mapFiles && JSONByteTokenizer.UTF8.equals(charset) && resource instanceof LocatableResource) {
+			URI uri = ((LocatableResource) resource).getUri();
+			if (uri != null && "file".equals(uri.getScheme())) {
+				File file;
+				try {
+					file = new File(uri);
+				}
+				// e.g. a file uri with an authority, it is not worth failing over
+				catch (IllegalArgumentException e) {
+					return null;
+				}
+				// for small files the mapping costs more than it saves
+				if (file.isFile() && file.length() >= MAPPING_THRESHOLD) {
+					return new JSONMappedTokenizer(file);
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * The state is taken from the thread while it is in use, that way a nested parse on the same thread (e.g. from a handler) simply gets a new one
+	 */
+	private ParserState acquireParserState() {
+		ParserState state = parserStates.get();
+		if (state == null) {
+			state = new ParserState(newUnmarshaller());
+		}
+		else {
+			parserStates.set(null);
+		}
+		return state;
+	}
+	
+	/**
+	 * Makes the binding immutable, the collections it was configured with are copied so they can not be changed from the outside either.
+	 * Dynamic definitions can only be added if every document gets its own root type, they would otherwise be added to the shared types from multiple threads.
+	 */
+	void seal() {
+		if (allowDynamicElements && addDynamicElementDefinitions && (complexTypeGenerator == null || !TypeUtils.getAllChildren(type).isEmpty())) {
+			throw new IllegalStateException("Dynamic element definitions can only be added by an immutable binding if the root type is generated");
+		}
+		if (projection != null) {
+			projection = Collections.unmodifiableList(new ArrayList<String>(projection));
+		}
+		if (parallelPaths != null) {
+			parallelPaths = Collections.unmodifiableList(new ArrayList<String>(parallelPaths));
+		}
+		if (handlers != null) {
+			handlers = Collections.unmodifiableMap(new LinkedHashMap<String, JSONElementHandler>(handlers));
+		}
+		parserStates = new ThreadLocal<ParserState>();
+		sealed = true;
+	}
+	
+	public boolean isSealed() {
+		return sealed;
+	}
+	
+	protected void checkMutable() {
+		if (sealed) {
+			throw new IllegalStateException("The binding is immutable");
+		}
+	}
+	
+	/**
+	 * The parser state that is reused by the documents parsed on one thread, the buffers of the tokenizers in particular
+	 */
+	private static class ParserState {
+		private JSONUnmarshaller unmarshaller;
+		private JSONByteTokenizer byteTokenizer;
+		private JSONCharTokenizer charTokenizer;
+		
+		private ParserState(JSONUnmarshaller unmarshaller) {
+			this.unmarshaller = unmarshaller;
+		}
+		
+		private JSONTokenizer getTokenizer(ReadableContainer<ByteBuffer> readable, Charset charset) {
+			if (JSONByteTokenizer.UTF8.equals(charset)) {
+				if (byteTokenizer == null) {
+					byteTokenizer = new JSONByteTokenizer(readable);
+				}
+				else {
+					byteTokenizer.reset(readable);
+				}
+				return byteTokenizer;
+			}
+			else if (charTokenizer == null) {
+				charTokenizer = new JSONCharTokenizer(IOUtils.wrapReadable(readable, charset));
+			}
+			else {
+				charTokenizer.reset(IOUtils.wrapReadable(readable, charset));
+			}
+			return charTokenizer;
+		}
+		
+		/**
+		 * Lets go of the document that was parsed, the thread should not keep it alive until the next one
+		 */
+		private void release() {
+			unmarshaller.setWindows(null);
+			if (byteTokenizer != null) {
+				byteTokenizer.reset(null);
+			}
+			if (charTokenizer != null) {
+				charTokenizer.reset(null);
+			}
+		}
+	}
+	
+	/**
+	 * Pulls the objects in the array at the given path one at a time, see {@link JSONElementIterator}
+	 */
+	public JSONElementIterator iterate(InputStream input, String path) {
+		JSONReader reader = new JSONReader(input, charset);
+		reader.setAllowNilUnicode(allowNilCharacter);
+		reader.setMaxStringLength(maxStringLength);
+		return new JSONElementIterator(reader, newUnmarshaller(), type, path);
+	}
+	
+	JSONUnmarshaller newUnmarshaller() {
 		JSONUnmarshaller jsonUnmarshaller = new JSONUnmarshaller();
 		jsonUnmarshaller.setAllowAttributeFallback(allowAttributeFallback);
 		jsonUnmarshaller.setIgnoreInconsistentTypes(ignoreInconsistentTypes);
@@ -594,9 +831,28 @@ public class JSONBinding extends BaseTypeBinding {
 		jsonUnmarshaller.setSetEmptyArrays(setEmptyArrays);
 		jsonUnmarshaller.setIgnoreEmptyStrings(ignoreEmptyStrings);
 		jsonUnmarshaller.setAddDynamicStringsOnly(addDynamicStringsOnly);
+		jsonUnmarshaller.setShareDynamicTypes(shareDynamicTypes);
+		jsonUnmarshaller.setShapeRegistry(shapeRegistry);
+		jsonUnmarshaller.setForkJoinPool(forkJoinPool);
+		jsonUnmarshaller.setParallelPaths(parallelPaths);
+		jsonUnmarshaller.setMaxDepth(maxDepth);
+		jsonUnmarshaller.setMaxElements(maxElements);
+		jsonUnmarshaller.setMaxDynamicElements(maxDynamicElements);
+		jsonUnmarshaller.setMaxDocumentSize(maxDocumentSize);
+		jsonUnmarshaller.setMaxStringLength(maxStringLength);
 		jsonUnmarshaller.setAllowNilUnicode(allowNilCharacter);
 		jsonUnmarshaller.setEnableMapSupport(enableMapSupport);
-		return jsonUnmarshaller.unmarshal(readable, type);
+		jsonUnmarshaller.setUseValueDecoders(useValueDecoders);
+		jsonUnmarshaller.setFieldNameCache(getFieldNameCache());
+		return jsonUnmarshaller;
+	}
+
+	public ComplexType getType() {
+		return type;
+	}
+
+	public Charset getCharset() {
+		return charset;
 	}
 
 	public boolean isAllowDynamicElements() {
@@ -604,6 +860,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setAllowDynamicElements(boolean allowDynamicElements) {
+		checkMutable();
 		this.allowDynamicElements = allowDynamicElements;
 	}
 
@@ -612,6 +869,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setAddDynamicElementDefinitions(boolean addDynamicElementDefinitions) {
+		checkMutable();
 		this.addDynamicElementDefinitions = addDynamicElementDefinitions;
 	}
 
@@ -620,6 +878,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setComplexTypeGenerator(ModifiableComplexTypeGenerator complexTypeGenerator) {
+		checkMutable();
 		this.complexTypeGenerator = complexTypeGenerator;
 	}
 
@@ -628,6 +887,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setIgnoreRootIfArrayWrapper(boolean ignoreRootIfArrayWrapper) {
+		checkMutable();
 		this.ignoreRootIfArrayWrapper = ignoreRootIfArrayWrapper;
 	}
 
@@ -636,6 +896,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setIgnoreUnknownElements(boolean ignoreUnknownElements) {
+		checkMutable();
 		this.ignoreUnknownElements = ignoreUnknownElements;
 	}
 
@@ -644,6 +905,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setCamelCaseDashes(boolean camelCaseDashes) {
+		checkMutable();
 		this.camelCaseDashes = camelCaseDashes;
 	}
 
@@ -652,6 +914,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setCamelCaseUnderscores(boolean camelCaseUnderscores) {
+		checkMutable();
 		this.camelCaseUnderscores = camelCaseUnderscores;
 	}
 
@@ -660,6 +923,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setParseNumbers(boolean parseNumbers) {
+		checkMutable();
 		this.parseNumbers = parseNumbers;
 	}
 
@@ -668,6 +932,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setAllowRaw(boolean allowRaw) {
+		checkMutable();
 		this.allowRaw = allowRaw;
 	}
 
@@ -676,6 +941,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setPrettyPrint(boolean prettyPrint) {
+		checkMutable();
 		this.prettyPrint = prettyPrint;
 	}
 
@@ -684,6 +950,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setSetEmptyArrays(boolean setEmptyArrays) {
+		checkMutable();
 		this.setEmptyArrays = setEmptyArrays;
 	}
 
@@ -692,6 +959,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setIgnoreEmptyStrings(boolean ignoreEmptyStrings) {
+		checkMutable();
 		this.ignoreEmptyStrings = ignoreEmptyStrings;
 	}
 
@@ -700,6 +968,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setExpandKeyValuePairs(boolean expandKeyValuePairs) {
+		checkMutable();
 		this.expandKeyValuePairs = expandKeyValuePairs;
 	}
 
@@ -708,6 +977,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setUseAlias(boolean useAlias) {
+		checkMutable();
 		this.useAlias = useAlias;
 	}
 
@@ -716,6 +986,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setIgnoreInconsistentTypes(boolean ignoreInconsistentTypes) {
+		checkMutable();
 		this.ignoreInconsistentTypes = ignoreInconsistentTypes;
 	}
 
@@ -724,6 +995,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setIgnoreDynamicNames(boolean ignoreDynamicNames) {
+		checkMutable();
 		this.ignoreDynamicNames = ignoreDynamicNames;
 	}
 
@@ -732,6 +1004,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setMarshalNonExistingRequiredFields(boolean marshalNonExistingRequiredFields) {
+		checkMutable();
 		this.marshalNonExistingRequiredFields = marshalNonExistingRequiredFields;
 	}
 
@@ -740,14 +1013,145 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setAddDynamicStringsOnly(boolean addDynamicStringsOnly) {
+		checkMutable();
 		this.addDynamicStringsOnly = addDynamicStringsOnly;
 	}
 
+	public boolean isShareDynamicTypes() {
+		return shareDynamicTypes;
+	}
+
+	public void setShareDynamicTypes(boolean shareDynamicTypes) {
+		checkMutable();
+		this.shareDynamicTypes = shareDynamicTypes;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * The maximum nesting of objects and arrays
+	 */
+	public void setMaxDepth(int maxDepth) {
+		checkMutable();
+		this.maxDepth = maxDepth;
+	}
+
+	public int getMaxElements() {
+		return maxElements;
+	}
+
+	/**
+	 * The maximum amount of fields in an object or entries in an array, arrays that are streamed, windowed or parsed in parallel are exempt
+	 */
+	public void setMaxElements(int maxElements) {
+		checkMutable();
+		this.maxElements = maxElements;
+	}
+
+	public int getMaxDynamicElements() {
+		return maxDynamicElements;
+	}
+
+	/**
+	 * The maximum amount of element definitions that are generated for dynamic content
+	 */
+	public void setMaxDynamicElements(int maxDynamicElements) {
+		checkMutable();
+		this.maxDynamicElements = maxDynamicElements;
+	}
+
+	public long getMaxDocumentSize() {
+		return maxDocumentSize;
+	}
+
+	/**
+	 * The maximum size of the document in characters (or bytes for utf-8)
+	 */
+	public void setMaxDocumentSize(long maxDocumentSize) {
+		checkMutable();
+		this.maxDocumentSize = maxDocumentSize;
+	}
+
+	public long getMaxStringLength() {
+		return maxStringLength;
+	}
+
+	/**
+	 * The maximum length of a string value (including raw values), this replaces the default of 10mb and caps any larger max length of an element
+	 */
+	public void setMaxStringLength(long maxStringLength) {
+		checkMutable();
+		this.maxStringLength = maxStringLength;
+	}
+
+	public boolean isMapFiles() {
+		return mapFiles;
+	}
+
+	/**
+	 * Parses larger local utf-8 files straight from a memory mapping of the file instead of the readable of the resource.
+	 * Only enable this if the readable returns the file as is.
+	 */
+	public void setMapFiles(boolean mapFiles) {
+		checkMutable();
+		this.mapFiles = mapFiles;
+	}
+
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	/**
+	 * The document is kept in memory and only the fields of the root object are indexed, values (and nested objects) are only parsed when they are accessed.
+	 * This does not apply if windows, handlers or a projection are set.
+	 */
+	public void setLazy(boolean lazy) {
+		checkMutable();
+		this.lazy = lazy;
+	}
+
+	public ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+
+	/**
+	 * Root arrays are parsed in parallel on this pool, unless parallel paths are set in which case it applies to the arrays at those paths
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		checkMutable();
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	public List<String> getParallelPaths() {
+		return parallelPaths;
+	}
+
+	public void setParallelPaths(List<String> parallelPaths) {
+		checkMutable();
+		this.parallelPaths = parallelPaths;
+	}
+
+	public JSONShapeRegistry getShapeRegistry() {
+		return shapeRegistry;
+	}
+
+	/**
+	 * Fully dynamic documents are parsed into the type of an earlier document with the same shape.
+	 * Such documents are read twice, once for the fingerprint and once to parse them, and are kept in memory in between up to the maximum document size of the registry (1MB by default).
+	 */
+	public void setShapeRegistry(JSONShapeRegistry shapeRegistry) {
+		checkMutable();
+		this.shapeRegistry = shapeRegistry;
+	}
+
 	public boolean isAllowNilCharacter() {
 		return allowNilCharacter;
 	}
 
 	public void setAllowNilCharacter(boolean allowNilCharacter) {
+		checkMutable();
 		this.allowNilCharacter = allowNilCharacter;
 	}
 
@@ -756,6 +1160,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setAllowAttributeFallback(boolean allowAttributeFallback) {
+		checkMutable();
 		this.allowAttributeFallback = allowAttributeFallback;
 	}
 
@@ -764,6 +1169,7 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setMarshalExplicitNullValues(boolean marshalExplicitNullValues) {
+		checkMutable();
 		this.marshalExplicitNullValues = marshalExplicitNullValues;
 	}
 
@@ -772,7 +1178,48 @@ public class JSONBinding extends BaseTypeBinding {
 	}
 
 	public void setEnableMapSupport(boolean enableMapSupport) {
+		checkMutable();
 		this.enableMapSupport = enableMapSupport;
 	}
 
+	public boolean isUseValueDecoders() {
+		return useValueDecoders;
+	}
+
+	public void setUseValueDecoders(boolean useValueDecoders) {
+		checkMutable();
+		this.useValueDecoders = useValueDecoders;
+	}
+
+	public JSONFieldNameCache getFieldNameCache() {
+		JSONFieldNameCache fieldNameCache = this.fieldNameCache;
+		// the settings may have changed since the cache was created, note that the unmarshaller always normalizes
+		if (fieldNameCache == null || !fieldNameCache.isFor(true, camelCaseDashes, camelCaseUnderscores)) {
+			fieldNameCache = new JSONFieldNameCache(true, camelCaseDashes, camelCaseUnderscores);
+			this.fieldNameCache = fieldNameCache;
+		}
+		return fieldNameCache;
+	}
+
+	public List<String> getProjection() {
+		return projection;
+	}
+
+	/**
+	 * Only the given paths (and everything below them) are parsed, everything else is skipped, e.g. "order/id"
+	 */
+	public void setProjection(List<String> projection) {
+		checkMutable();
+		this.projection = projection;
+	}
+
+	public Map<String, JSONElementHandler> getHandlers() {
+		return handlers;
+	}
+
+	public void setHandlers(Map<String, JSONElementHandler> handlers) {
+		checkMutable();
+		this.handlers = handlers;
+	}
+
 }
@@ -0,0 +1,241 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.ModifiableComplexTypeGenerator;
+
+/**
+ * Builds an immutable json binding that can be shared by multiple threads.
+ * Because its configuration can no longer change, the binding reuses the parser state (the unmarshaller and the buffers of the tokenizer) for all the documents parsed on the same thread.
+ */
+public class JSONBindingBuilder {
+
+	private JSONBinding binding;
+	
+	public JSONBindingBuilder(ComplexType type) {
+		this(type, Charset.forName("UTF-8"));
+	}
+	
+	public JSONBindingBuilder(ComplexType type, Charset charset) {
+		this.binding = new JSONBinding(type, charset);
+	}
+	
+	public JSONBindingBuilder(ModifiableComplexTypeGenerator complexTypeGenerator, Charset charset) {
+		this.binding = new JSONBinding(complexTypeGenerator, charset);
+	}
+	
+	private JSONBinding getBinding() {
+		if (binding == null) {
+			throw new IllegalStateException("The binding has already been built");
+		}
+		return binding;
+	}
+	
+	public JSONBindingBuilder allowDynamicElements(boolean allowDynamicElements) {
+		getBinding().setAllowDynamicElements(allowDynamicElements);
+		return this;
+	}
+
+	public JSONBindingBuilder addDynamicElementDefinitions(boolean addDynamicElementDefinitions) {
+		getBinding().setAddDynamicElementDefinitions(addDynamicElementDefinitions);
+		return this;
+	}
+
+	public JSONBindingBuilder complexTypeGenerator(ModifiableComplexTypeGenerator complexTypeGenerator) {
+		getBinding().setComplexTypeGenerator(complexTypeGenerator);
+		return this;
+	}
+
+	public JSONBindingBuilder ignoreRootIfArrayWrapper(boolean ignoreRootIfArrayWrapper) {
+		getBinding().setIgnoreRootIfArrayWrapper(ignoreRootIfArrayWrapper);
+		return this;
+	}
+
+	public JSONBindingBuilder ignoreUnknownElements(boolean ignoreUnknownElements) {
+		getBinding().setIgnoreUnknownElements(ignoreUnknownElements);
+		return this;
+	}
+
+	public JSONBindingBuilder camelCaseDashes(boolean camelCaseDashes) {
+		getBinding().setCamelCaseDashes(camelCaseDashes);
+		return this;
+	}
+
+	public JSONBindingBuilder camelCaseUnderscores(boolean camelCaseUnderscores) {
+		getBinding().setCamelCaseUnderscores(camelCaseUnderscores);
+		return this;
+	}
+
+	public JSONBindingBuilder parseNumbers(boolean parseNumbers) {
+		getBinding().setParseNumbers(parseNumbers);
+		return this;
+	}
+
+	public JSONBindingBuilder allowRaw(boolean allowRaw) {
+		getBinding().setAllowRaw(allowRaw);
+		return this;
+	}
+
+	public JSONBindingBuilder prettyPrint(boolean prettyPrint) {
+		getBinding().setPrettyPrint(prettyPrint);
+		return this;
+	}
+
+	public JSONBindingBuilder setEmptyArrays(boolean setEmptyArrays) {
+		getBinding().setSetEmptyArrays(setEmptyArrays);
+		return this;
+	}
+
+	public JSONBindingBuilder ignoreEmptyStrings(boolean ignoreEmptyStrings) {
+		getBinding().setIgnoreEmptyStrings(ignoreEmptyStrings);
+		return this;
+	}
+
+	public JSONBindingBuilder expandKeyValuePairs(boolean expandKeyValuePairs) {
+		getBinding().setExpandKeyValuePairs(expandKeyValuePairs);
+		return this;
+	}
+
+	public JSONBindingBuilder useAlias(boolean useAlias) {
+		getBinding().setUseAlias(useAlias);
+		return this;
+	}
+
+	public JSONBindingBuilder ignoreInconsistentTypes(boolean ignoreInconsistentTypes) {
+		getBinding().setIgnoreInconsistentTypes(ignoreInconsistentTypes);
+		return this;
+	}
+
+	public JSONBindingBuilder ignoreDynamicNames(boolean ignoreDynamicNames) {
+		getBinding().setIgnoreDynamicNames(ignoreDynamicNames);
+		return this;
+	}
+
+	public JSONBindingBuilder marshalNonExistingRequiredFields(boolean marshalNonExistingRequiredFields) {
+		getBinding().setMarshalNonExistingRequiredFields(marshalNonExistingRequiredFields);
+		return this;
+	}
+
+	public JSONBindingBuilder addDynamicStringsOnly(boolean addDynamicStringsOnly) {
+		getBinding().setAddDynamicStringsOnly(addDynamicStringsOnly);
+		return this;
+	}
+
+	public JSONBindingBuilder shareDynamicTypes(boolean shareDynamicTypes) {
+		getBinding().setShareDynamicTypes(shareDynamicTypes);
+		return this;
+	}
+
+	public JSONBindingBuilder maxDepth(int maxDepth) {
+		getBinding().setMaxDepth(maxDepth);
+		return this;
+	}
+
+	public JSONBindingBuilder maxElements(int maxElements) {
+		getBinding().setMaxElements(maxElements);
+		return this;
+	}
+
+	public JSONBindingBuilder maxDynamicElements(int maxDynamicElements) {
+		getBinding().setMaxDynamicElements(maxDynamicElements);
+		return this;
+	}
+
+	public JSONBindingBuilder maxDocumentSize(long maxDocumentSize) {
+		getBinding().setMaxDocumentSize(maxDocumentSize);
+		return this;
+	}
+
+	public JSONBindingBuilder maxStringLength(long maxStringLength) {
+		getBinding().setMaxStringLength(maxStringLength);
+		return this;
+	}
+
+	public JSONBindingBuilder mapFiles(boolean mapFiles) {
+		getBinding().setMapFiles(mapFiles);
+		return this;
+	}
+
+	public JSONBindingBuilder lazy(boolean lazy) {
+		getBinding().setLazy(lazy);
+		return this;
+	}
+
+	public JSONBindingBuilder forkJoinPool(ForkJoinPool forkJoinPool) {
+		getBinding().setForkJoinPool(forkJoinPool);
+		return this;
+	}
+
+	public JSONBindingBuilder parallelPaths(List<String> parallelPaths) {
+		getBinding().setParallelPaths(parallelPaths);
+		return this;
+	}
+
+	public JSONBindingBuilder shapeRegistry(JSONShapeRegistry shapeRegistry) {
+		getBinding().setShapeRegistry(shapeRegistry);
+		return this;
+	}
+
+	public JSONBindingBuilder allowNilCharacter(boolean allowNilCharacter) {
+		getBinding().setAllowNilCharacter(allowNilCharacter);
+		return this;
+	}
+
+	public JSONBindingBuilder allowAttributeFallback(boolean allowAttributeFallback) {
+		getBinding().setAllowAttributeFallback(allowAttributeFallback);
+		return this;
+	}
+
+	public JSONBindingBuilder marshalExplicitNullValues(boolean marshalExplicitNullValues) {
+		getBinding().setMarshalExplicitNullValues(marshalExplicitNullValues);
+		return this;
+	}
+
+	public JSONBindingBuilder enableMapSupport(boolean enableMapSupport) {
+		getBinding().setEnableMapSupport(enableMapSupport);
+		return this;
+	}
+
+	public JSONBindingBuilder useValueDecoders(boolean useValueDecoders) {
+		getBinding().setUseValueDecoders(useValueDecoders);
+		return this;
+	}
+
+	public JSONBindingBuilder projection(List<String> projection) {
+		getBinding().setProjection(projection);
+		return this;
+	}
+
+	public JSONBindingBuilder handlers(Map<String, JSONElementHandler> handlers) {
+		getBinding().setHandlers(handlers);
+		return this;
+	}
+
+	public JSONBinding build() {
+		JSONBinding built = getBinding();
+		built.seal();
+		binding = null;
+		return built;
+	}
+}
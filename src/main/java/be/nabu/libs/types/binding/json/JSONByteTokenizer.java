@@ -0,0 +1,543 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+import be.nabu.utils.io.IOUtils;
+import be.nabu.utils.io.api.ByteBuffer;
+import be.nabu.utils.io.api.ReadableContainer;
+
+/**
+ * Tokenizes utf-8 (or plain ascii) json directly at the byte level.
+ * The quote, the backslash and all the structural characters are single byte in utf-8 and can never appear inside a multibyte sequence, so only the tokens that are actually materialized are decoded.
+ * Note that lengths (e.g. the max length of a string) are expressed in bytes for this tokenizer.
+ * The loops that scan through strings and structures look at 8 bytes at a time (swar) to find the next byte of interest.
+ */
+class JSONByteTokenizer extends JSONTokenizer {
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	// the long patterns used to look at 8 bytes at once, see matches()
+	private static final long ONES = 0x0101010101010101L, HIGHS = 0x8080808080808080L;
+	private static final long QUOTES = '"' * ONES, BACKSLASHES = '\\' * ONES, CURLY_OPENS = '{' * ONES, CURLY_CLOSES = '}' * ONES, CASES = 0x20 * ONES;
+
+	private ReadableContainer<ByteBuffer> readable;
+
+	private byte [] window;
+	// the window as little endian longs so the lowest set bit of a match is the first byte
+	private java.nio.ByteBuffer words;
+	private byte [] scratch;
+	// reused to decode escaped strings into
+	private char [] decoded = new char[256];
+
+	private boolean started;
+
+	JSONByteTokenizer(ReadableContainer<ByteBuffer> readable) {
+		this.readable = readable;
+		this.window = new byte[WINDOW_SIZE];
+		this.words = java.nio.ByteBuffer.wrap(window).order(ByteOrder.LITTLE_ENDIAN);
+		this.scratch = new byte[READ_SIZE];
+	}
+	
+	/**
+	 * Tokenizes part of a document that is already in memory, the array itself is used as the window so nothing is copied.
+	 * The positions are the offsets in the array.
+	 */
+	JSONByteTokenizer(byte [] bytes, int from, int to) {
+		this.window = bytes;
+		this.words = java.nio.ByteBuffer.wrap(window).order(ByteOrder.LITTLE_ENDIAN);
+		this.position = from;
+		this.limit = to;
+		this.eof = true;
+		this.started = true;
+		if (from == 0 && to >= 3 && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF) {
+			position = 3;
+		}
+	}
+
+	/**
+	 * Reuses this tokenizer for a new document
+	 */
+	void reset(ReadableContainer<ByteBuffer> readable) {
+		reset();
+		this.readable = readable;
+		started = false;
+		if (window.length > MAX_REUSED_WINDOW_SIZE) {
+			window = new byte[WINDOW_SIZE];
+			words = java.nio.ByteBuffer.wrap(window).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	@Override
+	protected boolean fill() throws IOException {
+		if (eof) {
+			return false;
+		}
+		int keep = discardable();
+		if (keep > 0) {
+			System.arraycopy(window, keep, window, 0, limit - keep);
+			shifted(keep);
+		}
+		if (window.length - limit < scratch.length) {
+			byte [] bigger = new byte[Math.max(window.length * 2, limit + scratch.length)];
+			System.arraycopy(window, 0, bigger, 0, limit);
+			window = bigger;
+			words = java.nio.ByteBuffer.wrap(window).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		int read = load(window, limit, window.length - limit);
+		if (read <= 0) {
+			eof = true;
+			return false;
+		}
+		limit += read;
+		// the decoder would pass the byte order mark along as a character, at this level we can simply skip it
+		if (!started && limit >= 3) {
+			started = true;
+			if (offset == 0 && position == 0 && window[0] == (byte) 0xEF && window[1] == (byte) 0xBB && window[2] == (byte) 0xBF) {
+				position = 3;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Loads the next data into the target, there is always room for at least a read size. Returns the amount of bytes loaded, 0 or less if there is no more data.
+	 */
+	protected int load(byte [] target, int offset, int length) throws IOException {
+		long read = readable.read(IOUtils.wrap(scratch, false));
+		if (read > 0) {
+			System.arraycopy(scratch, 0, target, offset, (int) read);
+		}
+		return (int) read;
+	}
+
+	@Override
+	int read() throws IOException {
+		if (position >= limit && !fill()) {
+			return -1;
+		}
+		return window[position++] & 0xff;
+	}
+
+	@Override
+	int readNonWhitespace() throws IOException {
+		while (true) {
+			while (position < limit) {
+				byte current = window[position++];
+				if (current != ' ' && current != '\t' && current != '\n' && current != '\r') {
+					return current & 0xff;
+				}
+			}
+			if (!fill()) {
+				return -1;
+			}
+		}
+	}
+
+	@Override
+	boolean scanString(long maxLength) throws IOException {
+		mark = position;
+		tokenEscaped = false;
+		try {
+			while (true) {
+				while (position < limit) {
+					// as long as there are no quotes or backslashes, we can skip 8 bytes at a time
+					if (position + 8 <= limit) {
+						long word = words.getLong(position);
+						long found = matches(word, QUOTES) | matches(word, BACKSLASHES);
+						if (found == 0) {
+							position += 8;
+							if (position - mark > maxLength) {
+								return partial();
+							}
+							continue;
+						}
+						position += Long.numberOfTrailingZeros(found) >>> 3;
+						if (position - mark > maxLength) {
+							return partial();
+						}
+					}
+					byte current = window[position];
+					if (current == '"') {
+						tokenStart = mark;
+						tokenEnd = position++;
+						return true;
+					}
+					else if (current == '\\') {
+						tokenEscaped = true;
+						// skip the escaped character, if it is not in the window yet, the next fill will bring it in
+						position += 2;
+					}
+					else {
+						position++;
+					}
+					if (position - mark > maxLength) {
+						return partial();
+					}
+				}
+				// the escape skipped beyond the data we have
+				if (position > limit) {
+					position = limit;
+					if (!fill()) {
+						return partial();
+					}
+					position++;
+				}
+				else if (!fill()) {
+					return partial();
+				}
+			}
+		}
+		finally {
+			mark = -1;
+		}
+	}
+
+	@Override
+	boolean scanName(int maxLength) throws IOException {
+		mark = position;
+		tokenEscaped = false;
+		try {
+			while (true) {
+				while (position < limit) {
+					if (window[position] == '\\') {
+						tokenEscaped = true;
+					}
+					if (window[position] == ':') {
+						tokenStart = mark;
+						tokenEnd = position++;
+						while (tokenEnd > tokenStart && isWhitespace(window[tokenEnd - 1])) {
+							tokenEnd--;
+						}
+						return true;
+					}
+					else if (++position - mark > maxLength) {
+						return partial();
+					}
+				}
+				if (!fill()) {
+					return partial();
+				}
+			}
+		}
+		finally {
+			mark = -1;
+		}
+	}
+
+	@Override
+	void scanNumber() throws IOException {
+		mark = position - 1;
+		try {
+			while (true) {
+				while (position < limit) {
+					if (isNumeric(window[position])) {
+						position++;
+					}
+					else {
+						tokenStart = mark;
+						tokenEnd = position;
+						return;
+					}
+				}
+				if (!fill()) {
+					tokenStart = mark;
+					tokenEnd = position;
+					return;
+				}
+			}
+		}
+		finally {
+			mark = -1;
+		}
+	}
+
+	@Override
+	boolean scanStructure(char open, char close, long maxLength) throws IOException {
+		// the opening character is part of the token
+		mark = position - 1;
+		int depth = 1;
+		boolean string = false;
+		long opens = open * ONES, closes = close * ONES;
+		try {
+			while (true) {
+				while (position < limit) {
+					// skip 8 bytes at a time up to the next byte that matters in the current state
+					if (position + 8 <= limit) {
+						long word = words.getLong(position);
+						long found = string ? matches(word, QUOTES) | matches(word, BACKSLASHES) : matches(word, QUOTES) | matches(word, opens) | matches(word, closes);
+						if (found == 0) {
+							position += 8;
+							if (position - mark > maxLength) {
+								return partial();
+							}
+							continue;
+						}
+						position += Long.numberOfTrailingZeros(found) >>> 3;
+						if (position - mark > maxLength) {
+							return partial();
+						}
+					}
+					byte current = window[position++];
+					// unlike the closing quote of a string, the closing character is part of the token
+					if (position - mark > maxLength) {
+						return partial();
+					}
+					if (string) {
+						if (current == '\\') {
+							// skip the escaped character, if it is not in the window yet, the next fill will bring it in
+							position++;
+						}
+						else if (current == '"') {
+							string = false;
+						}
+					}
+					else if (current == '"') {
+						string = true;
+					}
+					else if (current == open) {
+						depth++;
+					}
+					else if (current == close && --depth == 0) {
+						tokenStart = mark;
+						tokenEnd = position;
+						return true;
+					}
+				}
+				// the escape skipped beyond the data we have
+				if (position > limit) {
+					position = limit;
+					if (!fill()) {
+						return partial();
+					}
+					position++;
+				}
+				else if (!fill()) {
+					return partial();
+				}
+			}
+		}
+		finally {
+			mark = -1;
+		}
+	}
+
+	@Override
+	boolean skipStructure() throws IOException {
+		int depth = 1;
+		while (true) {
+			while (position < limit) {
+				// only quotes and brackets matter here, the 0x20 bit is the only difference between the curly and the square ones
+				if (position + 8 <= limit) {
+					long word = words.getLong(position);
+					long cased = word | CASES;
+					long found = matches(word, QUOTES) | matches(cased, CURLY_OPENS) | matches(cased, CURLY_CLOSES);
+					if (found == 0) {
+						position += 8;
+						continue;
+					}
+					position += Long.numberOfTrailingZeros(found) >>> 3;
+				}
+				byte current = window[position++];
+				if (current == '"') {
+					if (!skipString()) {
+						return false;
+					}
+				}
+				else if (current == '{' || current == '[') {
+					depth++;
+				}
+				else if ((current == '}' || current == ']') && --depth == 0) {
+					return true;
+				}
+			}
+			if (!fill()) {
+				return false;
+			}
+		}
+	}
+
+	@Override
+	boolean skipString() throws IOException {
+		while (true) {
+			while (position < limit) {
+				if (position + 8 <= limit) {
+					long word = words.getLong(position);
+					long found = matches(word, QUOTES) | matches(word, BACKSLASHES);
+					if (found == 0) {
+						position += 8;
+						continue;
+					}
+					position += Long.numberOfTrailingZeros(found) >>> 3;
+				}
+				byte current = window[position++];
+				if (current == '"') {
+					return true;
+				}
+				else if (current == '\\') {
+					if (position >= limit && !fill()) {
+						return false;
+					}
+					position++;
+				}
+			}
+			if (!fill()) {
+				return false;
+			}
+		}
+	}
+
+	@Override
+	long writeToken(OutputStream output) throws IOException {
+		output.write(window, tokenStart, tokenEnd - tokenStart);
+		return tokenEnd - tokenStart;
+	}
+
+	@Override
+	boolean matchIgnoreCase(String expected) throws IOException {
+		if (ensure(expected.length()) < expected.length()) {
+			return false;
+		}
+		for (int i = 0; i < expected.length(); i++) {
+			if (Character.toLowerCase((char) (window[position + i] & 0xff)) != Character.toLowerCase(expected.charAt(i))) {
+				return false;
+			}
+		}
+		position += expected.length();
+		return true;
+	}
+
+	@Override
+	String getString(boolean allowNil, boolean replaceNonBreakingSpaces) {
+		if (!tokenEscaped && !replaceNonBreakingSpaces) {
+			return toString(tokenStart, tokenEnd);
+		}
+		int i = tokenStart;
+		// a non breaking space is encoded as 0xC2 0xA0, other characters can also contain 0xA0 but they simply take the slower route
+		while (i < tokenEnd && window[i] != '\\' && (!replaceNonBreakingSpaces || window[i] != (byte) 0xA0)) {
+			i++;
+		}
+		if (i == tokenEnd) {
+			return toString(tokenStart, tokenEnd);
+		}
+		// the amount of characters is never more than the amount of bytes
+		if (decoded.length < tokenEnd - tokenStart) {
+			decoded = new char[Math.max(decoded.length * 2, tokenEnd - tokenStart)];
+		}
+		int length = 0;
+		i = tokenStart;
+		while (i < tokenEnd) {
+			int current = window[i++] & 0xff;
+			if (current == '\\' && i < tokenEnd) {
+				int next = window[i++] & 0xff;
+				if (next != 'u') {
+					decoded[length++] = unescape(next);
+				}
+				// not enough room for an actual unicode escape, we only drop the backslash
+				else if (i + 4 > tokenEnd) {
+					decoded[length++] = 'u';
+				}
+				else {
+					int value = unicode(window[i], window[i + 1], window[i + 2], window[i + 3]);
+					i += 4;
+					// unless explicitly toggled, we do not allow for 0 to be injected, see the char tokenizer
+					if (value != 0 || allowNil) {
+						decoded[length++] = (char) value;
+					}
+				}
+			}
+			else if (current < 0x80) {
+				decoded[length++] = (char) current;
+			}
+			// we decode the utf-8 ourselves so we can do it in the same pass, malformed sequences become the replacement character, much like the standard decoder does
+			else if (current >= 0xC2 && current < 0xE0 && i < tokenEnd && isContinuation(window[i])) {
+				char character = (char) (((current & 0x1F) << 6) | (window[i++] & 0x3F));
+				decoded[length++] = character == '\u00A0' && replaceNonBreakingSpaces ? ' ' : character;
+			}
+			else if (current >= 0xE0 && current < 0xF0 && i + 1 < tokenEnd && isContinuation(window[i]) && isContinuation(window[i + 1])) {
+				int character = ((current & 0x0F) << 12) | ((window[i] & 0x3F) << 6) | (window[i + 1] & 0x3F);
+				i += 2;
+				decoded[length++] = character < 0x800 || Character.isSurrogate((char) character) ? '\uFFFD' : (char) character;
+			}
+			else if (current >= 0xF0 && current < 0xF5 && i + 2 < tokenEnd && isContinuation(window[i]) && isContinuation(window[i + 1]) && isContinuation(window[i + 2])) {
+				int codePoint = ((current & 0x07) << 18) | ((window[i] & 0x3F) << 12) | ((window[i + 1] & 0x3F) << 6) | (window[i + 2] & 0x3F);
+				i += 3;
+				if (codePoint < 0x10000 || codePoint > Character.MAX_CODE_POINT) {
+					decoded[length++] = '\uFFFD';
+				}
+				else {
+					decoded[length++] = Character.highSurrogate(codePoint);
+					decoded[length++] = Character.lowSurrogate(codePoint);
+				}
+			}
+			else {
+				decoded[length++] = '\uFFFD';
+			}
+		}
+		return new String(decoded, 0, length);
+	}
+
+	/**
+	 * Sets the high bit of the bytes in the word that are equal to the byte repeated in the pattern.
+	 * Bytes after an actual match can be flagged incorrectly because of the borrow, so only the lowest flagged byte is reliable, which is all we need.
+	 */
+	private static long matches(long word, long pattern) {
+		long difference = word ^ pattern;
+		return (difference - ONES) & ~difference & HIGHS;
+	}
+	
+	private static boolean isContinuation(byte unit) {
+		return (unit & 0xC0) == 0x80;
+	}
+
+	@Override
+	boolean matches(JSONUnmarshalPlan.FieldName name) {
+		if (tokenEnd - tokenStart != name.bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < name.bytes.length; i++) {
+			if (window[tokenStart + i] != name.bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	int hash() {
+		int hash = 0;
+		for (int i = tokenStart; i < tokenEnd; i++) {
+			hash = hash(hash, window[i] & 0xff);
+		}
+		return hash;
+	}
+
+	@Override
+	int unitAt(int index) {
+		return window[index] & 0xff;
+	}
+
+	@Override
+	String toString(int start, int end) {
+		return new String(window, start, end - start, UTF8);
+	}
+}
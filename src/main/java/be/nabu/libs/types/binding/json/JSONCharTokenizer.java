@@ -0,0 +1,427 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import be.nabu.utils.io.IOUtils;
+import be.nabu.utils.io.api.CharBuffer;
+import be.nabu.utils.io.api.ReadableContainer;
+
+/**
+ * Tokenizes already decoded characters, this is used for any charset that we can not scan at the byte level.
+ */
+class JSONCharTokenizer extends JSONTokenizer {
+
+	private ReadableContainer<CharBuffer> readable;
+
+	private char [] window = new char[WINDOW_SIZE];
+	private char [] scratch = new char[READ_SIZE];
+	// reused to decode escaped strings into
+	private char [] decoded = new char[256];
+
+	JSONCharTokenizer(ReadableContainer<CharBuffer> readable) {
+		this.readable = readable;
+	}
+
+	/**
+	 * Reuses this tokenizer for a new document
+	 */
+	void reset(ReadableContainer<CharBuffer> readable) {
+		reset();
+		this.readable = readable;
+		if (window.length > MAX_REUSED_WINDOW_SIZE) {
+			window = new char[WINDOW_SIZE];
+		}
+	}
+
+	@Override
+	protected boolean fill() throws IOException {
+		if (eof) {
+			return false;
+		}
+		int keep = discardable();
+		if (keep > 0) {
+			System.arraycopy(window, keep, window, 0, limit - keep);
+			shifted(keep);
+		}
+		if (window.length - limit < scratch.length) {
+			char [] bigger = new char[Math.max(window.length * 2, limit + scratch.length)];
+			System.arraycopy(window, 0, bigger, 0, limit);
+			window = bigger;
+		}
+		long read = readable.read(IOUtils.wrap(scratch, false));
+		if (read <= 0) {
+			eof = true;
+			return false;
+		}
+		System.arraycopy(scratch, 0, window, limit, (int) read);
+		limit += (int) read;
+		return true;
+	}
+
+	@Override
+	int read() throws IOException {
+		if (position >= limit && !fill()) {
+			return -1;
+		}
+		return window[position++];
+	}
+
+	@Override
+	int readNonWhitespace() throws IOException {
+		while (true) {
+			while (position < limit) {
+				char current = window[position++];
+				if (current != ' ' && current != '\t' && current != '\n' && current != '\r') {
+					return current;
+				}
+			}
+			if (!fill()) {
+				return -1;
+			}
+		}
+	}
+
+	@Override
+	boolean scanString(long maxLength) throws IOException {
+		mark = position;
+		tokenEscaped = false;
+		try {
+			while (true) {
+				while (position < limit) {
+					char current = window[position];
+					if (current == '"') {
+						tokenStart = mark;
+						tokenEnd = position++;
+						return true;
+					}
+					else if (current == '\\') {
+						tokenEscaped = true;
+						// skip the escaped character, if it is not in the window yet, the next fill will bring it in
+						position += 2;
+					}
+					else {
+						position++;
+					}
+					if (position - mark > maxLength) {
+						return partial();
+					}
+				}
+				// the escape skipped beyond the data we have
+				if (position > limit) {
+					position = limit;
+					if (!fill()) {
+						return partial();
+					}
+					position++;
+				}
+				else if (!fill()) {
+					return partial();
+				}
+			}
+		}
+		finally {
+			mark = -1;
+		}
+	}
+
+	@Override
+	boolean scanName(int maxLength) throws IOException {
+		mark = position;
+		tokenEscaped = false;
+		try {
+			while (true) {
+				while (position < limit) {
+					if (window[position] == '\\') {
+						tokenEscaped = true;
+					}
+					if (window[position] == ':') {
+						tokenStart = mark;
+						tokenEnd = position++;
+						while (tokenEnd > tokenStart && isWhitespace(window[tokenEnd - 1])) {
+							tokenEnd--;
+						}
+						return true;
+					}
+					else if (++position - mark > maxLength) {
+						return partial();
+					}
+				}
+				if (!fill()) {
+					return partial();
+				}
+			}
+		}
+		finally {
+			mark = -1;
+		}
+	}
+
+	@Override
+	void scanNumber() throws IOException {
+		mark = position - 1;
+		try {
+			while (true) {
+				while (position < limit) {
+					if (isNumeric(window[position])) {
+						position++;
+					}
+					else {
+						tokenStart = mark;
+						tokenEnd = position;
+						return;
+					}
+				}
+				if (!fill()) {
+					tokenStart = mark;
+					tokenEnd = position;
+					return;
+				}
+			}
+		}
+		finally {
+			mark = -1;
+		}
+	}
+
+	@Override
+	boolean scanStructure(char open, char close, long maxLength) throws IOException {
+		// the opening character is part of the token
+		mark = position - 1;
+		int depth = 1;
+		boolean string = false;
+		try {
+			while (true) {
+				while (position < limit) {
+					char current = window[position++];
+					// unlike the closing quote of a string, the closing character is part of the token
+					if (position - mark > maxLength) {
+						return partial();
+					}
+					if (string) {
+						if (current == '\\') {
+							// skip the escaped character, if it is not in the window yet, the next fill will bring it in
+							position++;
+						}
+						else if (current == '"') {
+							string = false;
+						}
+					}
+					else if (current == '"') {
+						string = true;
+					}
+					else if (current == open) {
+						depth++;
+					}
+					else if (current == close && --depth == 0) {
+						tokenStart = mark;
+						tokenEnd = position;
+						return true;
+					}
+				}
+				// the escape skipped beyond the data we have
+				if (position > limit) {
+					position = limit;
+					if (!fill()) {
+						return partial();
+					}
+					position++;
+				}
+				else if (!fill()) {
+					return partial();
+				}
+			}
+		}
+		finally {
+			mark = -1;
+		}
+	}
+
+	@Override
+	boolean skipStructure() throws IOException {
+		int depth = 1;
+		while (true) {
+			while (position < limit) {
+				char current = window[position++];
+				if (current == '"') {
+					// strings are skipped in a tighter loop, only the quote and the backslash matter there
+					while (true) {
+						if (position >= limit && !fill()) {
+							return false;
+						}
+						current = window[position++];
+						if (current == '"') {
+							break;
+						}
+						else if (current == '\\') {
+							if (position >= limit && !fill()) {
+								return false;
+							}
+							position++;
+						}
+					}
+				}
+				else if (current == '{' || current == '[') {
+					depth++;
+				}
+				else if ((current == '}' || current == ']') && --depth == 0) {
+					return true;
+				}
+			}
+			if (!fill()) {
+				return false;
+			}
+		}
+	}
+
+	@Override
+	boolean skipString() throws IOException {
+		while (true) {
+			while (position < limit) {
+				char current = window[position++];
+				if (current == '"') {
+					return true;
+				}
+				else if (current == '\\') {
+					if (position >= limit && !fill()) {
+						return false;
+					}
+					position++;
+				}
+			}
+			if (!fill()) {
+				return false;
+			}
+		}
+	}
+
+	@Override
+	long writeToken(OutputStream output) throws IOException {
+		byte [] bytes = toString(tokenStart, tokenEnd).getBytes(JSONByteTokenizer.UTF8);
+		output.write(bytes);
+		return bytes.length;
+	}
+
+	@Override
+	boolean matchIgnoreCase(String expected) throws IOException {
+		if (ensure(expected.length()) < expected.length()) {
+			return false;
+		}
+		for (int i = 0; i < expected.length(); i++) {
+			if (Character.toLowerCase(window[position + i]) != Character.toLowerCase(expected.charAt(i))) {
+				return false;
+			}
+		}
+		position += expected.length();
+		return true;
+	}
+
+	@Override
+	String getString(boolean allowNil, boolean replaceNonBreakingSpaces) {
+		if (!tokenEscaped && !replaceNonBreakingSpaces) {
+			return toString(tokenStart, tokenEnd);
+		}
+		// decoding can only make it shorter
+		if (decoded.length < tokenEnd - tokenStart) {
+			decoded = new char[Math.max(decoded.length * 2, tokenEnd - tokenStart)];
+		}
+		return decode(window, tokenStart, tokenEnd, decoded, allowNil, replaceNonBreakingSpaces);
+	}
+
+	/**
+	 * Decodes the given part of the source, the target must be at least as large as that part
+	 */
+	static String decode(char [] source, int start, int end, char [] target, boolean allowNil, boolean replaceNonBreakingSpaces) {
+		int i = start;
+		// look for the first character that needs decoding, if there is none we can use the source as is
+		while (i < end && source[i] != '\\' && (!replaceNonBreakingSpaces || source[i] != '\u00A0')) {
+			i++;
+		}
+		if (i == end) {
+			return new String(source, start, end - start);
+		}
+		int length = i - start;
+		System.arraycopy(source, start, target, 0, length);
+		while (i < end) {
+			char current = source[i++];
+			if (current == '\u00A0' && replaceNonBreakingSpaces) {
+				target[length++] = ' ';
+			}
+			// a backslash at the very end is kept as is
+			else if (current != '\\' || i == end) {
+				target[length++] = current;
+			}
+			else {
+				char next = source[i++];
+				if (next != 'u') {
+					target[length++] = unescape(next);
+				}
+				// not enough room for an actual unicode escape, we only drop the backslash
+				else if (i + 4 > end) {
+					target[length++] = next;
+				}
+				else {
+					int value = unicode(source[i], source[i + 1], source[i + 2], source[i + 3]);
+					i += 4;
+					// unless explicitly toggled, we do not allow for 0 to be injected
+					// this can lead to odd scenarios because most c-based systems do not interact well with 0 in a string
+					// in particular for example XML parsing will fail, postgresql jdbc driver will fail etc
+					if (value != 0 || allowNil) {
+						// surrogate pairs are simply two consecutive escapes, so they end up next to one another
+						target[length++] = (char) value;
+					}
+				}
+			}
+		}
+		return new String(target, 0, length);
+	}
+
+	@Override
+	boolean matches(JSONUnmarshalPlan.FieldName name) {
+		if (tokenEnd - tokenStart != name.chars.length) {
+			return false;
+		}
+		for (int i = 0; i < name.chars.length; i++) {
+			if (window[tokenStart + i] != name.chars[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	int hash() {
+		int hash = 0;
+		for (int i = tokenStart; i < tokenEnd; i++) {
+			hash = hash(hash, window[i]);
+		}
+		return hash;
+	}
+
+	@Override
+	int unitAt(int index) {
+		return window[index];
+	}
+
+	@Override
+	String toString(int start, int end) {
+		return new String(window, start, end - start);
+	}
+}
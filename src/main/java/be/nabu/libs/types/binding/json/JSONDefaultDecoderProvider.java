@@ -0,0 +1,326 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.SimpleType;
+
+/**
+ * Decoders for the most common simple types. Anything out of the ordinary (e.g. a date in a local timezone) is left to the unmarshallable type.
+ */
+class JSONDefaultDecoderProvider implements JSONValueDecoderProvider {
+
+	// if any of these properties are set, the element has specific formatting needs that we don't want to replicate
+	private static List<String> formattingProperties = Arrays.asList("format", "timezone", "language", "country");
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public JSONValueDecoder getDecoder(Element<?> element) {
+		if (!(element.getType() instanceof SimpleType)) {
+			return null;
+		}
+		Class<?> instanceClass = ((SimpleType<?>) element.getType()).getInstanceClass();
+		if (instanceClass == null) {
+			return null;
+		}
+		else if (Long.class.equals(instanceClass)) {
+			return new LongDecoder();
+		}
+		else if (Integer.class.equals(instanceClass)) {
+			return new IntegerDecoder();
+		}
+		else if (Double.class.equals(instanceClass)) {
+			return new DoubleDecoder();
+		}
+		else if (BigInteger.class.equals(instanceClass)) {
+			return new BigIntegerDecoder();
+		}
+		else if (BigDecimal.class.equals(instanceClass)) {
+			return new BigDecimalDecoder();
+		}
+		else if (Boolean.class.equals(instanceClass)) {
+			return new BooleanDecoder();
+		}
+		else if (UUID.class.equals(instanceClass)) {
+			return new UUIDDecoder();
+		}
+		else if (instanceClass.isEnum()) {
+			return new EnumDecoder((Class<? extends Enum>) instanceClass);
+		}
+		else if (Date.class.equals(instanceClass) && !isFormatted(element)) {
+			return new DateDecoder();
+		}
+		return null;
+	}
+	
+	private static boolean isFormatted(Element<?> element) {
+		for (Value<?> value : element.getProperties()) {
+			if (value != null && value.getValue() != null && formattingProperties.contains(value.getProperty().getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static class LongDecoder implements JSONValueDecoder {
+		@Override
+		public Object decode(CharSequence value) {
+			Number number = JSONTokenizer.parseNumber(value);
+			return number instanceof Long ? number : null;
+		}
+	}
+	
+	private static class IntegerDecoder implements JSONValueDecoder {
+		@Override
+		public Object decode(CharSequence value) {
+			Number number = JSONTokenizer.parseNumber(value);
+			return number instanceof Long && number.longValue() >= Integer.MIN_VALUE && number.longValue() <= Integer.MAX_VALUE ? Integer.valueOf(number.intValue()) : null;
+		}
+	}
+	
+	private static class DoubleDecoder implements JSONValueDecoder {
+		@Override
+		public Object decode(CharSequence value) {
+			Number number = JSONTokenizer.parseNumber(value);
+			// a long is always correctly rounded when converted
+			return number instanceof Double || number instanceof Long ? Double.valueOf(number.doubleValue()) : null;
+		}
+	}
+	
+	private static class BigIntegerDecoder implements JSONValueDecoder {
+		@Override
+		public Object decode(CharSequence value) {
+			Number number = JSONTokenizer.parseNumber(value);
+			if (number instanceof Long) {
+				return BigInteger.valueOf(number.longValue());
+			}
+			return number instanceof BigInteger ? number : null;
+		}
+	}
+	
+	private static class BigDecimalDecoder implements JSONValueDecoder {
+		@Override
+		public Object decode(CharSequence value) {
+			// the common case of a plain decimal that fits in a long can be built from the unscaled value without a string
+			long unscaled = 0;
+			int scale = -1, digits = 0, i = 0;
+			boolean negative = false;
+			if (value.length() > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+				negative = value.charAt(i++) == '-';
+			}
+			for (; i < value.length(); i++) {
+				char character = value.charAt(i);
+				if (character >= '0' && character <= '9') {
+					if (++digits > 18) {
+						break;
+					}
+					unscaled = unscaled * 10 + (character - '0');
+					if (scale >= 0) {
+						scale++;
+					}
+				}
+				else if (character == '.' && scale < 0) {
+					scale = 0;
+				}
+				else {
+					break;
+				}
+			}
+			if (i == value.length() && digits > 0) {
+				return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+			}
+			// exponents, large values,... are validated first so we only create the big decimal if it is going to work
+			return JSONTokenizer.parseNumber(value) == null ? null : new BigDecimal(value.toString());
+		}
+	}
+	
+	private static class BooleanDecoder implements JSONValueDecoder {
+		@Override
+		public Object decode(CharSequence value) {
+			if (matches(value, "true")) {
+				return true;
+			}
+			else if (matches(value, "false")) {
+				return false;
+			}
+			return null;
+		}
+	}
+	
+	private static class UUIDDecoder implements JSONValueDecoder {
+		@Override
+		public Object decode(CharSequence value) {
+			// both the dashed and the compact notation are supported
+			boolean dashed = value.length() == 36;
+			if (!dashed && value.length() != 32) {
+				return null;
+			}
+			long mostSignificant = 0, leastSignificant = 0;
+			int digits = 0;
+			for (int i = 0; i < value.length(); i++) {
+				char character = value.charAt(i);
+				if (dashed && (i == 8 || i == 13 || i == 18 || i == 23)) {
+					if (character != '-') {
+						return null;
+					}
+					continue;
+				}
+				int digit = Character.digit(character, 16);
+				if (digit < 0 || character > 'f') {
+					return null;
+				}
+				if (digits++ < 16) {
+					mostSignificant = (mostSignificant << 4) | digit;
+				}
+				else {
+					leastSignificant = (leastSignificant << 4) | digit;
+				}
+			}
+			return new UUID(mostSignificant, leastSignificant);
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static class EnumDecoder implements JSONValueDecoder {
+		private Enum [] constants;
+		
+		public EnumDecoder(Class<? extends Enum> enumClass) {
+			this.constants = enumClass.getEnumConstants();
+		}
+		
+		@Override
+		public Object decode(CharSequence value) {
+			for (Enum constant : constants) {
+				if (matches(value, constant.name())) {
+					return constant;
+				}
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * Decodes iso 8601 timestamps with an explicit offset like 2024-01-31T13:45:00Z or 2024-01-31T13:45:00.123+02:00, without the overhead of a date format.
+	 * Timestamps without an offset depend on the configured timezone so those are left to the date type.
+	 */
+	private static class DateDecoder implements JSONValueDecoder {
+		@Override
+		public Object decode(CharSequence value) {
+			int length = value.length();
+			if (length < 20 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T' || value.charAt(13) != ':' || value.charAt(16) != ':') {
+				return null;
+			}
+			int year = digits(value, 0, 4), month = digits(value, 5, 2), day = digits(value, 8, 2);
+			int hour = digits(value, 11, 2), minute = digits(value, 14, 2), second = digits(value, 17, 2);
+			// before the gregorian cutover the date type would use the julian calendar
+			if (year <= 1582 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+				return null;
+			}
+			int i = 19, millis = 0;
+			if (value.charAt(i) == '.') {
+				int start = ++i;
+				while (i < length && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+					i++;
+				}
+				// we don't want to decide on rounding or truncating the finer precisions
+				if (i == start || i - start > 3) {
+					return null;
+				}
+				millis = digits(value, start, i - start);
+				for (int j = i - start; j < 3; j++) {
+					millis *= 10;
+				}
+			}
+			if (i >= length) {
+				return null;
+			}
+			int offset;
+			char sign = value.charAt(i);
+			if (sign == 'Z' && i == length - 1) {
+				offset = 0;
+			}
+			else if (sign == '+' || sign == '-') {
+				// we only support the extended notation (e.g. +02:00), the others are rarely used and not supported everywhere
+				if (length - i != 6 || value.charAt(i + 3) != ':') {
+					return null;
+				}
+				int offsetHours = digits(value, i + 1, 2), offsetMinutes = digits(value, i + 4, 2);
+				if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+					return null;
+				}
+				offset = (offsetHours * 60 + offsetMinutes) * (sign == '-' ? -1 : 1);
+			}
+			else {
+				return null;
+			}
+			long days = daysSinceEpoch(year, month, day);
+			return new Date((((days * 24 + hour) * 60 + minute - offset) * 60 + second) * 1000 + millis);
+		}
+		
+		private static int digits(CharSequence value, int start, int amount) {
+			int result = 0;
+			for (int i = start; i < start + amount; i++) {
+				char character = value.charAt(i);
+				if (character < '0' || character > '9') {
+					return -1;
+				}
+				result = result * 10 + (character - '0');
+			}
+			return result;
+		}
+		
+		private static int daysInMonth(int year, int month) {
+			if (month == 2) {
+				return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+			}
+			return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+		}
+		
+		// the days since 1970-01-01 in the proleptic gregorian calendar
+		private static long daysSinceEpoch(int year, int month, int day) {
+			if (month <= 2) {
+				year--;
+			}
+			long era = year / 400;
+			long yearOfEra = year - era * 400;
+			long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+			long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+			return era * 146097 + dayOfEra - 719468;
+		}
+	}
+	
+	private static boolean matches(CharSequence value, String expected) {
+		if (value.length() != expected.length()) {
+			return false;
+		}
+		for (int i = 0; i < expected.length(); i++) {
+			if (value.charAt(i) != expected.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,34 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.IOException;
+
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.Element;
+
+/**
+ * Receives the objects of a streamed array one at a time, as soon as they are parsed.
+ * The objects are not added to the parent so they can be released once they are handled.
+ */
+public interface JSONElementHandler {
+	/**
+	 * The parent only contains the fields that appear before the array in the json, the index is the position in the array
+	 */
+	public void handle(ComplexContent parent, Element<?> element, int index, ComplexContent child) throws IOException;
+}
@@ -0,0 +1,199 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import be.nabu.libs.types.TypeUtils;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+
+/**
+ * Pulls the objects of the array at the given path one at a time, only the current object is kept in memory.
+ * All the other fields are parsed into the root content as usual, the fields that come after the array are only available once the iterator is exhausted.
+ * For a root array, the path is the name of the element that wraps it (if any).
+ */
+public class JSONElementIterator implements Iterator<ComplexContent>, Closeable {
+
+	private JSONReader reader;
+	private JSONUnmarshaller unmarshaller;
+	private ComplexType type;
+	private String [] segments;
+	
+	private ComplexContent content;
+	// the objects on the path that we are currently in, the last one is where we are reading fields
+	private List<ComplexContent> levels = new ArrayList<ComplexContent>();
+	// the array we are streaming
+	private Element<?> element;
+	private ComplexContent next;
+	private boolean started, streamed, done;
+	
+	public JSONElementIterator(JSONReader reader, JSONUnmarshaller unmarshaller, ComplexType type, String path) {
+		this.reader = reader;
+		this.unmarshaller = unmarshaller;
+		this.type = type;
+		path = path == null ? "" : path.replaceAll("^/+", "");
+		this.segments = path.isEmpty() ? new String[0] : path.split("/");
+		// the path can be expressed with or without the name of the root
+		if (segments.length > 1 && segments[0].equalsIgnoreCase(type.getName()) && type.get(segments[0]) == null) {
+			String [] relative = new String[segments.length - 1];
+			System.arraycopy(segments, 1, relative, 0, relative.length);
+			segments = relative;
+		}
+	}
+	
+	@Override
+	public boolean hasNext() {
+		if (next != null) {
+			return true;
+		}
+		else if (done) {
+			return false;
+		}
+		try {
+			if (!started) {
+				started = true;
+				unmarshaller.prepare(type);
+				if (!start()) {
+					done = true;
+					return false;
+				}
+			}
+			int first = reader.startElement();
+			// the array is done, we still parse the rest of the content
+			if (first < 0) {
+				element = null;
+				seek();
+				done = true;
+				return false;
+			}
+			else if (first != '{') {
+				throw new ParseException("Only objects are supported in the streamed array: " + element.getName(), (int) reader.getPosition());
+			}
+			next = ((ComplexType) element.getType()).newInstance();
+			unmarshaller.readObject(reader.getTokenizer(), next);
+			return true;
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not read the next element", e);
+		}
+		catch (ParseException e) {
+			throw new RuntimeException("Could not parse the next element at position " + e.getErrorOffset(), e);
+		}
+	}
+
+	@Override
+	public ComplexContent next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		ComplexContent current = next;
+		next = null;
+		return current;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Positions the reader at the start of the array, returns false if there is no such array
+	 */
+	private boolean start() throws IOException, ParseException {
+		JSONReader.Event event = reader.next();
+		if (event == null) {
+			return false;
+		}
+		content = type.newInstance();
+		if (event == JSONReader.Event.START_ARRAY) {
+			Collection<Element<?>> children = TypeUtils.getAllChildren(type);
+			if (children.size() == 1) {
+				element = children.iterator().next();
+			}
+			if (element == null || !(element.getType() instanceof ComplexType) || !element.getType().isList(element.getProperties())) {
+				throw new ParseException("The root array can not be mapped to a single list of objects in: " + type.getName(), (int) reader.getPosition());
+			}
+			else if (segments.length > 1 || (segments.length == 1 && !segments[0].equals(element.getName()))) {
+				throw new ParseException("The root is an array, the path should point to: " + element.getName(), (int) reader.getPosition());
+			}
+			return true;
+		}
+		else if (event != JSONReader.Event.START_OBJECT) {
+			throw new ParseException("Expecting an object or an array at the root", (int) reader.getPosition());
+		}
+		levels.add(content);
+		return seek();
+	}
+	
+	/**
+	 * Reads fields until we find the array on the path, if we already streamed it (or it doesn't exist), this simply reads the rest of the content
+	 */
+	private boolean seek() throws IOException, ParseException {
+		while (!levels.isEmpty()) {
+			ComplexContent current = levels.get(levels.size() - 1);
+			JSONReader.Event event = reader.next();
+			if (event == JSONReader.Event.END_OBJECT) {
+				levels.remove(levels.size() - 1);
+				continue;
+			}
+			// the same names as when the field is parsed as part of an object
+			String rawFieldName = reader.getTokenizer().getToken();
+			String fieldName = unmarshaller.toFieldName(reader.getTokenizer(), rawFieldName);
+			Element<?> child = unmarshaller.resolve(current.getType(), rawFieldName, fieldName);
+			int segment = levels.size() - 1;
+			if (!streamed && child != null && segment < segments.length && child.getName().equals(segments[segment]) && child.getType() instanceof ComplexType) {
+				event = reader.next();
+				if (segment == segments.length - 1 && event == JSONReader.Event.START_ARRAY) {
+					element = child;
+					streamed = true;
+					return true;
+				}
+				else if (segment < segments.length - 1 && event == JSONReader.Event.START_OBJECT) {
+					ComplexContent instance = ((ComplexType) child.getType()).newInstance();
+					current.set(child.getName(), instance);
+					levels.add(instance);
+					continue;
+				}
+				throw new ParseException("Unexpected " + event + " for field '" + rawFieldName + "' on the streamed path", (int) reader.getPosition());
+			}
+			unmarshaller.readFieldValue(reader.getTokenizer(), reader.startValue(), current, false, fieldName, rawFieldName, child);
+		}
+		return false;
+	}
+	
+	/**
+	 * The content outside of the streamed array, it is only complete once the iterator is exhausted
+	 */
+	public ComplexContent getContent() {
+		return content;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,109 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the processed form of field names (uri encoded, normalized and camel cased) by their name in the json.
+ * The processing only depends on a few settings, a cache is only valid for the settings it was created for.
+ * A binding shares its cache with all the unmarshallers it creates, a standalone unmarshaller creates its own.
+ * The cache is bounded and evicts the least recently used name, that way documents with ever changing names (e.g. ids as keys) can not exhaust the memory while the recurring names stay cached.
+ */
+public class JSONFieldNameCache {
+
+	private boolean normalize, camelCaseDashes, camelCaseUnderscores;
+	private int maxSize;
+	private long hits, misses;
+	
+	// in access order so the eldest entry is the least recently used one
+	private Map<String, String> names = new LinkedHashMap<String, String>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > maxSize;
+		}
+	};
+	
+	public JSONFieldNameCache(boolean normalize, boolean camelCaseDashes, boolean camelCaseUnderscores) {
+		this(normalize, camelCaseDashes, camelCaseUnderscores, 4096);
+	}
+	
+	public JSONFieldNameCache(boolean normalize, boolean camelCaseDashes, boolean camelCaseUnderscores, int maxSize) {
+		this.normalize = normalize;
+		this.camelCaseDashes = camelCaseDashes;
+		this.camelCaseUnderscores = camelCaseUnderscores;
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Whether the names in this cache were processed with the given settings
+	 */
+	boolean isFor(boolean normalize, boolean camelCaseDashes, boolean camelCaseUnderscores) {
+		return this.normalize == normalize && this.camelCaseDashes == camelCaseDashes && this.camelCaseUnderscores == camelCaseUnderscores;
+	}
+	
+	/**
+	 * Returns the processed name or null if it is not cached
+	 */
+	synchronized String get(String name) {
+		String processed = names.get(name);
+		if (processed == null) {
+			misses++;
+		}
+		else {
+			hits++;
+		}
+		return processed;
+	}
+	
+	synchronized void put(String name, String processed) {
+		names.put(name, processed);
+	}
+	
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	public synchronized int getSize() {
+		return names.size();
+	}
+	
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		// shrink right away rather than on the next put
+		while (names.size() > maxSize) {
+			names.remove(names.keySet().iterator().next());
+		}
+	}
+
+	public synchronized void clear() {
+		names.clear();
+		hits = 0;
+		misses = 0;
+	}
+}
@@ -0,0 +1,173 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+
+/**
+ * Complex content that is backed by the json it was parsed from. Only the fields of the object are indexed, their values are parsed when they are first accessed.
+ * Nested objects are lazy in turn, so the parts of the document that are never accessed cost nothing beyond skipping over them once.
+ * Fields that do not map onto a known element can end up anywhere (dynamic elements, key value pairs,...) so they are parsed while indexing.
+ * Because values are only parsed when they are accessed, errors inside them are also only reported at that point (as runtime exceptions).
+ */
+class JSONLazyContent implements ComplexContent {
+
+	// the unmarshaller is shared by the whole document, it also guards it
+	private JSONUnmarshaller unmarshaller;
+	private ComplexType type;
+	private byte [] bytes;
+	// the offset of the opening brace of the object
+	private int start;
+	// how deep the object is nested
+	private int depth;
+	
+	// holds the values that have been parsed
+	private ComplexContent content;
+	// the fields that have not been parsed yet by element name, null until the object is indexed
+	private Map<String, Field> fields;
+	
+	JSONLazyContent(JSONUnmarshaller unmarshaller, ComplexType type, byte [] bytes, int start, int depth) {
+		this.unmarshaller = unmarshaller;
+		this.type = type;
+		this.bytes = bytes;
+		this.start = start;
+		this.depth = depth;
+		this.content = type.newInstance();
+	}
+	
+	void index() throws IOException, ParseException {
+		fields = new HashMap<String, Field>();
+		JSONTokenizer tokenizer = new JSONByteTokenizer(bytes, start, bytes.length);
+		JSONReader reader = unmarshaller.newReader(tokenizer);
+		reader.next();
+		unmarshaller.setDepth(depth - 1);
+		unmarshaller.enter(tokenizer);
+		int count = 0;
+		while (reader.next() == JSONReader.Event.FIELD_NAME) {
+			unmarshaller.checkLimits(tokenizer, ++count);
+			// the raw name is the token as it appears in the json, like it is for a regular parse
+			String rawFieldName = tokenizer.getToken();
+			String fieldName = unmarshaller.toFieldName(tokenizer, rawFieldName);
+			Element<?> element = unmarshaller.resolve(type, rawFieldName, fieldName);
+			int first = reader.startValue();
+			if (element == null) {
+				unmarshaller.readFieldValue(tokenizer, first, content, false, fieldName, rawFieldName, null);
+			}
+			else {
+				Field field = fields.get(element.getName());
+				if (field == null) {
+					field = new Field(element, rawFieldName);
+					fields.put(element.getName(), field);
+				}
+				field.add((int) tokenizer.getPosition() - 1);
+				unmarshaller.skipValue(tokenizer, first);
+			}
+		}
+	}
+	
+	/**
+	 * Parses the field the path starts with, if this has not happened yet
+	 */
+	private void materialize(String path) {
+		// everything has been parsed already
+		if (fields != null && fields.isEmpty()) {
+			return;
+		}
+		int end = 0;
+		while (end < path.length() && path.charAt(end) != '/' && path.charAt(end) != '[') {
+			end++;
+		}
+		String name = path.substring(0, end);
+		try {
+			if (fields == null) {
+				index();
+			}
+			// the field is only forgotten once it is parsed, if it fails it fails again the next time it is accessed
+			Field field = fields.get(name);
+			if (field == null) {
+				return;
+			}
+			// a single object is parsed lazily in turn
+			if (field.size == 1 && bytes[field.offsets[0]] == '{' && unmarshaller.isLazy(type, field.element)) {
+				JSONLazyContent child = new JSONLazyContent(unmarshaller, (ComplexType) field.element.getType(), bytes, field.offsets[0], depth + 1);
+				content.set(field.element.getName(), child);
+			}
+			else {
+				for (int i = 0; i < field.size; i++) {
+					JSONTokenizer tokenizer = new JSONByteTokenizer(bytes, field.offsets[i], bytes.length);
+					unmarshaller.setDepth(depth);
+					unmarshaller.readFieldValue(tokenizer, tokenizer.read(), content, false, field.element.getName(), field.rawName, field.element);
+				}
+			}
+			fields.remove(name);
+		}
+		catch (Exception e) {
+			throw new RuntimeException("Could not parse the field '" + name + "' in: " + type.getName(), e);
+		}
+	}
+	
+	@Override
+	public ComplexType getType() {
+		return type;
+	}
+
+	@Override
+	public void set(String path, Object value) {
+		synchronized (unmarshaller) {
+			// otherwise the value from the json would overwrite it when it is parsed
+			materialize(path);
+			content.set(path, value);
+		}
+	}
+
+	@Override
+	public Object get(String path) {
+		synchronized (unmarshaller) {
+			materialize(path);
+			return content.get(path);
+		}
+	}
+	
+	private static class Field {
+		private Element<?> element;
+		private String rawName;
+		// the offsets of the values, a field can (in theory) appear more than once
+		private int [] offsets = new int[1];
+		private int size;
+		
+		private Field(Element<?> element, String rawName) {
+			this.element = element;
+			this.rawName = rawName;
+		}
+		
+		private void add(int offset) {
+			if (size == offsets.length) {
+				offsets = Arrays.copyOf(offsets, size * 2);
+			}
+			offsets[size++] = offset;
+		}
+	}
+}
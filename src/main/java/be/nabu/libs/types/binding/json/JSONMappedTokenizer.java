@@ -0,0 +1,67 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Tokenizes a utf-8 file straight from a memory mapping, this avoids the copies (and the system calls) of reading it through streams.
+ * A single mapping can not be larger than 2gb so larger files are mapped in multiple regions, the window simply spans the boundaries.
+ */
+class JSONMappedTokenizer extends JSONByteTokenizer {
+
+	private static final long REGION_SIZE = 1024L*1024*1024;
+	
+	private MappedByteBuffer [] regions;
+	private int region;
+	
+	JSONMappedTokenizer(File file) throws IOException {
+		this(file, REGION_SIZE);
+	}
+	
+	JSONMappedTokenizer(File file, long regionSize) throws IOException {
+		super(null);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			regions = new MappedByteBuffer[(int) ((size + regionSize - 1) / regionSize)];
+			for (int i = 0; i < regions.length; i++) {
+				// a mapping stays valid after the channel is closed
+				regions[i] = channel.map(MapMode.READ_ONLY, i * regionSize, Math.min(regionSize, size - i * regionSize));
+			}
+		}
+	}
+
+	@Override
+	protected int load(byte [] target, int offset, int length) throws IOException {
+		while (region < regions.length && !regions[region].hasRemaining()) {
+			// there is no way to unmap explicitly, but we can at least let the garbage collector have the regions we are done with
+			regions[region++] = null;
+		}
+		if (region >= regions.length) {
+			return -1;
+		}
+		int amount = Math.min(length, regions[region].remaining());
+		regions[region].get(target, offset, amount);
+		return amount;
+	}
+}
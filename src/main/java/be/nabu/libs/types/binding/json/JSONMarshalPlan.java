@@ -0,0 +1,97 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import be.nabu.libs.types.TypeUtils;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.ModifiableComplexType;
+
+/**
+ * Everything the marshaller needs to know about the children of a complex type, resolved once per type instead of for every value.
+ * Plans are cached and validated the same way as the {@link JSONUnmarshalPlan}, they are never modified once they are built.
+ */
+class JSONMarshalPlan {
+
+	// the plan references the type (through the elements) so we can't reference it strongly from the value or the key would never be collected
+	private static Map<ComplexType, SoftReference<JSONMarshalPlan>> plans = Collections.synchronizedMap(new WeakHashMap<ComplexType, SoftReference<JSONMarshalPlan>>());
+
+	private ComplexType type;
+	private List<Element<?>> children;
+	private boolean modifiable;
+	// the children are looked up by identity, only those that have an encoder are in here
+	private Map<Element<?>, JSONValueEncoder> encoders = new IdentityHashMap<Element<?>, JSONValueEncoder>();
+
+	private JSONMarshalPlan(ComplexType type, Collection<Element<?>> children) {
+		this.type = type;
+		this.children = new ArrayList<Element<?>>(children);
+		this.modifiable = type instanceof ModifiableComplexType;
+		for (Element<?> child : children) {
+			JSONValueEncoder encoder = JSONValueEncoder.newEncoder(child);
+			if (encoder != null) {
+				encoders.put(child, encoder);
+			}
+		}
+	}
+
+	static JSONMarshalPlan get(ComplexType type) {
+		SoftReference<JSONMarshalPlan> reference = plans.get(type);
+		JSONMarshalPlan plan = reference == null ? null : reference.get();
+		if (plan == null || !plan.isValid()) {
+			plan = new JSONMarshalPlan(type, TypeUtils.getAllChildren(type));
+			plans.put(type, new SoftReference<JSONMarshalPlan>(plan));
+		}
+		return plan;
+	}
+
+	/**
+	 * A modifiable type might have changed since we built the plan
+	 */
+	private boolean isValid() {
+		if (!modifiable) {
+			return true;
+		}
+		Collection<Element<?>> current = TypeUtils.getAllChildren(type);
+		if (current.size() != children.size()) {
+			return false;
+		}
+		int index = 0;
+		for (Element<?> child : current) {
+			if (child != children.get(index++)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The encoder for a child of the type, null if the value has to go through the marshallable type
+	 */
+	JSONValueEncoder getEncoder(Element<?> element) {
+		return encoders.get(element);
+	}
+}
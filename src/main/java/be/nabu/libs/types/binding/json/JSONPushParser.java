@@ -0,0 +1,233 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.binding.api.Window;
+
+/**
+ * A parser that is fed chunks of utf-8 json as they arrive (e.g. from a selector or an asynchronous channel) instead of pulling them from a blocking source.
+ * Between chunks only the partial document and the state of the scan (depth, whether we are in a string) are kept, no thread is waiting on the data.
+ * Once a document is complete it is parsed by the binding in one go, the data is all there at that point so the parse never blocks.
+ * Consecutive documents (e.g. newline delimited json) are parsed one after the other. A root that is not an object or an array has no end of its own, it is only parsed at the end of the input.
+ * The maximum document size and depth of the binding are enforced while the data is coming in, so a client can not make us buffer more than that.
+ * If a document fails after others were completed by the same chunk, the completed ones are returned and the failure is reported by the next call.
+ * A parser is meant for a single source and is not thread safe.
+ */
+public class JSONPushParser {
+
+	private static final byte [] BOM = new byte [] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+	private JSONBinding binding;
+	private Window [] windows;
+	
+	private byte [] buffer = new byte[JSONTokenizer.READ_SIZE];
+	// the start of the current document, the amount of data we have and how far we have scanned it
+	private int start, limit, scanned;
+	// the depth of the current document, 0 if it has not started yet
+	private int depth;
+	private boolean string, escaped;
+	// a document that is not an object or an array, it ends with the input
+	private boolean open;
+	// we only skip a byte order mark at the start of the input
+	private boolean started;
+	// a failure that happened after we completed other documents in the same push, it is reported by the next call
+	private Exception failure;
+	
+	public JSONPushParser(JSONBinding binding, Window...windows) {
+		if (!JSONByteTokenizer.UTF8.equals(binding.getCharset())) {
+			throw new IllegalArgumentException("Only utf-8 can be parsed incrementally, not: " + binding.getCharset());
+		}
+		this.binding = binding;
+		this.windows = windows;
+	}
+	
+	/**
+	 * Feeds the remaining data in the buffer to the parser, this returns the documents that were completed by it (if any)
+	 * If the previous push failed after completing documents, the failure is thrown now. The data is kept and scanned by the next push, this can be an empty chunk.
+	 */
+	public List<ComplexContent> push(ByteBuffer chunk) throws IOException, ParseException {
+		int length = chunk.remaining();
+		ensure(length);
+		chunk.get(buffer, limit, length);
+		limit += length;
+		return scan();
+	}
+	
+	public List<ComplexContent> push(byte [] bytes, int offset, int length) throws IOException, ParseException {
+		ensure(length);
+		System.arraycopy(bytes, offset, buffer, limit, length);
+		limit += length;
+		return scan();
+	}
+	
+	/**
+	 * Signals the end of the input, this returns the last document if it had no end of its own (or null if there is none)
+	 */
+	public ComplexContent end() throws IOException, ParseException {
+		reportFailure();
+		if (scanned < limit) {
+			throw new IllegalStateException("There is data left after a failure, push an empty chunk to get the documents in it before ending the input");
+		}
+		else if (depth > 0) {
+			throw new ParseException("The input ended before the document was complete", limit - start);
+		}
+		ComplexContent content = open ? parse(limit) : null;
+		open = false;
+		return content;
+	}
+	
+	/**
+	 * The amount of bytes that are buffered for the current document
+	 */
+	public int getBuffered() {
+		return limit - start;
+	}
+	
+	private List<ComplexContent> scan() throws IOException, ParseException {
+		reportFailure();
+		List<ComplexContent> documents = new ArrayList<ComplexContent>();
+		try {
+			scan(documents);
+		}
+		catch (IOException e) {
+			if (documents.isEmpty()) {
+				throw e;
+			}
+			failure = e;
+		}
+		catch (ParseException e) {
+			if (documents.isEmpty()) {
+				throw e;
+			}
+			failure = e;
+		}
+		return documents;
+	}
+	
+	/**
+	 * Throws the failure that was kept for this call (if any)
+	 */
+	private void reportFailure() throws IOException, ParseException {
+		Exception failure = this.failure;
+		this.failure = null;
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		}
+		else if (failure instanceof ParseException) {
+			throw (ParseException) failure;
+		}
+	}
+	
+	/**
+	 * Scans the data we have, the completed documents are added to the list. If this throws, the documents that were added before are still valid.
+	 */
+	private void scan(List<ComplexContent> documents) throws IOException, ParseException {
+		if (!started) {
+			int matched = 0;
+			while (matched < Math.min(BOM.length, limit) && buffer[matched] == BOM[matched]) {
+				matched++;
+			}
+			if (matched == BOM.length) {
+				start = scanned = BOM.length;
+				started = true;
+			}
+			// if all we have is the start of a byte order mark, we wait for more
+			else if (matched < limit) {
+				started = true;
+			}
+		}
+		while (started && scanned < limit) {
+			byte current = buffer[scanned++];
+			if (open) {
+				continue;
+			}
+			else if (depth == 0) {
+				if (current == ' ' || current == '\t' || current == '\n' || current == '\r') {
+					start = scanned;
+				}
+				else if (current == '{' || current == '[') {
+					depth = 1;
+				}
+				else {
+					open = true;
+				}
+			}
+			else if (string) {
+				if (escaped) {
+					escaped = false;
+				}
+				else if (current == '\\') {
+					escaped = true;
+				}
+				else if (current == '"') {
+					string = false;
+				}
+			}
+			else if (current == '"') {
+				string = true;
+			}
+			else if (current == '{' || current == '[') {
+				if (++depth > binding.getMaxDepth() && binding.getMaxDepth() > 0) {
+					throw new ParseException("The document exceeds the maximum depth of " + binding.getMaxDepth(), scanned - start);
+				}
+			}
+			else if ((current == '}' || current == ']') && --depth == 0) {
+				documents.add(parse(scanned));
+			}
+		}
+		if (binding.getMaxDocumentSize() > 0 && limit - start > binding.getMaxDocumentSize()) {
+			throw new ParseException("The document exceeds the maximum size of " + binding.getMaxDocumentSize(), limit - start);
+		}
+	}
+	
+	/**
+	 * Parses the current document which ends at the given position
+	 */
+	private ComplexContent parse(int end) throws IOException, ParseException {
+		try {
+			return binding.unmarshal(new ByteArrayInputStream(buffer, start, end - start), windows);
+		}
+		finally {
+			start = end;
+		}
+	}
+	
+	/**
+	 * Makes room for the given amount of data, the documents we are done with are dropped first
+	 */
+	private void ensure(int length) {
+		if (start > 0) {
+			System.arraycopy(buffer, start, buffer, 0, limit - start);
+			limit -= start;
+			scanned -= start;
+			start = 0;
+		}
+		if (buffer.length - limit < length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, limit + length));
+		}
+	}
+}
@@ -0,0 +1,475 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import be.nabu.utils.io.IOUtils;
+import be.nabu.utils.io.api.CharBuffer;
+import be.nabu.utils.io.api.ReadableContainer;
+
+/**
+ * A pull parser that reads json one event at a time, using the same tokenizer and escape rules as the binding.
+ * Values are only materialized when they are requested, so skipping over the parts you don't need is cheap.
+ * Multiple root values (e.g. newline delimited json) can be read one after the other, the reader returns null once the input is exhausted.
+ */
+public class JSONReader implements Closeable {
+
+	public enum Event {
+		START_OBJECT,
+		END_OBJECT,
+		START_ARRAY,
+		END_ARRAY,
+		FIELD_NAME,
+		VALUE_STRING,
+		VALUE_NUMBER,
+		VALUE_BOOLEAN,
+		VALUE_NULL
+	}
+	
+	private static final int OBJECT = 1, ARRAY = 2;
+	
+	private JSONTokenizer tokenizer;
+	private Closeable closeable;
+	
+	// the containers we are in
+	private int [] stack = new int[32];
+	private int depth;
+	// whether the next entry in the current container is the first one (so no comma)
+	private boolean first;
+	// whether we just read a field name, the value is next
+	private boolean afterFieldName, quotedFieldName;
+	
+	private Event event;
+	private boolean booleanValue;
+	// the materialized string or field name, if requested
+	private String string;
+	private Number number;
+	// whether the current string was skipped rather than scanned
+	private boolean skipped;
+	
+	private boolean strict, allowNilUnicode, replaceNonBreakingSpaces = true;
+	// the maximum length of a string value, if not set the default maximum of the unmarshaller applies
+	private long maxStringLength;
+	
+	public JSONReader(InputStream input, Charset charset) {
+		this(JSONTokenizer.newTokenizer(IOUtils.wrap(input), charset), input);
+	}
+	
+	public JSONReader(ReadableContainer<CharBuffer> reader) {
+		this(new JSONCharTokenizer(reader), reader);
+	}
+	
+	JSONReader(JSONTokenizer tokenizer, Closeable closeable) {
+		this.tokenizer = tokenizer;
+		this.closeable = closeable;
+	}
+	
+	/**
+	 * Reads the next event, returns null if there are no more events
+	 */
+	public Event next() throws IOException, ParseException {
+		string = null;
+		number = null;
+		skipped = false;
+		if (afterFieldName) {
+			afterFieldName = false;
+			if (quotedFieldName && tokenizer.readNonWhitespace() != ':') {
+				throw new ParseException("Expecting a ':' after a field declaration at position " + tokenizer.getPosition(), (int) tokenizer.getPosition());
+			}
+			return event = readValue(tokenizer.readNonWhitespace());
+		}
+		int current = tokenizer.readNonWhitespace();
+		if (depth == 0) {
+			if (current < 0) {
+				return event = null;
+			}
+			return event = readValue(current);
+		}
+		else if (stack[depth - 1] == OBJECT) {
+			if (current == '}') {
+				depth--;
+				first = false;
+				return event = Event.END_OBJECT;
+			}
+			current = separate(current);
+			boolean delimiterFound;
+			if (current == '"') {
+				delimiterFound = tokenizer.scanString(JSONUnmarshaller.LOOK_AHEAD);
+			}
+			else if (strict || current < 0) {
+				throw new ParseException("Expecting a field at position " + tokenizer.getPosition(), (int) tokenizer.getPosition());
+			}
+			// unquoted field names are allowed in lenient mode, the scan includes the ':'
+			else {
+				tokenizer.unread();
+				delimiterFound = tokenizer.scanName(JSONUnmarshaller.LOOK_AHEAD);
+			}
+			if (!delimiterFound) {
+				throw new ParseException("Could not find delimiter of field name: " + tokenizer.getToken(), (int) tokenizer.getPosition());
+			}
+			// the ':' after a quoted name is only read on the next call so the name stays available in the tokenizer until then
+			afterFieldName = true;
+			quotedFieldName = current == '"';
+			return event = Event.FIELD_NAME;
+		}
+		else {
+			if (current == ']') {
+				depth--;
+				first = false;
+				return event = Event.END_ARRAY;
+			}
+			return event = readValue(separate(current));
+		}
+	}
+	
+	/**
+	 * Checks for the comma between two entries in a container, returns the first character of the entry
+	 */
+	private int separate(int current) throws IOException, ParseException {
+		if (first) {
+			first = false;
+			return current;
+		}
+		else if (current != ',') {
+			throw new ParseException("Expecting a ',' at position " + tokenizer.getPosition() + ", not: " + (current < 0 ? "end of input" : (char) current), (int) tokenizer.getPosition());
+		}
+		current = tokenizer.readNonWhitespace();
+		// a trailing comma
+		if (current == '}' || current == ']') {
+			throw new ParseException("Unexpected '" + (char) current + "' after ',' at position " + tokenizer.getPosition(), (int) tokenizer.getPosition());
+		}
+		return current;
+	}
+	
+	private Event readValue(int current) throws IOException, ParseException {
+		switch(current) {
+			case '{':
+				push(OBJECT);
+				return Event.START_OBJECT;
+			case '[':
+				push(ARRAY);
+				return Event.START_ARRAY;
+			case '"':
+				// the same maximum as the unmarshaller uses if the definition has no maximum length
+				if (!tokenizer.scanString(maxStringLength > 0 ? maxStringLength : JSONUnmarshaller.MAX_SIZE)) {
+					throw new ParseException("Could not find the closing quote of the string value" + (maxStringLength > 0 ? " within the maximum length of " + maxStringLength : ""), (int) tokenizer.getPosition());
+				}
+				return Event.VALUE_STRING;
+			case 't':
+			case 'T':
+				if (!tokenizer.matchIgnoreCase("rue")) {
+					throw new ParseException("The value " + (char) current + tokenizer.peek(3) + " is not valid", (int) tokenizer.getPosition());
+				}
+				booleanValue = true;
+				return Event.VALUE_BOOLEAN;
+			case 'f':
+			case 'F':
+				if (!tokenizer.matchIgnoreCase("alse")) {
+					throw new ParseException("The value " + (char) current + tokenizer.peek(4) + " is not valid", (int) tokenizer.getPosition());
+				}
+				booleanValue = false;
+				return Event.VALUE_BOOLEAN;
+			case 'n':
+			case 'N':
+				if (!tokenizer.matchIgnoreCase("ull")) {
+					throw new ParseException("The value " + (char) current + tokenizer.peek(3) + " is not valid", (int) tokenizer.getPosition());
+				}
+				return Event.VALUE_NULL;
+			default:
+				if (current < 0) {
+					throw new ParseException("Unexpected end of input, expecting a value", (int) tokenizer.getPosition());
+				}
+				else if (!JSONTokenizer.isNumeric(current)) {
+					throw new ParseException("Unexpected character '" + (char) current + "' at position " + tokenizer.getPosition(), (int) tokenizer.getPosition());
+				}
+				tokenizer.scanNumber();
+				if (!tokenizer.hasDigit()) {
+					throw new ParseException("Not a valid number: " + tokenizer.getToken(), (int) tokenizer.getPosition());
+				}
+				return Event.VALUE_NUMBER;
+		}
+	}
+	
+	private void push(int type) {
+		if (depth == stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		stack[depth++] = type;
+		first = true;
+	}
+	
+	/**
+	 * If the current event starts an object or an array, this skips everything up to and including the matching end event, which becomes the current event.
+	 * Nothing is materialized or kept in the window while skipping and the skipped part is not validated.
+	 */
+	public void skipChildren() throws IOException, ParseException {
+		if (event == Event.START_OBJECT || event == Event.START_ARRAY) {
+			skipStructure();
+			depth--;
+			first = false;
+		}
+	}
+	
+	/**
+	 * Skips the value that belongs to the current field name, the current event is the last one of the value.
+	 * A skipped string is not available.
+	 */
+	public void skipValue() throws IOException, ParseException {
+		if (event == Event.FIELD_NAME) {
+			int current = startValue();
+			string = null;
+			number = null;
+			if (current == '{' || current == '[') {
+				event = current == '{' ? Event.START_OBJECT : Event.START_ARRAY;
+				skipStructure();
+			}
+			else if (current == '"') {
+				if (!tokenizer.skipString()) {
+					throw new ParseException("Could not find the closing quote of the skipped string", (int) tokenizer.getPosition());
+				}
+				event = Event.VALUE_STRING;
+				skipped = true;
+			}
+			else {
+				event = readValue(current);
+			}
+		}
+		else {
+			skipChildren();
+		}
+	}
+	
+	/**
+	 * Skips the object or array that was started by the current event, the current event becomes the end of it
+	 */
+	private void skipStructure() throws IOException, ParseException {
+		if (!tokenizer.skipStructure()) {
+			throw new ParseException("Unexpected end of input while skipping", (int) tokenizer.getPosition());
+		}
+		event = event == Event.START_OBJECT ? Event.END_OBJECT : Event.END_ARRAY;
+	}
+	
+	/**
+	 * Consumes the ':' after the current field name and returns the first character of its value.
+	 * The caller is responsible for consuming the rest of the value, the next event is whatever comes after it.
+	 */
+	int startValue() throws IOException, ParseException {
+		if (event != Event.FIELD_NAME || !afterFieldName) {
+			throw new IllegalStateException("The current event is not a field name: " + event);
+		}
+		afterFieldName = false;
+		if (quotedFieldName && tokenizer.readNonWhitespace() != ':') {
+			throw new ParseException("Expecting a ':' after a field declaration at position " + tokenizer.getPosition(), (int) tokenizer.getPosition());
+		}
+		int current = tokenizer.readNonWhitespace();
+		if (current < 0) {
+			throw new ParseException("Unexpected end of input, expecting a value", (int) tokenizer.getPosition());
+		}
+		return current;
+	}
+	
+	/**
+	 * Returns the first character of the next entry in the current array, the caller is responsible for consuming the rest of it.
+	 * If the array is done, this returns -1 and the current event becomes the end of the array.
+	 */
+	int startElement() throws IOException, ParseException {
+		if (depth == 0 || stack[depth - 1] != ARRAY) {
+			throw new IllegalStateException("The reader is not in an array");
+		}
+		string = null;
+		number = null;
+		skipped = false;
+		int current = tokenizer.readNonWhitespace();
+		if (current == ']') {
+			depth--;
+			first = false;
+			event = Event.END_ARRAY;
+			return -1;
+		}
+		current = separate(current);
+		if (current < 0) {
+			throw new ParseException("Unexpected end of input, expecting a value", (int) tokenizer.getPosition());
+		}
+		return current;
+	}
+	
+	JSONTokenizer getTokenizer() {
+		return tokenizer;
+	}
+	
+	public Event getEvent() {
+		return event;
+	}
+	
+	/**
+	 * The amount of containers we are currently in
+	 */
+	public int getDepth() {
+		return depth;
+	}
+	
+	public String getFieldName() {
+		if (event != Event.FIELD_NAME) {
+			throw new IllegalStateException("The current event is not a field name: " + event);
+		}
+		if (string == null) {
+			string = tokenizer.getString(allowNilUnicode, false);
+		}
+		return string;
+	}
+	
+	/**
+	 * The string representation of the current value (if it is a value)
+	 */
+	public String getString() {
+		if (event == Event.VALUE_STRING) {
+			if (skipped) {
+				throw new IllegalStateException("The string was skipped");
+			}
+			else if (string == null) {
+				string = tokenizer.getString(allowNilUnicode, replaceNonBreakingSpaces);
+			}
+			return string;
+		}
+		else if (event == Event.VALUE_NUMBER) {
+			if (string == null) {
+				string = tokenizer.getToken();
+			}
+			return string;
+		}
+		else if (event == Event.VALUE_BOOLEAN) {
+			return Boolean.toString(booleanValue);
+		}
+		else if (event == Event.VALUE_NULL) {
+			return null;
+		}
+		throw new IllegalStateException("The current event is not a value: " + event);
+	}
+	
+	/**
+	 * The current number as a long or double (or if they don't fit: a BigInteger or BigDecimal)
+	 */
+	public Number getNumber() throws ParseException {
+		if (event != Event.VALUE_NUMBER) {
+			throw new IllegalStateException("The current event is not a number: " + event);
+		}
+		if (number == null) {
+			number = tokenizer.getNumber();
+			if (number == null) {
+				throw new ParseException("Not a valid number: " + tokenizer.getToken(), (int) tokenizer.getPosition());
+			}
+		}
+		return number;
+	}
+	
+	public long getLong() throws ParseException {
+		Number number = getNumber();
+		if (!(number instanceof Long)) {
+			throw new ParseException("Not a valid long: " + number, (int) tokenizer.getPosition());
+		}
+		return number.longValue();
+	}
+	
+	public int getInt() throws ParseException {
+		long value = getLong();
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw new ParseException("Not a valid integer: " + value, (int) tokenizer.getPosition());
+		}
+		return (int) value;
+	}
+	
+	public double getDouble() throws ParseException {
+		return getNumber().doubleValue();
+	}
+	
+	public BigDecimal getBigDecimal() throws ParseException {
+		Number number = getNumber();
+		if (number instanceof BigDecimal) {
+			return (BigDecimal) number;
+		}
+		else if (number instanceof Long) {
+			return BigDecimal.valueOf(number.longValue());
+		}
+		else if (number instanceof BigInteger) {
+			return new BigDecimal((BigInteger) number);
+		}
+		// parse the original text rather than the double to stay exact
+		return new BigDecimal(getString());
+	}
+	
+	public boolean getBoolean() {
+		if (event != Event.VALUE_BOOLEAN) {
+			throw new IllegalStateException("The current event is not a boolean: " + event);
+		}
+		return booleanValue;
+	}
+	
+	/**
+	 * The amount of units (bytes for utf-8, characters otherwise) consumed so far
+	 */
+	public long getPosition() {
+		return tokenizer.getPosition();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (closeable != null) {
+			closeable.close();
+		}
+	}
+
+	public boolean isStrict() {
+		return strict;
+	}
+
+	public void setStrict(boolean strict) {
+		this.strict = strict;
+	}
+
+	public boolean isAllowNilUnicode() {
+		return allowNilUnicode;
+	}
+
+	public void setAllowNilUnicode(boolean allowNilUnicode) {
+		this.allowNilUnicode = allowNilUnicode;
+	}
+
+	public boolean isReplaceNonBreakingSpaces() {
+		return replaceNonBreakingSpaces;
+	}
+
+	public void setReplaceNonBreakingSpaces(boolean replaceNonBreakingSpaces) {
+		this.replaceNonBreakingSpaces = replaceNonBreakingSpaces;
+	}
+
+	public long getMaxStringLength() {
+		return maxStringLength;
+	}
+
+	public void setMaxStringLength(long maxStringLength) {
+		this.maxStringLength = maxStringLength;
+	}
+}
@@ -0,0 +1,164 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import be.nabu.libs.types.api.ComplexType;
+
+/**
+ * Remembers the types that were generated for fully dynamic documents, keyed by the structural fingerprint of the document (the field names, the nesting and the kinds of values).
+ * When a known shape comes in again, it is parsed into the existing type instead of generating a new one.
+ * The registered types are shared by all the documents of that shape and should not be modified by whoever receives the content.
+ * The registry is bounded, when it is full the least recently used shape is evicted.
+ */
+public class JSONShapeRegistry {
+
+	private static JSONShapeRegistry instance = new JSONShapeRegistry();
+	
+	private Map<Long, ComplexType> shapes = new LinkedHashMap<Long, ComplexType>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, ComplexType> eldest) {
+			if (size() > maxSize) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	};
+	private LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder(), skipped = new LongAdder(), collisions = new LongAdder();
+	private volatile int maxSize = 1024;
+	// larger documents are not fingerprinted because they have to be kept in memory until the fingerprint is known
+	private volatile long maxDocumentSize = 1024*1024;
+	
+	public static JSONShapeRegistry getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * Returns the type registered for the fingerprint or null if the shape is unknown
+	 */
+	ComplexType get(long fingerprint) {
+		ComplexType type;
+		synchronized(shapes) {
+			type = shapes.get(fingerprint);
+		}
+		if (type == null) {
+			misses.increment();
+		}
+		else {
+			hits.increment();
+		}
+		return type;
+	}
+	
+	void put(long fingerprint, ComplexType type) {
+		synchronized(shapes) {
+			shapes.put(fingerprint, type);
+		}
+	}
+	
+	void remove(long fingerprint) {
+		synchronized(shapes) {
+			shapes.remove(fingerprint);
+		}
+	}
+	
+	/**
+	 * A document did not fit the type registered for its fingerprint, the type is left untouched but no longer handed out
+	 */
+	void collide(long fingerprint) {
+		collisions.increment();
+		remove(fingerprint);
+	}
+	
+	/**
+	 * Documents that could not be fingerprinted, e.g. because they are too large
+	 */
+	void skip() {
+		skipped.increment();
+	}
+	
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	public long getSkipped() {
+		return skipped.sum();
+	}
+	
+	public long getCollisions() {
+		return collisions.sum();
+	}
+	
+	/**
+	 * The amount of distinct shapes currently known
+	 */
+	public int getSize() {
+		synchronized(shapes) {
+			return shapes.size();
+		}
+	}
+	
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		synchronized(shapes) {
+			Iterator<Long> iterator = shapes.keySet().iterator();
+			while (shapes.size() > maxSize && iterator.hasNext()) {
+				iterator.next();
+				iterator.remove();
+				evictions.increment();
+			}
+		}
+	}
+
+	public long getMaxDocumentSize() {
+		return maxDocumentSize;
+	}
+
+	public void setMaxDocumentSize(long maxDocumentSize) {
+		this.maxDocumentSize = maxDocumentSize;
+	}
+
+	public void clear() {
+		synchronized(shapes) {
+			shapes.clear();
+		}
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+		skipped.reset();
+		collisions.reset();
+	}
+}
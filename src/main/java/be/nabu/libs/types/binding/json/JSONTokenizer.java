@@ -0,0 +1,456 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+
+import be.nabu.utils.io.IOUtils;
+import be.nabu.utils.io.api.ByteBuffer;
+import be.nabu.utils.io.api.ReadableContainer;
+
+/**
+ * Scans the json by index over a reusable window that is filled in large blocks from the source.
+ * The last scanned token (string, name, number) is contiguous in the window from tokenStart to tokenEnd and stays valid until the next read.
+ * All the structural characters in json are ascii so the parser itself does not care whether the window contains chars or utf-8 bytes.
+ */
+abstract class JSONTokenizer {
+
+	static final int WINDOW_SIZE = 8192;
+	static final int READ_SIZE = 4096;
+	// a reused tokenizer falls back to the default window if a previous document made it grow beyond this
+	static final int MAX_REUSED_WINDOW_SIZE = WINDOW_SIZE * 16;
+
+	// all the powers of ten that can be represented exactly as a double
+	private static final double [] POWERS = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// the current position and the amount of valid data in the window
+	protected int position, limit;
+	// the amount of units that have been shifted out of the window
+	protected long offset;
+	// the start of the token we are scanning, this has to be preserved when the window is refilled
+	protected int mark = -1;
+	// while retaining, nothing from this position onwards is discarded so we can rewind to it
+	protected int retained = -1;
+	protected boolean eof;
+
+	int tokenStart, tokenEnd;
+	// whether the last scanned string contains backslashes
+	boolean tokenEscaped;
+
+	/**
+	 * utf-8 can be tokenized at the byte level, only the values we actually materialize have to be decoded
+	 */
+	static JSONTokenizer newTokenizer(ReadableContainer<ByteBuffer> readable, Charset charset) {
+		if (JSONByteTokenizer.UTF8.equals(charset)) {
+			return new JSONByteTokenizer(readable);
+		}
+		else {
+			return new JSONCharTokenizer(IOUtils.wrapReadable(readable, charset));
+		}
+	}
+
+	/**
+	 * Clears the state of a previous document so the buffers can be reused for the next one
+	 */
+	protected void reset() {
+		position = 0;
+		limit = 0;
+		offset = 0;
+		mark = -1;
+		retained = -1;
+		eof = false;
+		tokenStart = 0;
+		tokenEnd = 0;
+		tokenEscaped = false;
+	}
+
+	/**
+	 * Makes more data available in the window, returns false if there is no more data
+	 */
+	protected abstract boolean fill() throws IOException;
+
+	/**
+	 * Reads the next unit (a char or a byte depending on the implementation)
+	 */
+	abstract int read() throws IOException;
+
+	abstract int readNonWhitespace() throws IOException;
+
+	/**
+	 * Scans a string value, the opening quote must already be consumed. The closing quote is consumed but is not part of the token.
+	 * Returns false if the closing quote could not be found within the given length, for all the scans this is the maximum amount of units in the token.
+	 */
+	abstract boolean scanString(long maxLength) throws IOException;
+
+	/**
+	 * Scans an unquoted field name up to and including the ':', the trailing whitespace is not part of the token.
+	 * Returns false if no ':' could be found within the given length.
+	 */
+	abstract boolean scanName(int maxLength) throws IOException;
+
+	/**
+	 * Scans a number, the first character must already be consumed and is part of the token.
+	 */
+	abstract void scanNumber() throws IOException;
+
+	/**
+	 * Scans until the given closing character balances out the opening one that was already consumed, strings are skipped so any open or close characters inside them are not counted.
+	 * Both the opening and the closing character are part of the token, so the token is the exact json of the object or array.
+	 * Returns false if it could not be balanced within the given length.
+	 */
+	abstract boolean scanStructure(char open, char close, long maxLength) throws IOException;
+
+	/**
+	 * Skips until the object or array that was opened (the opening character must already be consumed) is closed again, strings are taken into account.
+	 * Unlike the scans, nothing has to be kept in the window while skipping. Objects and arrays are counted together, mismatched brackets are not detected.
+	 * Returns false if the data ends first.
+	 */
+	abstract boolean skipStructure() throws IOException;
+
+	/**
+	 * Skips a string without keeping it in the window, the opening quote must already be consumed. Returns false if the data ends first.
+	 */
+	abstract boolean skipString() throws IOException;
+
+	/**
+	 * Writes the last scanned token as utf-8 to the given output, returns the amount of bytes written
+	 */
+	abstract long writeToken(OutputStream output) throws IOException;
+
+	/**
+	 * Consumes the given characters if they are next (case insensitive), returns false if they are not
+	 */
+	abstract boolean matchIgnoreCase(String expected) throws IOException;
+
+	/**
+	 * Decodes the last scanned string token in a single pass: the escapes (including unicode escapes), the nil policy and the non breaking spaces.
+	 * If there is nothing to decode, the token is materialized as is.
+	 */
+	abstract String getString(boolean allowNil, boolean replaceNonBreakingSpaces);
+
+	/**
+	 * Checks whether the last scanned token is exactly the given name, without materializing it
+	 */
+	abstract boolean matches(JSONUnmarshalPlan.FieldName name);
+
+	/**
+	 * Calculates the hash of the last scanned token, this must be consistent with {@link #hash(int, int)}
+	 */
+	abstract int hash();
+
+	/**
+	 * The unit at the given position in the window, for the ascii range this is the same for chars and bytes
+	 */
+	abstract int unitAt(int index);
+
+	/**
+	 * Materializes the given part of the window
+	 */
+	abstract String toString(int start, int end);
+
+	/**
+	 * Calculates how much of the window can be discarded when refilling, the implementation is responsible for the actual shifting
+	 */
+	protected int discardable() {
+		// we always keep the last read character around so it can be unread
+		int keep = Math.min(mark >= 0 ? mark : position, position - 1);
+		if (retained >= 0) {
+			keep = Math.min(keep, retained);
+		}
+		return Math.max(0, keep);
+	}
+
+	/**
+	 * Updates the positions after the implementation shifted the window
+	 */
+	protected void shifted(int amount) {
+		limit -= amount;
+		position -= amount;
+		if (mark >= 0) {
+			mark -= amount;
+		}
+		if (retained >= 0) {
+			retained -= amount;
+		}
+		offset += amount;
+	}
+	
+	/**
+	 * Keeps everything from the current position onwards in the window until we rewind or release
+	 */
+	void retain() {
+		retained = position;
+	}
+	
+	/**
+	 * Goes back to the retained position
+	 */
+	void rewind() {
+		position = retained;
+		retained = -1;
+	}
+	
+	/**
+	 * Stops retaining without going back
+	 */
+	void release() {
+		retained = -1;
+	}
+
+	/**
+	 * When we could not finish a token, we still expose what we have for reporting purposes
+	 */
+	protected boolean partial() {
+		tokenStart = mark;
+		tokenEnd = Math.min(position, limit);
+		return false;
+	}
+
+	/**
+	 * Makes sure that at least the given amount of units are available from the current position, returns the actual amount available
+	 */
+	int ensure(int amount) throws IOException {
+		boolean marked = mark < 0;
+		if (marked) {
+			mark = position;
+		}
+		try {
+			while (limit - position < amount && fill());
+		}
+		finally {
+			if (marked) {
+				mark = -1;
+			}
+		}
+		return Math.min(amount, limit - position);
+	}
+
+	void unread() {
+		position--;
+	}
+
+	int peekNonWhitespace() throws IOException {
+		int current = readNonWhitespace();
+		if (current >= 0) {
+			position--;
+		}
+		return current;
+	}
+
+	/**
+	 * Returns (at most) the next amount of units without consuming them, this is mostly for reporting
+	 */
+	String peek(int amount) throws IOException {
+		return toString(position, position + ensure(amount));
+	}
+
+	String getToken() {
+		return toString(tokenStart, tokenEnd);
+	}
+
+	/**
+	 * Whether the last scanned token contains at least one digit
+	 */
+	boolean hasDigit() {
+		for (int i = tokenStart; i < tokenEnd; i++) {
+			int unit = unitAt(i);
+			if (unit >= '0' && unit <= '9') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A view on the last scanned token, only the ascii range is represented correctly so this is meant for values like numbers, dates,...
+	 * It is only valid until the next read.
+	 */
+	CharSequence getSequence() {
+		return sequence;
+	}
+
+	private CharSequence sequence = new CharSequence() {
+		@Override
+		public int length() {
+			return tokenEnd - tokenStart;
+		}
+		@Override
+		public char charAt(int index) {
+			return (char) unitAt(tokenStart + index);
+		}
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return JSONTokenizer.this.toString(tokenStart + start, tokenStart + end);
+		}
+		@Override
+		public String toString() {
+			return getToken();
+		}
+	};
+
+	/**
+	 * Parses the last scanned number token without materializing it, see {@link #parseNumber(CharSequence)}
+	 */
+	Number getNumber() {
+		return parseNumber(sequence);
+	}
+
+	/**
+	 * Integers become a long (or a BigInteger if they don't fit) and decimals a double (or a BigDecimal if they don't fit).
+	 * Returns null if it is not a valid number.
+	 */
+	static Number parseNumber(CharSequence value) {
+		int i = 0, end = value.length();
+		boolean negative = false;
+		if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+			negative = value.charAt(i++) == '-';
+		}
+		// we accumulate negatively because the negative range is one bigger
+		long mantissa = 0;
+		boolean overflow = false, decimal = false;
+		int digits = 0, exponent = 0;
+		for (; i < end; i++) {
+			int unit = value.charAt(i);
+			if (unit >= '0' && unit <= '9') {
+				digits++;
+				if (overflow || mantissa < (Long.MIN_VALUE + (unit - '0')) / 10) {
+					overflow = true;
+				}
+				else {
+					mantissa = mantissa * 10 - (unit - '0');
+					// digits after the dot lower the exponent
+					if (decimal) {
+						exponent--;
+					}
+				}
+			}
+			else if (unit == '.' && !decimal) {
+				decimal = true;
+			}
+			else {
+				break;
+			}
+		}
+		if (digits == 0) {
+			return null;
+		}
+		if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+			decimal = true;
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+				negativeExponent = value.charAt(i++) == '-';
+			}
+			int explicit = 0, exponentDigits = 0;
+			for (; i < end && value.charAt(i) >= '0' && value.charAt(i) <= '9'; i++) {
+				exponentDigits++;
+				// anything this large takes the slow route anyway
+				if (explicit < 100000) {
+					explicit = explicit * 10 + (value.charAt(i) - '0');
+				}
+			}
+			if (exponentDigits == 0) {
+				return null;
+			}
+			exponent += negativeExponent ? -explicit : explicit;
+		}
+		if (i < end) {
+			return null;
+		}
+		if (!decimal) {
+			if (!overflow && (negative || mantissa != Long.MIN_VALUE)) {
+				return negative ? mantissa : -mantissa;
+			}
+			return new BigInteger(value.toString());
+		}
+		// if both the mantissa and the power of ten are exact doubles, a single operation gives the correctly rounded result
+		if (!overflow && mantissa > -(1L << 53) && exponent >= -22 && exponent <= 22) {
+			double result = -mantissa;
+			result = exponent < 0 ? result / POWERS[-exponent] : result * POWERS[exponent];
+			return negative ? -result : result;
+		}
+		String token = value.toString();
+		double result = Double.parseDouble(token);
+		return Double.isInfinite(result) ? new BigDecimal(token) : result;
+	}
+
+	/**
+	 * The amount of units consumed so far
+	 */
+	long getPosition() {
+		return offset + position;
+	}
+
+	/**
+	 * Only the ascii units take part in the hash, that way it is the same whether we are hashing chars or utf-8 bytes
+	 */
+	static int hash(int hash, int unit) {
+		return unit < 0x80 ? 31 * hash + unit : hash;
+	}
+
+	/**
+	 * The character represented by a single character escape, unknown escapes simply result in the escaped character
+	 */
+	static char unescape(int escaped) {
+		switch(escaped) {
+			case 'n': return '\n';
+			case 'r': return '\r';
+			case 'b': return '\b';
+			case 'f': return '\f';
+			case 't': return '\t';
+			default: return (char) escaped;
+		}
+	}
+
+	/**
+	 * Calculates the value of the four hexadecimal digits of a unicode escape
+	 */
+	static int unicode(int first, int second, int third, int fourth) {
+		int value = (hex(first) << 12) | (hex(second) << 8) | (hex(third) << 4) | hex(fourth);
+		if (value < 0) {
+			throw new NumberFormatException("Invalid unicode escape: \\u" + (char) first + (char) second + (char) third + (char) fourth);
+		}
+		return value;
+	}
+
+	private static int hex(int unit) {
+		if (unit >= '0' && unit <= '9') {
+			return unit - '0';
+		}
+		else if (unit >= 'a' && unit <= 'f') {
+			return unit - 'a' + 10;
+		}
+		else if (unit >= 'A' && unit <= 'F') {
+			return unit - 'A' + 10;
+		}
+		// this makes the combined value negative
+		return -1;
+	}
+
+	static boolean isWhitespace(int character) {
+		return character == ' ' || character == '\t' || character == '\n' || character == '\r';
+	}
+
+	static boolean isNumeric(int character) {
+		return (character >= '0' && character <= '9') || character == '.' || character == 'e' || character == 'E' || character == '+' || character == '-';
+	}
+}
@@ -0,0 +1,346 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import be.nabu.libs.property.ValueUtils;
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.BaseTypeInstance;
+import be.nabu.libs.types.TypeUtils;
+import be.nabu.libs.types.api.CollectionHandlerProvider;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.KeyValuePair;
+import be.nabu.libs.types.api.ModifiableComplexType;
+import be.nabu.libs.types.api.SimpleType;
+import be.nabu.libs.types.api.TypeInstance;
+import be.nabu.libs.types.java.BeanResolver;
+import be.nabu.libs.types.java.BeanType;
+import be.nabu.libs.types.properties.AliasProperty;
+import be.nabu.libs.types.properties.CollectionHandlerProviderProperty;
+import be.nabu.libs.types.properties.DynamicNameProperty;
+import be.nabu.libs.types.properties.MaxLengthProperty;
+import be.nabu.libs.types.properties.RawProperty;
+
+/**
+ * Everything the unmarshaller needs to know about a complex type, calculated once instead of scanning all the children for every field.
+ * Plans are cached with weak keys and can be shared across threads, they are never modified once they are in the cache.
+ * Modifiable types can change after the plan was built, so for those we keep a snapshot of the children to validate against.
+ */
+class JSONUnmarshalPlan {
+
+	// the plan references the type (through the elements) so we can't reference it strongly from the value or the key would never be collected
+	private static Map<ComplexType, SoftReference<JSONUnmarshalPlan>> plans = Collections.synchronizedMap(new WeakHashMap<ComplexType, SoftReference<JSONUnmarshalPlan>>());
+
+	private static TypeInstance keyValueInstance;
+
+	private ComplexType type;
+	private List<Element<?>> children;
+	private boolean modifiable;
+	// whether this plan is private to a single unmarshaller (and can be extended) or shared through the cache
+	private boolean shared;
+
+	// lookup by actual name or alias, lookup by name only and the same for attributes where the "@" is stripped
+	private Map<String, Element<?>> raw = new HashMap<String, Element<?>>(), names = new HashMap<String, Element<?>>(), rawAttributes = new HashMap<String, Element<?>>(), attributes = new HashMap<String, Element<?>>();
+	private Map<Element<?>, ElementPlan> elements = new IdentityHashMap<Element<?>, ElementPlan>();
+
+	// the raw names again but in a form that can be matched against the window of the tokenizer without creating strings
+	private FieldName [] table = new FieldName[16];
+	private int tableSize;
+	// the raw names that resolve to the child at that position, in the order of the children
+	private List<FieldName[]> ordered = new ArrayList<FieldName[]>();
+
+	// the list that accepts complex values with an unknown name, the name itself is stored in the dynamic key
+	private Element<?> dynamicNameElement;
+	// the list that accepts simple values with an unknown name, it has exactly one other field to store the value in
+	private Element<?> dynamicValueElement;
+	private String dynamicValueName;
+	// the catch all list of key value pairs
+	private Element<?> keyValueElement;
+
+	private JSONUnmarshalPlan(ComplexType type, Collection<Element<?>> children) {
+		this.type = type;
+		this.children = new ArrayList<Element<?>>();
+		this.modifiable = type instanceof ModifiableComplexType;
+		for (Element<?> child : children) {
+			add(child);
+		}
+	}
+
+	static JSONUnmarshalPlan get(ComplexType type) {
+		SoftReference<JSONUnmarshalPlan> reference = plans.get(type);
+		JSONUnmarshalPlan plan = reference == null ? null : reference.get();
+		if (plan == null || !plan.isValid()) {
+			plan = new JSONUnmarshalPlan(type, TypeUtils.getAllChildren(type));
+			plan.shared = true;
+			plans.put(type, new SoftReference<JSONUnmarshalPlan>(plan));
+		}
+		return plan;
+	}
+
+	/**
+	 * A modifiable type might have changed since we built the plan
+	 */
+	private boolean isValid() {
+		if (!modifiable) {
+			return true;
+		}
+		Collection<Element<?>> current = TypeUtils.getAllChildren(type);
+		if (current.size() != children.size()) {
+			return false;
+		}
+		int index = 0;
+		for (Element<?> child : current) {
+			if (child != children.get(index++)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a plan that includes an element that was dynamically added to the type, shared plans are copied rather than modified
+	 */
+	JSONUnmarshalPlan extend(Element<?> element) {
+		JSONUnmarshalPlan plan = shared ? new JSONUnmarshalPlan(type, children) : this;
+		plan.add(element);
+		return plan;
+	}
+
+	private void add(Element<?> child) {
+		children.add(child);
+		String name = child.getName();
+		Value<String> alias = child.getProperty(AliasProperty.getInstance());
+		// the first child to match wins, with the name being checked before the alias
+		if (!names.containsKey(name)) {
+			names.put(name, child);
+		}
+		List<FieldName> matchable = new ArrayList<FieldName>();
+		if (!raw.containsKey(name)) {
+			raw.put(name, child);
+			matchable.add(new FieldName(name, child, children.size() - 1));
+		}
+		if (alias != null && alias.getValue() != null && !raw.containsKey(alias.getValue())) {
+			raw.put(alias.getValue(), child);
+			matchable.add(new FieldName(alias.getValue(), child, children.size() - 1));
+		}
+		for (FieldName fieldName : matchable) {
+			index(fieldName);
+		}
+		ordered.add(matchable.toArray(new FieldName[matchable.size()]));
+		if (name.startsWith("@")) {
+			if (!attributes.containsKey(name.substring(1))) {
+				attributes.put(name.substring(1), child);
+			}
+			if (!rawAttributes.containsKey(name.substring(1))) {
+				rawAttributes.put(name.substring(1), child);
+			}
+		}
+		if (alias != null && alias.getValue() != null && alias.getValue().startsWith("@") && !rawAttributes.containsKey(alias.getValue().substring(1))) {
+			rawAttributes.put(alias.getValue().substring(1), child);
+		}
+		ElementPlan plan = new ElementPlan(child);
+		elements.put(child, plan);
+		Value<String> dynamicName = child.getProperty(DynamicNameProperty.getInstance());
+		if (dynamicName != null && dynamicName.getValue() != null && plan.complex && plan.list) {
+			if (dynamicNameElement == null) {
+				dynamicNameElement = child;
+			}
+			List<Element<?>> dynamicChildren = new ArrayList<Element<?>>(TypeUtils.getAllChildren((ComplexType) child.getType()));
+			// if we have exactly 2 children (the key field and another field), we assume the other field is our match
+			if (dynamicChildren.size() == 2) {
+				dynamicValueElement = child;
+				dynamicValueName = dynamicChildren.get(0).getName().equals(dynamicName.getValue()) ? dynamicChildren.get(1).getName() : dynamicChildren.get(0).getName();
+			}
+		}
+		// apart from it being a list, other child properties don't matter so strip them for subset comparison
+		if (keyValueElement == null && plan.list && TypeUtils.isSubset(new BaseTypeInstance(child.getType()), getKeyValueInstance())) {
+			keyValueElement = child;
+		}
+	}
+
+	private void index(FieldName fieldName) {
+		// keep the table at most half full
+		if ((tableSize + 1) * 2 > table.length) {
+			FieldName [] old = table;
+			table = new FieldName[old.length * 2];
+			for (FieldName existing : old) {
+				if (existing != null) {
+					insert(existing);
+				}
+			}
+		}
+		insert(fieldName);
+		tableSize++;
+	}
+
+	private void insert(FieldName fieldName) {
+		int slot = fieldName.hash & (table.length - 1);
+		while (table[slot] != null) {
+			slot = (slot + 1) & (table.length - 1);
+		}
+		table[slot] = fieldName;
+	}
+
+	/**
+	 * Matches the unescaped name that was last scanned by the tokenizer against the raw names (and aliases) without materializing it.
+	 * Producers tend to write fields in the order they are defined so we first check the child at the predicted position before we do a lookup.
+	 * This is equivalent to the raw lookup in {@link #resolve(String, String, boolean)}, if nothing matches the caller has to fall back to that.
+	 */
+	FieldName match(JSONTokenizer tokenizer, int predicted) {
+		if (predicted >= 0 && predicted < ordered.size()) {
+			for (FieldName fieldName : ordered.get(predicted)) {
+				if (tokenizer.matches(fieldName)) {
+					return fieldName;
+				}
+			}
+		}
+		int slot = tokenizer.hash() & (table.length - 1);
+		while (table[slot] != null) {
+			if (tokenizer.matches(table[slot])) {
+				return table[slot];
+			}
+			slot = (slot + 1) & (table.length - 1);
+		}
+		return null;
+	}
+
+	private static TypeInstance getKeyValueInstance() {
+		if (keyValueInstance == null) {
+			keyValueInstance = new BaseTypeInstance(BeanResolver.getInstance().resolve(KeyValuePair.class));
+		}
+		return keyValueInstance;
+	}
+
+	/**
+	 * Resolves a field, first by raw name (or alias), then by processed name and if allowed by their attribute variants
+	 */
+	Element<?> resolve(String rawFieldName, String fieldName, boolean allowAttributeFallback) {
+		Element<?> element = rawFieldName == null ? null : raw.get(rawFieldName);
+		if (element == null) {
+			element = names.get(fieldName);
+		}
+		// some types can resolve more than they list
+		if (element == null && fieldName != null) {
+			element = type.get(fieldName);
+		}
+		// check if it exists as an attribute
+		// this ensures compatibility with XML structures where fields may be expressed as attributes
+		if (element == null && allowAttributeFallback) {
+			if (rawFieldName != null) {
+				element = rawAttributes.get(rawFieldName);
+			}
+			if (element == null) {
+				element = attributes.get(fieldName);
+			}
+		}
+		return element;
+	}
+
+	ElementPlan getElement(Element<?> element) {
+		ElementPlan plan = elements.get(element);
+		// elements that are not part of the type, e.g. dynamically generated ones that were not added
+		return plan == null ? new ElementPlan(element) : plan;
+	}
+
+	ComplexType getType() {
+		return type;
+	}
+
+	Element<?> getDynamicNameElement() {
+		return dynamicNameElement;
+	}
+
+	Element<?> getDynamicValueElement() {
+		return dynamicValueElement;
+	}
+
+	String getDynamicValueName() {
+		return dynamicValueName;
+	}
+
+	Element<?> getKeyValueElement() {
+		return keyValueElement;
+	}
+
+	/**
+	 * A raw name (or alias) in both the units that a tokenizer can work with
+	 */
+	static class FieldName {
+		final String name;
+		final char [] chars;
+		final byte [] bytes;
+		final int hash;
+		final Element<?> element;
+		// the position of the element in the children
+		final int index;
+
+		FieldName(String name, Element<?> element, int index) {
+			this.name = name;
+			this.chars = name.toCharArray();
+			this.bytes = name.getBytes(JSONByteTokenizer.UTF8);
+			this.element = element;
+			this.index = index;
+			int hash = 0;
+			for (char character : chars) {
+				hash = JSONTokenizer.hash(hash, character);
+			}
+			this.hash = hash;
+		}
+	}
+
+	/**
+	 * The properties of a single element that the unmarshaller consults for every value
+	 */
+	static class ElementPlan {
+		final Element<?> element;
+		final boolean list, complex, string, object;
+		// raw values are captured exactly as they appear in the json
+		final boolean raw;
+		final Integer maxLength;
+		@SuppressWarnings("rawtypes")
+		final CollectionHandlerProvider collectionHandler;
+		final String dynamicName;
+		// can decode the value without going through a string
+		final JSONValueDecoder decoder;
+
+		ElementPlan(Element<?> element) {
+			this.element = element;
+			this.list = element.getType().isList(element.getProperties());
+			this.complex = element.getType() instanceof ComplexType;
+			this.string = element.getType() instanceof SimpleType && String.class.equals(((SimpleType<?>) element.getType()).getInstanceClass());
+			this.object = element.getType() instanceof BeanType && ((BeanType<?>) element.getType()).getBeanClass().equals(Object.class);
+			Value<Boolean> raw = element.getProperty(RawProperty.getInstance());
+			this.raw = string && raw != null && raw.getValue() != null && raw.getValue();
+			this.maxLength = ValueUtils.getValue(MaxLengthProperty.getInstance(), element.getProperties());
+			this.collectionHandler = ValueUtils.getValue(CollectionHandlerProviderProperty.getInstance(), element.getProperties());
+			Value<String> dynamicName = element.getProperty(DynamicNameProperty.getInstance());
+			this.dynamicName = dynamicName == null ? null : dynamicName.getValue();
+			this.decoder = JSONValueDecoderFactory.getInstance().getDecoder(element);
+		}
+	}
+}
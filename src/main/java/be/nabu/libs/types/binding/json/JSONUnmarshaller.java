@@ -17,20 +17,23 @@
 
 package be.nabu.libs.types.binding.json;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.text.ParseException;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
-import be.nabu.libs.property.ValueUtils;
-import be.nabu.libs.property.api.Value;
 import be.nabu.libs.resources.URIUtils;
 import be.nabu.libs.types.BaseTypeInstance;
 import be.nabu.libs.types.CollectionHandlerFactory;
@@ -43,27 +46,19 @@ import be.nabu.libs.types.api.ComplexContent;
 import be.nabu.libs.types.api.ComplexType;
 import be.nabu.libs.types.api.DefinedSimpleType;
 import be.nabu.libs.types.api.Element;
-import be.nabu.libs.types.api.KeyValuePair;
 import be.nabu.libs.types.api.ModifiableComplexType;
 import be.nabu.libs.types.api.ModifiableComplexTypeGenerator;
-import be.nabu.libs.types.api.SimpleType;
-import be.nabu.libs.types.api.TypeInstance;
 import be.nabu.libs.types.api.Unmarshallable;
 import be.nabu.libs.types.base.ComplexElementImpl;
 import be.nabu.libs.types.base.SimpleElementImpl;
 import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
 import be.nabu.libs.types.binding.BindingUtils;
-import be.nabu.libs.types.java.BeanResolver;
 import be.nabu.libs.types.java.BeanType;
 import be.nabu.libs.types.properties.AliasProperty;
-import be.nabu.libs.types.properties.CollectionHandlerProviderProperty;
-import be.nabu.libs.types.properties.DynamicNameProperty;
-import be.nabu.libs.types.properties.MaxLengthProperty;
 import be.nabu.libs.types.properties.MaxOccursProperty;
 import be.nabu.utils.io.IOUtils;
 import be.nabu.utils.io.api.CharBuffer;
-import be.nabu.utils.io.api.CountingReadableContainer;
-import be.nabu.utils.io.api.DelimitedCharContainer;
 import be.nabu.utils.io.api.ReadableContainer;
 
 import java.util.ArrayList;
@@ -73,16 +68,19 @@ import java.util.ArrayList;
  */
 public class JSONUnmarshaller {
 	
-	private char [] single = new char[1];
-	
-	private static final int LOOK_AHEAD = 4096;
-	private static final int MAX_SIZE = 1024*1024*10;
+	// the maximum length of a field name and of a string value if no other maximum is configured
+	static final int LOOK_AHEAD = 4096;
+	static final int MAX_SIZE = 1024*1024*10;
+	private static final int NOT_PROJECTED = 0, PARTIALLY_PROJECTED = 1, FULLY_PROJECTED = 2;
+	// the kinds of values as they take part in the fingerprint of a document
+	// an ignored empty string generates nothing while an explicit null can generate a string element, so they are different kinds
+	private static final long STRING = 1, BOOLEAN = 2, NULL = 3, EMPTY = 4;
+	// the amount of json we gather before handing it off to be parsed in parallel
+	private static final int PARALLEL_CHUNK_SIZE = 1024*256;
 	
 	// do best effort if we can
 	private boolean lenient = true;
 	
-	private CharBuffer buffer = IOUtils.newCharBuffer(LOOK_AHEAD, true);
-	
 	// @2024-06-29 I updated setEmptyArrays to true so the parser (by default) better reflects the actual data coming in
 	private boolean allowDynamicElements, addDynamicElementDefinitions, ignoreUnknownElements, camelCaseDashes, camelCaseUnderscores, normalize = true, setEmptyArrays = true;
 	private boolean allowAttributeFallback = true;
@@ -90,39 +88,284 @@ public class JSONUnmarshaller {
 	private boolean ignoreEmptyStrings;
 	// if we add dynamic simple types, only use strings, this is useful for "inconsistent" typing where the first iteration might be a number but the second a string with non-numeric data
 	private boolean addDynamicStringsOnly;
+	// dynamic objects that are not added to the parent definition (e.g. because they are in a java.lang.Object) share one generated type per parent type and field name
+	// the shared type is widened as new fields come in, inconsistent typing between siblings follows the same rules as for added dynamic definitions
+	private boolean shareDynamicTypes;
 	
 	private ModifiableComplexTypeGenerator complexTypeGenerator;
+	// the types that were generated for earlier documents with the same shape
+	private JSONShapeRegistry shapeRegistry;
+	// the amount of dynamic definitions that were added during this parse
+	private int defined;
+	// set while we parse into a registered shape, those types are shared and must never be modified
+	private boolean frozen;
+	// set if the document needed a definition while we were frozen, the values that needed it are skipped and the result can not be used
+	private boolean mismatched;
+	// the generated types that are shared during this parse
+	private Map<ComplexType, Map<String, ModifiableComplexType>> sharedTypes = new IdentityHashMap<ComplexType, Map<String, ModifiableComplexType>>();
 	
 	private boolean ignoreRootIfArrayWrapper = false;
 	private boolean strict;
-	private boolean decodeUnicode = true;
 	private boolean allowNilUnicode = false;
 	private boolean parseNumbers = false;
 	private boolean ignoreInconsistentTypes = false;
 	private boolean replaceNonBreakingSpaces = true;
 	private boolean enableMapSupport = false;
+	// decode simple values straight from the json where possible instead of going through a string and the unmarshallable type
+	private boolean useValueDecoders = true;
+	
+	// the limits to protect against hostile or broken documents, 0 means there is no limit
+	// the max string length replaces the default look ahead for strings, it is also a hard cap for elements that define a larger max length
+	private int maxDepth, maxElements, maxDynamicElements;
+	private long maxDocumentSize, maxStringLength;
+	// the current nesting of objects and arrays
+	private int depth;
+	
+	// the cache of processed field names for our settings, this can be shared with other unmarshallers
+	private JSONFieldNameCache nameCache;
+	
+	// the plans we resolved during this parse
+	private Map<ComplexType, JSONUnmarshalPlan> plans = new IdentityHashMap<ComplexType, JSONUnmarshalPlan>();
+	
+	// arrays at these paths are spooled rather than kept in memory
+	private Window [] windows;
+	// the objects in arrays at these paths are handed to the handler one by one rather than kept in memory
+	private Map<String, JSONElementHandler> handlers;
+	// the paths of the windows and handlers, normalized once when they are set rather than for every field we parse
+	private List<ConfiguredPath<Window>> windowPaths;
+	private List<ConfiguredPath<JSONElementHandler>> handlerPaths;
+	// the objects in arrays at these paths are parsed in parallel on the pool, if no paths are configured this applies to root arrays
+	private List<String> parallelPaths;
+	private List<ConfiguredPath<String>> parallelPathMatchers;
+	private ForkJoinPool forkJoinPool;
+	// only these paths (and everything below them) are parsed, everything else is skipped without being decoded
+	private List<String> projection;
+	// the projection relative to the root we are parsing
+	private List<String> projected;
+	// whether everything at the current path is projected
+	private boolean projectedFully = true;
+	// the path of the complex content we are parsing, this is only tracked if we have windows, handlers or a projection
+	private String path, rootName;
 	
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public ComplexContent unmarshal(ReadableContainer<CharBuffer> reader, ComplexType type) throws IOException, ParseException {
-		CountingReadableContainer<CharBuffer> readable = IOUtils.countReadable(reader);
-		if (ignoreWhitespace(readable).read(IOUtils.wrap(single, false)) != 1) {
+		return unmarshal(new JSONCharTokenizer(reader), type);
+	}
+	
+	ComplexContent unmarshal(JSONTokenizer tokenizer, ComplexType type) throws IOException, ParseException {
+		if (!isShaping(type)) {
+			return read(tokenizer, type);
+		}
+		Long fingerprint = fingerprint(tokenizer);
+		ComplexType shape = fingerprint == null ? null : shapeRegistry.get(fingerprint);
+		if (shape != null) {
+			// the document fits in the fingerprint limit so we can keep it in the window in case we have to start over
+			tokenizer.retain();
+			frozen = true;
+			mismatched = false;
+			ComplexContent content;
+			try {
+				content = read(tokenizer, shape);
+			}
+			finally {
+				frozen = false;
+			}
+			if (!mismatched) {
+				tokenizer.release();
+				return content;
+			}
+			// a known shape should not need new definitions, if it does the fingerprint collided and the type can not be trusted
+			shapeRegistry.collide(fingerprint);
+			tokenizer.rewind();
+		}
+		// we never parse into the type we were given, it is reused by the binding and would otherwise be widened by every document that passes through
+		ComplexContent content = read(tokenizer, complexTypeGenerator.newComplexType());
+		if (fingerprint != null && content != null) {
+			shapeRegistry.put(fingerprint, content.getType());
+		}
+		return content;
+	}
+	
+	/**
+	 * Only fully dynamic documents are built entirely from their shape
+	 */
+	private boolean isShaping(ComplexType type) {
+		return shapeRegistry != null && complexTypeGenerator != null && allowDynamicElements && addDynamicElementDefinitions
+			&& (projection == null || projection.isEmpty())
+			// windowed arrays are only parsed when they are accessed which could add definitions to a shared type at any time
+			&& (windows == null || windows.length == 0)
+			// handlers see the objects as they are parsed, we can not start over once they have
+			&& (handlers == null || handlers.isEmpty())
+			&& TypeUtils.getAllChildren(type).isEmpty();
+	}
+	
+	/**
+	 * Calculates the structural fingerprint of the document: the field names, the nesting and the kinds of values but not the values themselves.
+	 * The document is kept in the window while we do this so it can be parsed afterwards, returns null if the document can not be fingerprinted.
+	 */
+	Long fingerprint(JSONTokenizer tokenizer) throws IOException {
+		int first = tokenizer.readNonWhitespace();
+		if (first < 0) {
+			return null;
+		}
+		tokenizer.unread();
+		if (first != '{' && first != '[') {
+			shapeRegistry.skip();
+			return null;
+		}
+		tokenizer.retain();
+		long limit = tokenizer.getPosition() + shapeRegistry.getMaxDocumentSize();
+		try {
+			// the settings determine which types are generated so they are part of the fingerprint
+			long fingerprint = mix(complexTypeGenerator.getClass().getName().hashCode(), (camelCaseDashes ? 1 : 0) | (camelCaseUnderscores ? 2 : 0) | (normalize ? 4 : 0) 
+				| (allowRawNames ? 8 : 0) | (ignoreEmptyStrings ? 16 : 0) | (addDynamicStringsOnly ? 32 : 0) | (parseNumbers ? 64 : 0) | (ignoreRootIfArrayWrapper ? 128 : 0) | (setEmptyArrays ? 256 : 0)
+				| (ignoreUnknownElements ? 512 : 0));
+			fingerprint = mix(fingerprint, fingerprint(tokenizer, tokenizer.read(), limit));
+			// the limit is only checked in between values so the last one may have crossed it
+			if (tokenizer.getPosition() > limit) {
+				shapeRegistry.skip();
+				return null;
+			}
+			return fingerprint;
+		}
+		catch (ParseException e) {
+			// if it is not valid json, the actual parse will report it
+			if (tokenizer.getPosition() > limit) {
+				shapeRegistry.skip();
+			}
+			return null;
+		}
+		finally {
+			tokenizer.rewind();
+		}
+	}
+	
+	private long fingerprint(JSONTokenizer tokenizer, int first, long limit) throws IOException, ParseException {
+		if (tokenizer.getPosition() > limit) {
+			throw new ParseException("The document is too large to fingerprint", (int) tokenizer.getPosition());
+		}
+		if (first == '{') {
+			long fingerprint = '{';
+			int current = tokenizer.readNonWhitespace();
+			while (current != '}') {
+				boolean found;
+				if (current == '"') {
+					found = tokenizer.scanString(LOOK_AHEAD);
+				}
+				else if (current < 0 || strict) {
+					throw new ParseException("Expecting a field", (int) tokenizer.getPosition());
+				}
+				else {
+					tokenizer.unread();
+					found = tokenizer.scanName(LOOK_AHEAD);
+				}
+				if (!found) {
+					throw new ParseException("Could not find delimiter of tag name", (int) tokenizer.getPosition());
+				}
+				// hash the name before reading on, the window may shift
+				long name = tokenizer.tokenEnd - tokenizer.tokenStart;
+				for (int i = tokenizer.tokenStart; i < tokenizer.tokenEnd; i++) {
+					name = mix(name, tokenizer.unitAt(i));
+				}
+				fingerprint = mix(fingerprint, name);
+				if (current == '"' && tokenizer.readNonWhitespace() != ':') {
+					throw new ParseException("Expecting a ':' after a field declaration", (int) tokenizer.getPosition());
+				}
+				fingerprint = mix(fingerprint, fingerprint(tokenizer, tokenizer.readNonWhitespace(), limit));
+				current = tokenizer.readNonWhitespace();
+				if (current == ',') {
+					current = tokenizer.readNonWhitespace();
+				}
+				else if (current != '}') {
+					throw new ParseException("Expecting a ',' or a '}'", (int) tokenizer.getPosition());
+				}
+			}
+			return mix(fingerprint, '}');
+		}
+		else if (first == '[') {
+			long fingerprint = '[', previous = 0;
+			boolean empty = true;
+			int current = tokenizer.readNonWhitespace();
+			while (current != ']') {
+				long entry = fingerprint(tokenizer, current, limit);
+				// consecutive entries of the same shape add nothing to the type, that way an array of a thousand similar objects has the same fingerprint as an array of one
+				if (empty || entry != previous) {
+					fingerprint = mix(fingerprint, entry);
+					previous = entry;
+					empty = false;
+				}
+				current = tokenizer.readNonWhitespace();
+				if (current == ',') {
+					current = tokenizer.readNonWhitespace();
+				}
+				else if (current != ']') {
+					throw new ParseException("Expecting a ',' or a ']'", (int) tokenizer.getPosition());
+				}
+			}
+			return mix(fingerprint, ']');
+		}
+		else if (first == '"') {
+			int next = tokenizer.read();
+			if (next == '"') {
+				return ignoreEmptyStrings ? EMPTY : STRING;
+			}
+			tokenizer.unread();
+			if (next < 0 || !tokenizer.skipString()) {
+				throw new ParseException("Could not find the end of the string", (int) tokenizer.getPosition());
+			}
+			return STRING;
+		}
+		else if (first == 't' || first == 'T' || first == 'f' || first == 'F') {
+			if (!tokenizer.matchIgnoreCase(first == 't' || first == 'T' ? "rue" : "alse")) {
+				throw new ParseException("Not a valid boolean", (int) tokenizer.getPosition());
+			}
+			return addDynamicStringsOnly ? STRING : BOOLEAN;
+		}
+		else if (first == 'n' || first == 'N') {
+			if (!tokenizer.matchIgnoreCase("ull")) {
+				throw new ParseException("Not a valid null", (int) tokenizer.getPosition());
+			}
+			return NULL;
+		}
+		else if (first < 0) {
+			throw new ParseException("Unexpected end of the document", (int) tokenizer.getPosition());
+		}
+		tokenizer.scanNumber();
+		if (!tokenizer.hasDigit()) {
+			throw new ParseException("Not a valid number", (int) tokenizer.getPosition());
+		}
+		Number number = parseNumbers && !addDynamicStringsOnly ? tokenizer.getNumber() : null;
+		// the type of number determines the type of the element
+		return number == null ? STRING : mix(STRING, number.getClass().getName().hashCode());
+	}
+	
+	private static long mix(long hash, long value) {
+		return (hash ^ value) * 0x100000001B3L;
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private ComplexContent read(JSONTokenizer tokenizer, ComplexType type) throws IOException, ParseException {
+		prepare(type);
+		int first = tokenizer.readNonWhitespace();
+		if (first < 0) {
 			return null;
 		}
 		// there is only one valid value that starts with an "n" and it is -> null
-		if (single[0] == 'n') {
-			ignoreWhitespace(readable).read(buffer);
-			String string = new String(IOUtils.toChars(buffer));
-			if (!string.equals("ull")) {
-				throw new ParseException("Expecting null, received: n" + string, 0);
+		if (first == 'n') {
+			if (!tokenizer.matchIgnoreCase("ull") || tokenizer.peekNonWhitespace() >= 0) {
+				throw new ParseException("Expecting null, received: n" + tokenizer.peek(3), (int) tokenizer.getPosition());
 			}
 			// empty instance or null?
 			return null;
 		}
-		else if (single[0] == '[' && ignoreRootIfArrayWrapper) {
+		else if (first == '[' && ignoreRootIfArrayWrapper) {
 			Collection<Element<?>> allChildren = TypeUtils.getAllChildren(type);
 			if (allChildren.size() == 0 && allowDynamicElements && complexTypeGenerator != null) {
 				Element<?> element = new ComplexElementImpl("array", complexTypeGenerator.newComplexType(), type, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0));
 				if (addDynamicElementDefinitions && type instanceof ModifiableComplexType) {
+					if (frozen) {
+						mismatched = true;
+						return null;
+					}
 					((ModifiableComplexType) type).add(element);
 				}
 				allChildren = new ArrayList<Element<?>>(Arrays.asList(element));
@@ -131,29 +374,44 @@ public class JSONUnmarshaller {
 				Element<?> element = allChildren.iterator().next();
 				if (element.getType().isList(element.getProperties())) {
 					ComplexContent instance = type.newInstance();
+					// for a root array, the path is simply the name of the wrapping element
+					JSONElementHandler handler = element.getType() instanceof ComplexType ? getHandler(element.getName()) : null;
+					if (handler != null) {
+						streamArray(tokenizer, instance, element, handler, false);
+						return instance;
+					}
 					int index = 0;
+					enter(tokenizer);
+					// the parallel parse stops at the first entry that is not an object, the rest of the array is parsed below
+					if (element.getType() instanceof ComplexType && isParallel(element.getName(), true)) {
+						index = parallelArray(tokenizer, instance, element);
+					}
 					while (true) {
-						if (ignoreWhitespace(readable).read(IOUtils.wrap(single, false)) != 1) {
+						int current = tokenizer.readNonWhitespace();
+						if (current < 0) {
 							throw new IOException("Can not get the next character");
 						}
 						// done
-						if (single[0] == ']') {
+						if (current == ']') {
 							break;
 						}
 						else {
-							unmarshalSingle(readable, element.getName(), instance, index++, false, element.getName());
+							checkLimits(tokenizer, index + 1);
+							unmarshalSingle(tokenizer, current, element.getName(), instance, index++, false, element.getName(), element);
 						}
-						if (ignoreWhitespace(readable).read(IOUtils.wrap(single, false)) != 1) {
+						current = tokenizer.readNonWhitespace();
+						if (current < 0) {
 							throw new IOException("Can not get the next character");
 						}
-						if (single[0] == ']') {
+						if (current == ']') {
 							break;
 						}
 						// next
-						else if (single[0] != ',') {
-							throw new ParseException("Expecting a ',' to indicate the next part of the array or a ']' to indicate the end", 0);
+						else if (current != ',') {
+							throw new ParseException("Expecting a ',' to indicate the next part of the array or a ']' to indicate the end", (int) tokenizer.getPosition());
 						}
 					}
+					depth--;
 					// no elements
 					if (index == 0 && setEmptyArrays) {
 						instance.set(element.getName(), new ArrayList<Object>());
@@ -164,7 +422,7 @@ public class JSONUnmarshaller {
 		}
 		// it is possible to send complex types (at the root) without a {} around it, e.g. facebook on oauth2 token request sends something like:
 		// access_token=<token>
-		else if (single[0] != '{') {
+		else if (first != '{') {
 			if (strict) {
 				throw new ParseException("Expecting a { to open the complex type", 0);
 			}
@@ -172,225 +430,920 @@ public class JSONUnmarshaller {
 				// if we have an object of type Object.class and we don't have curly braces, we assume it's a primitive type like string etc
 				// we can wrap it in a plain type
 				if (type instanceof BeanType && ((BeanType<?>) type).getBeanClass().equals(Object.class) && complexTypeGenerator != null) {
-					// unmarshalSingle expects the first character in "single" variable, NOT back in the readable
-					readable = IOUtils.countReadable(readable);
 					// you can just send back a string, number, boolean,...
 					ModifiableComplexType newComplexType = complexTypeGenerator.newComplexType();
 					Class<?> nestedType = String.class;
 					newComplexType.add(new SimpleElementImpl(ComplexType.SIMPLE_TYPE_VALUE, SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(nestedType), newComplexType));
 					ComplexContent instance = newComplexType.newInstance();
-					unmarshalSingle(readable, ComplexType.SIMPLE_TYPE_VALUE, instance, null, false, null);
+					// unmarshalSingle expects the first character to be consumed already
+					unmarshalSingle(tokenizer, first, ComplexType.SIMPLE_TYPE_VALUE, instance, null, false, null, null);
 					return instance;
 				}
 				else {
-					readable = IOUtils.countReadable(IOUtils.chain(false, IOUtils.wrap(single, true), readable));
+					// the first character is part of the first field
+					tokenizer.unread();
 				}
 			}
 		}
 		ComplexContent instance = type.newInstance();
-		readField(readable, instance, false);
+		readField(tokenizer, instance, false);
 		return instance;
 	}
 	
 	@SuppressWarnings("unchecked")
-	private void readField(CountingReadableContainer<CharBuffer> readable, ComplexContent content, boolean inDynamic) throws ParseException, IOException {
+	private void readField(JSONTokenizer tokenizer, ComplexContent content, boolean inDynamic) throws ParseException, IOException {
+		enter(tokenizer);
+		// the position of the child we expect next
+		int predicted = 0;
+		int count = 0;
 		while(true) {
-			if (ignoreWhitespace(readable).read(IOUtils.wrap(single, false)) != 1) {
+			int current = tokenizer.readNonWhitespace();
+			if (current < 0) {
 				throw new IOException("Could not read any data");
 			}
-			DelimitedCharContainer delimited;
+			boolean delimiterFound;
 			// it could be immediately closed
-			if (single[0] == '}') {
+			if (current == '}') {
 				break;
 			}
 			// first we expect an opening quote
-			else if (single[0] == '"') {
-				delimited = IOUtils.delimit(IOUtils.limitReadable(readable, LOOK_AHEAD), "[^\\\\]*\"$", 2);
+			else if (current == '"') {
+				delimiterFound = tokenizer.scanString(LOOK_AHEAD);
 			}
 			else if (strict) {
-				throw new ParseException("Expecting a field", 0);
+				throw new ParseException("Expecting a field", (int) tokenizer.getPosition());
 			}
 			// this is to support "invalid" json fields that do not have quotes around them, e.g. facebook sends back _invalid_ json without quotes around the field names
+			// the scan includes the ':' so we don't have to look for it separately
 			else {
-				delimited = IOUtils.delimit(IOUtils.limitReadable(IOUtils.chain(false, IOUtils.wrap(single, true), readable), LOOK_AHEAD), "[\\s]*:$", 2);
+				tokenizer.unread();
+				delimiterFound = tokenizer.scanName(LOOK_AHEAD);
 			}
-			String fieldName = IOUtils.toString(delimited);
-			String rawFieldName = fieldName;
-			if (!allowRawNames) {
-				fieldName = preprocess(encodeFieldName(unescape(fieldName, allowNilUnicode)));
+			if (!delimiterFound) {
+				throw new ParseException("Could not find delimiter of tag name: " + tokenizer.getToken(), (int) tokenizer.getPosition());
 			}
-			if (!delimited.isDelimiterFound()) {
-				throw new ParseException("Could not find delimiter of tag name: " + fieldName, 0);
+			// known names are matched directly in the window, we only need to create strings for escaped or unknown names
+			JSONUnmarshalPlan.FieldName match = current == '"' && !tokenizer.tokenEscaped && content != null ? getPlan(content.getType()).match(tokenizer, predicted) : null;
+			Element<?> known;
+			String fieldName, rawFieldName;
+			if (match != null) {
+				known = match.element;
+				rawFieldName = match.name;
+				fieldName = known.getName();
+				predicted = match.index + 1;
 			}
-			if (strict || !":".equals(delimited.getMatchedDelimiter())) {
+			else {
+				known = null;
+				rawFieldName = tokenizer.getToken();
+				fieldName = toFieldName(tokenizer, rawFieldName);
+			}
+			if (current == '"') {
 				// next we need to read a ":"
-				if (ignoreWhitespace(readable).read(IOUtils.wrap(single, false)) != 1) {
+				current = tokenizer.readNonWhitespace();
+				if (current < 0) {
 					throw new IOException("Can not get the next character");
 				}
-				if (single[0] != ':') {
-					throw new ParseException("Expecting a ':' after a field declaration", 0);
+				if (current != ':') {
+					throw new ParseException("Expecting a ':' after a field declaration", (int) tokenizer.getPosition());
 				}
 			}
 			// skip the whitespace and read one character, this char will determine what the field is
-			if (ignoreWhitespace(readable).read(IOUtils.wrap(single, false)) != 1) {
+			current = tokenizer.readNonWhitespace();
+			if (current < 0) {
 				throw new IOException("Can not get the next character");
 			}
-			// we are doing an array
-			if (single[0] == '[') {
-				int index = 0;
-				while (true) {
-					if (ignoreWhitespace(readable).read(IOUtils.wrap(single, false)) != 1) {
-						throw new IOException("Can not get the next character");
-					}
-					// empty
-					if (single[0] == ']') {
-						break;
-					}
-					// matrix, only 2 deep atm...
-					else if (single[0] == '[') {
-						int depth = 1;
-						while(true) {
-							if (ignoreWhitespace(readable).read(IOUtils.wrap(single, false)) != 1) {
-								throw new IOException("Can not get the next character");
-							}
-							// empty
-							if (single[0] == ']') {
-								break;
-							}
-							else if (single[0] == '[') {
-								depth++;
+			checkLimits(tokenizer, ++count);
+			readFieldValue(tokenizer, current, content, inDynamic, fieldName, rawFieldName, known);
+			// it has to be a ',' or a '}'
+			current = tokenizer.readNonWhitespace();
+			if (current < 0) {
+				throw new IOException("Can not get the next character");
+			}
+			if (current == '}') {
+				break;
+			}
+			else if (current != ',') {
+				throw new ParseException("Expecting a ',' at this position, not '" + (char) current + "' at position " + tokenizer.getPosition(), (int) tokenizer.getPosition());
+			}
+		}
+		depth--;
+	}
+	
+	void enter(JSONTokenizer tokenizer) throws ParseException {
+		if (++depth > maxDepth && maxDepth > 0) {
+			throw new ParseException("The document exceeds the maximum depth of " + maxDepth, (int) tokenizer.getPosition());
+		}
+	}
+	
+	/**
+	 * Checks the limits that grow as we move through the document, this is done for every field and array entry so it must remain cheap
+	 */
+	void checkLimits(JSONTokenizer tokenizer, int count) throws ParseException {
+		if (count > maxElements && maxElements > 0) {
+			throw new ParseException("The object or array exceeds the maximum amount of elements of " + maxElements, (int) tokenizer.getPosition());
+		}
+		if (maxDocumentSize > 0 && tokenizer.getPosition() > maxDocumentSize) {
+			throw new ParseException("The document exceeds the maximum size of " + maxDocumentSize, (int) tokenizer.getPosition());
+		}
+	}
+	
+	/**
+	 * Reads the value of a field, the first character of the value must already be consumed
+	 */
+	@SuppressWarnings("unchecked")
+	void readFieldValue(JSONTokenizer tokenizer, int current, ComplexContent content, boolean inDynamic, String fieldName, String rawFieldName, Element<?> known) throws ParseException, IOException {
+		boolean parentProjectedFully = projectedFully;
+		if (content != null && (!projectedFully || (ignoreUnknownElements && known == null))) {
+			JSONUnmarshalPlan plan = getPlan(content.getType());
+			Element<?> resolved = known != null ? known : plan.resolve(rawFieldName, fieldName, allowAttributeFallback);
+			// an unknown field that can not end up anywhere is skipped without decoding anything
+			if (resolved == null && ignoreUnknownElements && !inDynamic && (!allowDynamicElements || complexTypeGenerator == null) && plan.getKeyValueElement() == null && plan.getDynamicNameElement() == null && plan.getDynamicValueElement() == null) {
+				skipValue(tokenizer, current);
+				return;
+			}
+			// if we are not yet fully within the projection, check whether we need this field at all
+			if (!projectedFully) {
+				int projection = project(resolved == null ? fieldName : resolved.getName());
+				if (projection == NOT_PROJECTED) {
+					skipValue(tokenizer, current);
+					return;
+				}
+				projectedFully = projection == FULLY_PROJECTED;
+			}
+		}
+		Window window = null;
+		JSONElementHandler handler = null;
+		Element<?> windowed = null;
+		boolean parallel = false;
+		if (current == '[' && isTrackingPath() && content != null) {
+			windowed = known != null ? known : getPlan(content.getType()).resolve(rawFieldName, fieldName, allowAttributeFallback);
+			if (windowed != null && windowed.getType() instanceof ComplexType && windowed.getType().isList(windowed.getProperties())) {
+				handler = getHandler(windowed.getName());
+				window = handler == null ? getWindow(windowed.getName()) : null;
+				parallel = handler == null && window == null && isParallel(windowed.getName(), false);
+			}
+		}
+		// the objects in a streamed array are handed off one by one and never added to the content
+		if (handler != null) {
+			streamArray(tokenizer, content, windowed, handler, inDynamic);
+		}
+		// the objects in a windowed array are spooled and only parsed when they are accessed
+		else if (window != null) {
+			JSONWindowedList list = new JSONWindowedList(window, windowed, copy());
+			int count = 0;
+			while (true) {
+				current = tokenizer.readNonWhitespace();
+				if (current < 0) {
+					throw new IOException("Can not get the next character");
+				}
+				if (current == ']') {
+					break;
+				}
+				else if (current != '{') {
+					throw new ParseException("Only objects are supported in the windowed array: " + rawFieldName, (int) tokenizer.getPosition());
+				}
+				checkLimits(tokenizer, ++count);
+				if (!tokenizer.scanStructure('{', '}', getMaxScanLength(tokenizer))) {
+					checkLimits(tokenizer, count);
+					throw new ParseException("Could not find the end of the object in the windowed array: " + rawFieldName, (int) tokenizer.getPosition());
+				}
+				list.add(tokenizer);
+				current = tokenizer.readNonWhitespace();
+				if (current < 0) {
+					throw new IOException("Can not get the next character");
+				}
+				if (current == ']') {
+					break;
+				}
+				// next
+				else if (current != ',') {
+					throw new ParseException("Expecting a ',' to indicate the next part of the array or a ']' to indicate the end for field: " + rawFieldName, (int) tokenizer.getPosition());
+				}
+			}
+			list.seal();
+			content.set(windowed.getName(), list);
+		}
+		// a single string receiving an array gets it as json
+		else if (current == '[' && content != null && isCapturedArray(content, known, fieldName, rawFieldName)) {
+			unmarshalSingle(tokenizer, current, fieldName, content, null, inDynamic, rawFieldName, known);
+		}
+		// we are doing an array
+		else if (current == '[') {
+			enter(tokenizer);
+			// the parallel parse stops at the first entry that is not an object, the rest of the array is parsed below
+			int index = parallel ? parallelArray(tokenizer, content, windowed) : 0;
+			while (true) {
+				current = tokenizer.readNonWhitespace();
+				if (current < 0) {
+					throw new IOException("Can not get the next character");
+				}
+				// empty
+				if (current == ']') {
+					break;
+				}
+				// matrix, only 2 deep atm...
+				else if (current == '[') {
+					int depth = 1;
+					while(true) {
+						current = tokenizer.readNonWhitespace();
+						if (current < 0) {
+							throw new IOException("Can not get the next character");
+						}
+						// empty
+						if (current == ']') {
+							break;
+						}
+						else if (current == '[') {
+							depth++;
 //								throw new ParseException("Matrices are only supported 2 deep currently", 0);
-							}
-							else {
-								unmarshalSingle(readable, fieldName, content, index++, inDynamic, rawFieldName);
-							}
-							if (ignoreWhitespace(readable).read(IOUtils.wrap(single, false)) != 1) {
-								throw new IOException("Can not get the next character");
-							}
-							if (single[0] == ']') {
-								if (--depth == 0) {
-									break;
-								}
-							}
-							// next
-							else if (single[0] != ',') {
-								throw new ParseException("Expecting a ',' to indicate the next part of the array or a ']' to indicate the end for field: " + rawFieldName, 0);
+						}
+						else {
+							checkLimits(tokenizer, index + 1);
+							unmarshalSingle(tokenizer, current, fieldName, content, index++, inDynamic, rawFieldName, known);
+						}
+						current = tokenizer.readNonWhitespace();
+						if (current < 0) {
+							throw new IOException("Can not get the next character");
+						}
+						if (current == ']') {
+							if (--depth == 0) {
+								break;
 							}
 						}
-					}
-					else {
-						unmarshalSingle(readable, fieldName, content, index++, inDynamic, rawFieldName);
-					}
-					if (ignoreWhitespace(readable).read(IOUtils.wrap(single, false)) != 1) {
-						throw new IOException("Can not get the next character");
-					}
-					if (single[0] == ']') {
-						break;
-					}
-					// next
-					else if (single[0] != ',') {
-						throw new ParseException("Expecting a ',' to indicate the next part of the array or a ']' to indicate the end for field: " + rawFieldName, 0);
+						// next
+						else if (current != ',') {
+							throw new ParseException("Expecting a ',' to indicate the next part of the array or a ']' to indicate the end for field: " + rawFieldName, (int) tokenizer.getPosition());
+						}
 					}
 				}
-				// no elements
-				if (index == 0 && setEmptyArrays && content != null) {
-					Element<?> element = getRawChild(content.getType(), rawFieldName);
-					if (element == null) {
-						element = content.getType().get(fieldName);
-					}
-					if (element != null) {
-						content.set(element.getName(), new ArrayList<Object>());
+				else {
+					checkLimits(tokenizer, index + 1);
+					unmarshalSingle(tokenizer, current, fieldName, content, index++, inDynamic, rawFieldName, known);
+				}
+				current = tokenizer.readNonWhitespace();
+				if (current < 0) {
+					throw new IOException("Can not get the next character");
+				}
+				if (current == ']') {
+					break;
+				}
+				// next
+				else if (current != ',') {
+					throw new ParseException("Expecting a ',' to indicate the next part of the array or a ']' to indicate the end for field: " + rawFieldName, (int) tokenizer.getPosition());
+				}
+			}
+			depth--;
+			// no elements
+			if (index == 0 && setEmptyArrays && content != null) {
+				Element<?> element = known != null ? known : getPlan(content.getType()).resolve(rawFieldName, fieldName, false);
+				if (element != null) {
+					content.set(element.getName(), new ArrayList<Object>());
+				}
+				// if we allow dynamic elements, set an empty array for the field
+				// @2024-07-01: when setting an element that does not exist, most implementations will throw an exception, it is unclear why this is here. until recently "setEmptyArrays" was false by default, now it is true which triggers this piece of code that has probably almost never been tested
+//				else if (allowDynamicElements) {
+//					content.set(allowRawNames ? rawFieldName : fieldName, new ArrayList<Object>());
+//				}
+			}
+		}
+		else {
+			unmarshalSingle(tokenizer, current, fieldName, content, null, inDynamic, rawFieldName, known);
+		}
+		projectedFully = parentProjectedFully;
+	}
+	
+	/**
+	 * In JSON the field names can be _anything_, we need to encode it in order to pass through stuff like the ParsedPath etc
+	 */
+	private String encodeFieldName(String name) {
+		return name == null ? name : URIUtils.encodeURIComponent(name);
+	}
+	
+	private String preprocess(String name) {
+		if (normalize) {
+			while (name.startsWith("-") || name.startsWith("_")) {
+				name = name.substring(1);
+			}
+		}
+		if (camelCaseDashes) {
+			name = BindingUtils.camelCaseCharacter(name, '-');
+		}
+		if (camelCaseUnderscores) {
+			name = BindingUtils.camelCaseCharacter(name, '_');			
+		}
+		return name;
+	}
+	
+	/**
+	 * Parses the objects of an array one at a time and passes them to the handler, the opening bracket must already be consumed
+	 */
+	private void streamArray(JSONTokenizer tokenizer, ComplexContent content, Element<?> element, JSONElementHandler handler, boolean inDynamic) throws IOException, ParseException {
+		String parentPath = path;
+		path = path == null ? element.getName() : path + "/" + element.getName();
+		int index = 0;
+		while (true) {
+			int current = tokenizer.readNonWhitespace();
+			if (current < 0) {
+				throw new IOException("Can not get the next character");
+			}
+			if (current == ']') {
+				break;
+			}
+			else if (current != '{') {
+				throw new ParseException("Only objects are supported in the streamed array: " + element.getName(), (int) tokenizer.getPosition());
+			}
+			ComplexContent child = ((ComplexType) element.getType()).newInstance();
+			readField(tokenizer, child, inDynamic);
+			handler.handle(content, element, index++, child);
+			current = tokenizer.readNonWhitespace();
+			if (current < 0) {
+				throw new IOException("Can not get the next character");
+			}
+			if (current == ']') {
+				break;
+			}
+			// next
+			else if (current != ',') {
+				throw new ParseException("Expecting a ',' to indicate the next part of the array or a ']' to indicate the end for field: " + element.getName(), (int) tokenizer.getPosition());
+			}
+		}
+		path = parentPath;
+	}
+	
+	/**
+	 * Parses the objects of an array in parallel, the opening bracket must already be consumed.
+	 * In this thread we only look for the boundaries of the objects, they are gathered in chunks which are parsed on the pool and set in order.
+	 * We stop right before the closing bracket or the first entry that is not an object and return the amount of entries that were set, the sequential parse takes it from there.
+	 */
+	private int parallelArray(JSONTokenizer tokenizer, ComplexContent content, Element<?> element) throws IOException, ParseException {
+		ComplexType type = (ComplexType) element.getType();
+		Deque<ForkJoinTask<List<ComplexContent>>> pending = new ArrayDeque<ForkJoinTask<List<ComplexContent>>>();
+		ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+		// the amount of entries we found and the amount we have set
+		int count = 0, index = 0;
+		try {
+			while (true) {
+				int current = tokenizer.readNonWhitespace();
+				if (current < 0) {
+					throw new IOException("Can not get the next character");
+				}
+				if (current != '{') {
+					tokenizer.unread();
+					break;
+				}
+				checkLimits(tokenizer, ++count);
+				if (!tokenizer.scanStructure('{', '}', getMaxScanLength(tokenizer))) {
+					checkLimits(tokenizer, count);
+					throw new ParseException("Could not find the end of the object in the parallel array: " + element.getName(), (int) tokenizer.getPosition());
+				}
+				tokenizer.writeToken(chunk);
+				if (chunk.size() >= PARALLEL_CHUNK_SIZE) {
+					// we don't want to keep the whole array in memory if the pool can't keep up
+					if (pending.size() >= forkJoinPool.getParallelism() * 2) {
+						index = set(content, element, index, join(pending.poll()));
 					}
-					// if we allow dynamic elements, set an empty array for the field
-					// @2024-07-01: when setting an element that does not exist, most implementations will throw an exception, it is unclear why this is here. until recently "setEmptyArrays" was false by default, now it is true which triggers this piece of code that has probably almost never been tested
-//					else if (allowDynamicElements) {
-//						content.set(allowRawNames ? rawFieldName : fieldName, new ArrayList<Object>());
-//					}
+					pending.add(forkJoinPool.submit(newChunkTask(chunk.toByteArray(), type)));
+					chunk.reset();
+				}
+				current = tokenizer.readNonWhitespace();
+				if (current < 0) {
+					throw new IOException("Can not get the next character");
+				}
+				if (current == ']') {
+					tokenizer.unread();
+					break;
+				}
+				// next
+				else if (current != ',') {
+					throw new ParseException("Expecting a ',' to indicate the next part of the array or a ']' to indicate the end for field: " + element.getName(), (int) tokenizer.getPosition());
 				}
 			}
-			else {
-				unmarshalSingle(readable, fieldName, content, null, inDynamic, rawFieldName);
+			// the remainder is parsed in this thread while the pool finishes, for small arrays this is all there is
+			List<ComplexContent> remainder = chunk.size() == 0 ? new ArrayList<ComplexContent>() : copy().readObjects(chunk.toByteArray(), type, depth);
+			while (!pending.isEmpty()) {
+				index = set(content, element, index, join(pending.poll()));
+			}
+			index = set(content, element, index, remainder);
+		}
+		finally {
+			for (ForkJoinTask<?> task : pending) {
+				task.cancel(true);
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * Sets the parsed entries one by one like the sequential parse does, that way the content can convert each of them
+	 */
+	private static int set(ComplexContent content, Element<?> element, int index, List<ComplexContent> children) {
+		for (ComplexContent child : children) {
+			content.set(element.getName() + "[" + index++ + "]", child);
+		}
+		return index;
+	}
+	
+	/**
+	 * The length a scan of an object or array may take before it crosses the maximum document size, the opening character must already be consumed
+	 */
+	long getMaxScanLength(JSONTokenizer tokenizer) {
+		return maxDocumentSize > 0 ? Math.max(1, maxDocumentSize - tokenizer.getPosition() + 1) : Long.MAX_VALUE;
+	}
+	
+	private Callable<List<ComplexContent>> newChunkTask(final byte [] chunk, final ComplexType type) {
+		// the unmarshaller keeps state while parsing so every chunk needs its own
+		final JSONUnmarshaller unmarshaller = copy();
+		final int depth = this.depth;
+		return new Callable<List<ComplexContent>>() {
+			@Override
+			public List<ComplexContent> call() throws Exception {
+				return unmarshaller.readObjects(chunk, type, depth);
+			}
+		};
+	}
+	
+	private static List<ComplexContent> join(ForkJoinTask<List<ComplexContent>> task) throws IOException, ParseException {
+		try {
+			return task.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while parsing the parallel array", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof ParseException) {
+				throw (ParseException) e.getCause();
+			}
+			else if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+	
+	/**
+	 * Parses consecutive objects of the given type from a chunk of utf-8 json, the depth is that of the array they are in so the limits still apply
+	 */
+	private List<ComplexContent> readObjects(byte [] chunk, ComplexType type, int depth) throws IOException, ParseException {
+		prepare(type);
+		this.depth = depth;
+		JSONTokenizer tokenizer = new JSONByteTokenizer(IOUtils.wrap(chunk, true));
+		List<ComplexContent> children = new ArrayList<ComplexContent>();
+		while (tokenizer.readNonWhitespace() == '{') {
+			ComplexContent child = type.newInstance();
+			readField(tokenizer, child, false);
+			children.add(child);
+		}
+		return children;
+	}
+	
+	/**
+	 * Whether the array at the given child of the current path is parsed in parallel.
+	 * Dynamic definitions can not be added to the types from multiple threads and nested windows, handlers and projections are not passed along, in those cases we stay sequential.
+	 */
+	private boolean isParallel(String name, boolean root) {
+		if (forkJoinPool == null || (allowDynamicElements && complexTypeGenerator != null) || !projectedFully
+				|| (windows != null && windows.length > 0) || (handlers != null && !handlers.isEmpty())) {
+			return false;
+		}
+		if (parallelPathMatchers == null) {
+			return root;
+		}
+		for (ConfiguredPath<String> parallelPath : parallelPathMatchers) {
+			if (parallelPath.matches(path, name, rootName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * We only need to keep track of the path if something is registered on a path
+	 */
+	private boolean isTrackingPath() {
+		return (windows != null && windows.length > 0) || (handlers != null && !handlers.isEmpty()) || !projectedFully
+			|| (forkJoinPool != null && parallelPaths != null && !parallelPaths.isEmpty());
+	}
+	
+	/**
+	 * The window for the given child of the current path (if any)
+	 */
+	private Window getWindow(String name) {
+		if (windowPaths != null) {
+			for (ConfiguredPath<Window> windowPath : windowPaths) {
+				if (windowPath.matches(path, name, rootName)) {
+					return windowPath.target;
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * The handler for the given child of the current path (if any)
+	 */
+	private JSONElementHandler getHandler(String name) {
+		if (handlerPaths != null) {
+			for (ConfiguredPath<JSONElementHandler> handlerPath : handlerPaths) {
+				if (handlerPath.matches(path, name, rootName)) {
+					return handlerPath.target;
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Strips the leading slashes from a configured path
+	 */
+	static String normalizePath(String path) {
+		int start = 0;
+		while (start < path.length() && path.charAt(start) == '/') {
+			start++;
+		}
+		return path.substring(start);
+	}
+	
+	/**
+	 * Checks whether the configured path, starting at the given offset, starts with the given child of the parent path without building the path of the child.
+	 * Returns the index right after the child in the configured path or -1 if it does not start with the child.
+	 */
+	private static int getChildPathEnd(String configuredPath, int offset, String parentPath, String name) {
+		if (parentPath != null) {
+			if (!configuredPath.startsWith(parentPath, offset) || configuredPath.length() <= offset + parentPath.length() || configuredPath.charAt(offset + parentPath.length()) != '/') {
+				return -1;
+			}
+			offset += parentPath.length() + 1;
+		}
+		if (!configuredPath.startsWith(name, offset)) {
+			return -1;
+		}
+		int end = offset + name.length();
+		// the name must be a full segment
+		return end == configuredPath.length() || configuredPath.charAt(end) == '/' ? end : -1;
+	}
+	
+	private static boolean isChildPath(String configuredPath, int offset, String parentPath, String name) {
+		return getChildPathEnd(configuredPath, offset, parentPath, name) == configuredPath.length();
+	}
+	
+	/**
+	 * Resets the state of a previous parse, the type is the root we will be parsing
+	 */
+	void prepare(ComplexType type) {
+		// modifiable types may have changed since a previous parse
+		plans.clear();
+		defined = 0;
+		depth = 0;
+		// shared dynamic types should not be widened by unrelated documents
+		sharedTypes.clear();
+		path = null;
+		rootName = type.getName();
+		projected = null;
+		projectedFully = projection == null || projection.isEmpty();
+		if (!projectedFully) {
+			projected = new ArrayList<String>();
+			for (String projectedPath : projection) {
+				int index = projectedPath.indexOf('/');
+				// the path can be expressed with or without the name of the root
+				if (index > 0 && projectedPath.substring(0, index).equalsIgnoreCase(rootName) && type.get(projectedPath.substring(0, index)) == null) {
+					projectedPath = projectedPath.substring(index + 1);
+				}
+				projected.add(projectedPath);
+			}
+		}
+	}
+	
+	/**
+	 * Checks whether the given child of the current path is projected
+	 */
+	private int project(String name) {
+		int result = NOT_PROJECTED;
+		for (String projectedPath : projected) {
+			int end = getChildPathEnd(projectedPath, 0, path, name);
+			// the child itself is projected
+			if (end == projectedPath.length()) {
+				return FULLY_PROJECTED;
+			}
+			// one of its parents is projected
+			else if (path != null && (projectedPath.equals(path) || (path.startsWith(projectedPath) && path.charAt(projectedPath.length()) == '/'))) {
+				return FULLY_PROJECTED;
+			}
+			// something below the child is projected
+			else if (end > 0) {
+				result = PARTIALLY_PROJECTED;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Whether the element for the field takes an array as a single json string rather than as a list of values
+	 */
+	private boolean isCapturedArray(ComplexContent content, Element<?> known, String fieldName, String rawFieldName) {
+		JSONUnmarshalPlan plan = getPlan(content.getType());
+		Element<?> element = known != null ? known : plan.resolve(rawFieldName, fieldName, allowAttributeFallback);
+		if (element == null) {
+			return false;
+		}
+		JSONUnmarshalPlan.ElementPlan elementPlan = plan.getElement(element);
+		return !elementPlan.list && (elementPlan.raw || elementPlan.string);
+	}
+	
+	/**
+	 * Captures the exact json of a value in one pass, the first character must already be consumed. An explicit null is returned as null.
+	 */
+	private String readRaw(JSONTokenizer tokenizer, int first, Integer maxLength, String name) throws IOException, ParseException {
+		switch(first) {
+			case '{':
+			case '[':
+				char close = first == '{' ? '}' : ']';
+				if (!tokenizer.scanStructure((char) first, close, maxStringLength > 0 ? maxStringLength : (maxLength == null ? MAX_SIZE : maxLength))) {
+					throw new ParseException("Could not find closing '" + close + "' for stringified field '" + name + "' within the allotted look ahead space", (int) tokenizer.getPosition());
+				}
+				return tokenizer.getToken();
+			case '"':
+				if (!tokenizer.scanString(maxStringLength > 0 ? maxStringLength : (maxLength == null || maxLength < MAX_SIZE ? MAX_SIZE : maxLength))) {
+					throw new ParseException("Could not find the closing quote of the string value", (int) tokenizer.getPosition());
+				}
+				return "\"" + tokenizer.getToken() + "\"";
+			case 't':
+			case 'T':
+				if (!tokenizer.matchIgnoreCase("rue")) {
+					throw new ParseException("The value " + (char) first + tokenizer.peek(3) + " is not valid", (int) tokenizer.getPosition());
+				}
+				return "true";
+			case 'f':
+			case 'F':
+				if (!tokenizer.matchIgnoreCase("alse")) {
+					throw new ParseException("The value " + (char) first + tokenizer.peek(4) + " is not valid", (int) tokenizer.getPosition());
+				}
+				return "false";
+			case 'n':
+			case 'N':
+				if (!tokenizer.matchIgnoreCase("ull")) {
+					throw new ParseException("The value " + (char) first + tokenizer.peek(3) + " is not valid", (int) tokenizer.getPosition());
+				}
+				return null;
+			default:
+				tokenizer.scanNumber();
+				if (!tokenizer.hasDigit()) {
+					throw new ParseException("Not a valid number: " + tokenizer.getToken(), (int) tokenizer.getPosition());
+				}
+				return tokenizer.getToken();
+		}
+	}
+	
+	/**
+	 * Skips over a value without decoding it, the first character must already be consumed
+	 */
+	void skipValue(JSONTokenizer tokenizer, int first) throws IOException, ParseException {
+		switch(first) {
+			case '{':
+			case '[':
+				if (!tokenizer.skipStructure()) {
+					throw new ParseException("Could not find the end of the skipped " + (first == '{' ? "object" : "array"), (int) tokenizer.getPosition());
+				}
+			break;
+			case '"':
+				if (!tokenizer.skipString()) {
+					throw new ParseException("Could not find the closing quote of the skipped string", (int) tokenizer.getPosition());
+				}
+			break;
+			case 't':
+			case 'T':
+				if (!tokenizer.matchIgnoreCase("rue")) {
+					throw new ParseException("The value " + (char) first + tokenizer.peek(3) + " is not valid", (int) tokenizer.getPosition());
+				}
+			break;
+			case 'f':
+			case 'F':
+				if (!tokenizer.matchIgnoreCase("alse")) {
+					throw new ParseException("The value " + (char) first + tokenizer.peek(4) + " is not valid", (int) tokenizer.getPosition());
+				}
+			break;
+			case 'n':
+			case 'N':
+				if (!tokenizer.matchIgnoreCase("ull")) {
+					throw new ParseException("The value " + (char) first + tokenizer.peek(3) + " is not valid", (int) tokenizer.getPosition());
+				}
+			break;
+			default:
+				tokenizer.scanNumber();
+				if (!tokenizer.hasDigit()) {
+					throw new ParseException("Not a valid number: " + tokenizer.getToken(), (int) tokenizer.getPosition());
+				}
+		}
+	}
+	
+	/**
+	 * Parses the document lazily, see {@link JSONLazyContent}. Only an object at the root is parsed lazily, anything else is parsed as usual.
+	 */
+	ComplexContent unmarshalLazy(byte [] bytes, ComplexType type) throws IOException, ParseException {
+		if (maxDocumentSize > 0 && bytes.length > maxDocumentSize) {
+			throw new ParseException("The document exceeds the maximum size of " + maxDocumentSize, (int) maxDocumentSize);
+		}
+		JSONTokenizer tokenizer = new JSONByteTokenizer(bytes, 0, bytes.length);
+		if (tokenizer.readNonWhitespace() != '{') {
+			return unmarshal(new JSONByteTokenizer(bytes, 0, bytes.length), type);
+		}
+		// the content outlives this parse, it gets an unmarshaller of its own so this one can be reused
+		JSONUnmarshaller unmarshaller = copy();
+		unmarshaller.prepare(type);
+		JSONLazyContent content = new JSONLazyContent(unmarshaller, type, bytes, (int) tokenizer.getPosition() - 1, 1);
+		// the root is indexed right away so a broken document is still reported here
+		content.index();
+		return content;
+	}
+	
+	/**
+	 * Whether an object for the element can be parsed lazily, this is not the case for anything that needs special handling (lists, maps, dynamic objects,...)
+	 */
+	boolean isLazy(ComplexType type, Element<?> element) {
+		JSONUnmarshalPlan.ElementPlan elementPlan = getPlan(type).getElement(element);
+		return elementPlan.complex && !elementPlan.list && !elementPlan.object && (!enableMapSupport || elementPlan.collectionHandler == null);
+	}
+	
+	/**
+	 * A reader that follows the same rules as this unmarshaller
+	 */
+	JSONReader newReader(JSONTokenizer tokenizer) {
+		JSONReader reader = new JSONReader(tokenizer, null);
+		reader.setStrict(strict);
+		reader.setAllowNilUnicode(allowNilUnicode);
+		reader.setReplaceNonBreakingSpaces(replaceNonBreakingSpaces);
+		reader.setMaxStringLength(maxStringLength);
+		return reader;
+	}
+	
+	/**
+	 * Sets the depth we are at when we continue parsing a part of the document separately
+	 */
+	void setDepth(int depth) {
+		this.depth = depth;
+	}
+	
+	/**
+	 * Reads the next of a sequence of root objects (e.g. newline delimited json) without resetting the state in between.
+	 * Explicit null values are skipped, this returns null once the input is exhausted.
+	 */
+	ComplexContent readRecord(JSONTokenizer tokenizer, ComplexType type) throws IOException, ParseException {
+		while (true) {
+			int first = tokenizer.readNonWhitespace();
+			if (first < 0) {
+				return null;
 			}
-			// it has to be a ',' or a '}'
-			if (ignoreWhitespace(readable).read(IOUtils.wrap(single, false)) != 1) {
-				throw new IOException("Can not get the next character");
+			else if (first == 'n' || first == 'N') {
+				if (!tokenizer.matchIgnoreCase("ull")) {
+					throw new ParseException("Expecting null, received: " + (char) first + tokenizer.peek(3), (int) tokenizer.getPosition());
+				}
 			}
-			if (single[0] == '}') {
-				break;
+			else if (first != '{') {
+				throw new ParseException("Expecting a { to open the record, not '" + (char) first + "' at position " + tokenizer.getPosition(), (int) tokenizer.getPosition());
 			}
-			else if (single[0] != ',') {
-				throw new ParseException("Expecting a ',' at this position, not '" + single[0] + "' at position " + (int) readable.getReadTotal(), (int) readable.getReadTotal());
+			else {
+				ComplexContent instance = type.newInstance();
+				readField(tokenizer, instance, false);
+				return instance;
 			}
 		}
 	}
 	
 	/**
-	 * In JSON the field names can be _anything_, we need to encode it in order to pass through stuff like the ParsedPath etc
+	 * Reads the fields of an object into the content, the opening brace must already be consumed
 	 */
-	private String encodeFieldName(String name) {
-		return name == null ? name : URIUtils.encodeURIComponent(name);
+	void readObject(JSONTokenizer tokenizer, ComplexContent content) throws IOException, ParseException {
+		readField(tokenizer, content, false);
 	}
 	
-	private String preprocess(String name) {
-		if (normalize) {
-			while (name.startsWith("-") || name.startsWith("_")) {
-				name = name.substring(1);
-			}
+	/**
+	 * The name of the field as it is used to look up the element
+	 */
+	private String toFieldName(String rawFieldName) {
+		if (allowRawNames) {
+			return rawFieldName;
 		}
-		if (camelCaseDashes) {
-			name = BindingUtils.camelCaseCharacter(name, '-');
+		// the same names tend to come back over and over again, especially in arrays
+		if (nameCache == null || !nameCache.isFor(normalize, camelCaseDashes, camelCaseUnderscores)) {
+			nameCache = new JSONFieldNameCache(normalize, camelCaseDashes, camelCaseUnderscores);
 		}
-		if (camelCaseUnderscores) {
-			name = BindingUtils.camelCaseCharacter(name, '_');			
+		String fieldName = nameCache.get(rawFieldName);
+		if (fieldName == null) {
+			fieldName = preprocess(encodeFieldName(rawFieldName));
+			nameCache.put(rawFieldName, fieldName);
 		}
-		return name;
+		return fieldName;
 	}
 	
-	private Element<?> getRawChild(ComplexType type, String name) {
-		for (Element<?> child : TypeUtils.getAllChildren(type)) {
-			if (child.getName().equals(name)) {
-				return child;
-			}
-			Value<String> property = child.getProperty(AliasProperty.getInstance());
-			if (property != null && property.getValue() != null && property.getValue().equals(name)) {
-				return child;
-			}
+	/**
+	 * The name of the field that the tokenizer just scanned, the raw name is the token exactly as it appears in the json
+	 */
+	String toFieldName(JSONTokenizer tokenizer, String rawFieldName) {
+		// without escapes, the decoded name is the same as the raw one
+		return allowRawNames ? rawFieldName : toFieldName(tokenizer.tokenEscaped ? tokenizer.getString(allowNilUnicode, false) : rawFieldName);
+	}
+	
+	Element<?> resolve(ComplexType type, String rawFieldName, String fieldName) {
+		return getPlan(type).resolve(rawFieldName, fieldName, allowAttributeFallback);
+	}
+	
+	/**
+	 * A new unmarshaller with the same configuration
+	 */
+	JSONUnmarshaller copy() {
+		JSONUnmarshaller copy = new JSONUnmarshaller();
+		copy.lenient = lenient;
+		copy.allowDynamicElements = allowDynamicElements;
+		copy.addDynamicElementDefinitions = addDynamicElementDefinitions;
+		copy.ignoreUnknownElements = ignoreUnknownElements;
+		copy.camelCaseDashes = camelCaseDashes;
+		copy.camelCaseUnderscores = camelCaseUnderscores;
+		copy.normalize = normalize;
+		copy.setEmptyArrays = setEmptyArrays;
+		copy.allowAttributeFallback = allowAttributeFallback;
+		copy.allowRawNames = allowRawNames;
+		copy.ignoreEmptyStrings = ignoreEmptyStrings;
+		copy.addDynamicStringsOnly = addDynamicStringsOnly;
+		copy.shareDynamicTypes = shareDynamicTypes;
+		copy.nameCache = nameCache;
+		copy.shapeRegistry = shapeRegistry;
+		copy.complexTypeGenerator = complexTypeGenerator;
+		copy.strict = strict;
+		copy.allowNilUnicode = allowNilUnicode;
+		copy.parseNumbers = parseNumbers;
+		copy.ignoreInconsistentTypes = ignoreInconsistentTypes;
+		copy.replaceNonBreakingSpaces = replaceNonBreakingSpaces;
+		copy.enableMapSupport = enableMapSupport;
+		copy.useValueDecoders = useValueDecoders;
+		copy.maxDepth = maxDepth;
+		copy.maxElements = maxElements;
+		copy.maxDynamicElements = maxDynamicElements;
+		copy.maxDocumentSize = maxDocumentSize;
+		copy.maxStringLength = maxStringLength;
+		return copy;
+	}
+	
+	private JSONUnmarshalPlan getPlan(ComplexType type) {
+		JSONUnmarshalPlan plan = plans.get(type);
+		if (plan == null) {
+			plan = JSONUnmarshalPlan.get(type);
+			plans.put(type, plan);
 		}
-		return null;
+		return plan;
 	}
 	
-	private Element<?> getKeyValueElement(ComplexType type) {
-		TypeInstance keyValueInstance = new BaseTypeInstance(BeanResolver.getInstance().resolve(KeyValuePair.class));
-		for (Element<?> child : TypeUtils.getAllChildren(type)) {
-			// apart from it being a list, other child properties don't matter so strip them for subset comparison 
-			if (child.getType().isList(child.getProperties()) && TypeUtils.isSubset(new BaseTypeInstance(child.getType()), keyValueInstance)) {
-				return child;
-			}
+	/**
+	 * Adds a dynamically generated element to the type and keeps the plan in sync.
+	 * If we are parsing into a registered shape, nothing is added and this returns null, the caller should leave the value out.
+	 */
+	private JSONUnmarshalPlan define(JSONTokenizer tokenizer, ComplexType type, Element<?> element) throws ParseException {
+		if (++defined > maxDynamicElements && maxDynamicElements > 0) {
+			throw new ParseException("The document exceeds the maximum amount of dynamic elements of " + maxDynamicElements, (int) tokenizer.getPosition());
 		}
-		return null;
+		if (frozen) {
+			mismatched = true;
+			return null;
+		}
+		((ModifiableComplexType) type).add(element);
+		JSONUnmarshalPlan plan = getPlan(type).extend(element);
+		plans.put(type, plan);
+		return plan;
+	}
+
+	/**
+	 * Generates a type for a dynamic object, if enabled this type is shared by all the objects for that field in the given parent type
+	 * If the element is added to the parent definition, the siblings will resolve it from there so we only ever get here for the first one
+	 */
+	private ModifiableComplexType newDynamicType(ComplexType parent, String fieldName) {
+		if (!shareDynamicTypes) {
+			return complexTypeGenerator.newComplexType();
+		}
+		Map<String, ModifiableComplexType> types = sharedTypes.get(parent);
+		if (types == null) {
+			types = new HashMap<String, ModifiableComplexType>();
+			sharedTypes.put(parent, types);
+		}
+		ModifiableComplexType type = types.get(fieldName);
+		if (type == null) {
+			type = complexTypeGenerator.newComplexType();
+			types.put(fieldName, type);
+		}
+		return type;
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private void unmarshalSingle(CountingReadableContainer<CharBuffer> readable, String fieldName, ComplexContent content, Integer index, boolean inDynamic, String rawFieldName) throws IOException, ParseException {
+	private void unmarshalSingle(JSONTokenizer tokenizer, int first, String fieldName, ComplexContent content, Integer index, boolean inDynamic, String rawFieldName, Element<?> known) throws IOException, ParseException {
 		Object value = null;
 		
-		Element<?> element = null;
+		Element<?> element = known;
 		
-		if (content != null) {
-			element = getRawChild(content.getType(), rawFieldName);
-			if (element == null) {
-				element = content.getType().get(fieldName);
-			}
-			// check if it exists as an attribute
-			// this ensures compatibility with XML structures where fields may be expressed as attributes
-			if (element == null && allowAttributeFallback) {
-				if (element == null) {
-					element = getRawChild(content.getType(), "@" + rawFieldName);
-				}
-				if (element == null) {
-					element = content.getType().get("@" + fieldName);
-				}
-			}
+		JSONUnmarshalPlan plan = content == null ? null : getPlan(content.getType());
+		if (plan != null && element == null) {
+			// this includes the fallback to attributes which ensures compatibility with XML structures where fields may be expressed as attributes
+			element = plan.resolve(rawFieldName, fieldName, allowAttributeFallback);
 		}
 		
 		// could be working with aliases
@@ -401,250 +1354,209 @@ public class JSONUnmarshaller {
 		boolean isExplicitNull = false;
 		
 		boolean dynamicToKeyValue = false;
-		switch(single[0]) {
-			case '{':
+		JSONUnmarshalPlan.ElementPlan elementPlan = element == null ? null : plan.getElement(element);
+		// raw elements get the json exactly as it appears in the source, whatever the type of the value
+		// a string receiving an object or an array gets it as json as well
+		if (elementPlan != null && (elementPlan.raw || (elementPlan.string && (first == '{' || first == '[')))) {
+			value = readRaw(tokenizer, first, elementPlan.maxLength, element.getName());
+			isExplicitNull = value == null;
+		}
+		else {
+			switch(first) {
+				case '{':
 				
-				// check if we are dealing with a java map
-				CollectionHandlerProvider collectionHandler = element == null ? null : ValueUtils.getValue(CollectionHandlerProviderProperty.getInstance(), element.getProperties());
-				if (enableMapSupport && collectionHandler != null && Map.class.isAssignableFrom(collectionHandler.getCollectionClass())) {
-					Object object = content.get(element.getName());
-					if (object == null) {
-						object = new LinkedHashMap<String, Object>();
-						content.set(element.getName(), object);
-					}
-					// recursively parse
-					try {
-						readField(readable, ComplexContentWrapperFactory.getInstance().getWrapper().wrap(object), inDynamic);
-					}
-					catch (ParseException e) {
-						System.err.println("Could not parse field '" + fieldName + "' (index: " + index + ")");
-						throw e;
-					}
-					// we don't want the standard further handling, it doesn't work for maps
-					return;
-				}
-				// if we have complex content and we are trying to assign to a string value, don't parse it further, just do depth counting and assign it all as a string
-				else if (element != null && element.getType() instanceof SimpleType && String.class.equals(((SimpleType<?>) element.getType()).getInstanceClass())) {
-					// we start at depth 1 cause we have the opening bracket
-					int depth = 1;
-					StringBuilder result = new StringBuilder();
-					Integer maxLength = ValueUtils.getValue(MaxLengthProperty.getInstance(), element.getProperties());
-					if (maxLength == null) {
-						maxLength = MAX_SIZE;
-					}
-					// subtract 1 for the opening curly brace! ;)
-					maxLength--;
-					while (depth > 0) {
-						DelimitedCharContainer delimited = IOUtils.delimit(IOUtils.limitReadable(readable, maxLength - result.length()), "}");
-						String fieldValue = IOUtils.toString(delimited);
-						if (!delimited.isDelimiterFound()) {
-							throw new ParseException("Could not find closing '}' for stringified field '" + element.getName() + "' within the allotted look ahead space", 0);
+					// check if we are dealing with a java map
+					CollectionHandlerProvider collectionHandler = element == null ? null : plan.getElement(element).collectionHandler;
+					if (enableMapSupport && collectionHandler != null && Map.class.isAssignableFrom(collectionHandler.getCollectionClass())) {
+						Object object = content.get(element.getName());
+						if (object == null) {
+							object = new LinkedHashMap<String, Object>();
+							content.set(element.getName(), object);
+						}
+						// recursively parse
+						try {
+							readField(tokenizer, ComplexContentWrapperFactory.getInstance().getWrapper().wrap(object), inDynamic);
 						}
-						// increase depth if necessary
-						depth += fieldValue.length() - fieldValue.replace("{", "").length();
-						// we read until a closing } so take that into account
-						depth--;
-						// we re-append the stripped "}"
-						result.append(fieldValue).append("}");
+						catch (ParseException e) {
+							System.err.println("Could not parse field '" + fieldName + "' (index: " + index + ")");
+							throw e;
+						}
+						// we don't want the standard further handling, it doesn't work for maps
+						return;
 					}
-					// we also reappend the initial opening { that led us down this path
-					value = "{" + result.toString();
-				}
-				else {
-					String dynamicKey = null;
-					// if we can't find an element by that name but we do find a list element which has a dynamic name property, we assume we can map it there
-					if (element == null && content != null) {
-						for (Element<?> potential : TypeUtils.getAllChildren(content.getType())) {
-							Value<String> dynamicName = potential.getProperty(DynamicNameProperty.getInstance());
-							if (dynamicName != null && dynamicName.getValue() != null && potential.getType() instanceof ComplexType && potential.getType().isList(potential.getProperties())) {
-								element = potential;
-								dynamicKey = dynamicName.getValue();
-								// we get the current element so we can get the index
-								Object object = content.get(element.getName());
-								if (object == null || !((Iterable) object).iterator().hasNext()) {
-									index = 0;
-								}
-								else {
-									index = ((List) object).size();
+					else {
+						String dynamicKey = null;
+						// if we can't find an element by that name but we do find a list element which has a dynamic name property, we assume we can map it there
+						if (element == null && content != null && plan.getDynamicNameElement() != null) {
+							element = plan.getDynamicNameElement();
+							dynamicKey = plan.getElement(element).dynamicName;
+							// we get the current element so we can get the index
+							Object object = content.get(element.getName());
+							if (object == null || !((Iterable) object).iterator().hasNext()) {
+								index = 0;
+							}
+							else {
+								index = ((List) object).size();
+							}
+						}
+					
+						// if we have an Object, we want dynamic behavior to kick in, an object can't really do much
+						// if we allow dynamic elements, create one
+						if (allowDynamicElements && complexTypeGenerator != null && content != null && (element == null || plan.getElement(element).object)) {
+							// if we get here the element is either null or a java.lang.Object
+							boolean isObject = element != null;
+							ModifiableComplexType dynamicType = newDynamicType(content.getType(), fieldName);
+							if (index == null) {
+								element = new ComplexElementImpl(fieldName, dynamicType, content.getType());
+							}
+							else {
+								element = new ComplexElementImpl(fieldName, dynamicType, content.getType(), new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0));
+							}
+							// if we have a raw field name, add it to alias
+							if (!rawFieldName.equals(fieldName)) {
+								element.setProperty(new ValueImpl<String>(AliasProperty.getInstance(), rawFieldName));
+							}
+							if ((addDynamicElementDefinitions || inDynamic) && content.getType() instanceof ModifiableComplexType) {
+								plan = define(tokenizer, content.getType(), element);
+								if (plan == null) {
+									skipValue(tokenizer, first);
+									return;
 								}
-								break;
 							}
+							else if (!inDynamic) {
+								// only set this to true if we didn't start out with a java.lang.Object
+								// if we did start out that way, we can simply reuse the existing field to put the dynamic stuff in
+								dynamicToKeyValue = !isObject;
+							}
+							inDynamic = true;
 						}
-					}
 					
-					// if we have an Object, we want dynamic behavior to kick in, an object can't really do much
-					// if we allow dynamic elements, create one
-					if (allowDynamicElements && complexTypeGenerator != null && content != null && (element == null || (element.getType() instanceof BeanType && ((BeanType<?>) element.getType()).getBeanClass().equals(Object.class)))) {
-						// if we get here the element is either null or a java.lang.Object
-						boolean isObject = element != null;
-						if (index == null) {
-							element = new ComplexElementImpl(fieldName, complexTypeGenerator.newComplexType(), content.getType());
+						// if we already already in content=null scenario, we are past caring
+						if (!ignoreUnknownElements && element == null && content != null) {
+							throw new ParseException("The field " + fieldName + " is unexpected at this position", 0);
 						}
-						else {
-							element = new ComplexElementImpl(fieldName, complexTypeGenerator.newComplexType(), content.getType(), new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0));
+						// sometimes people will use varying definitions for a type (sometimes string, sometimes complex type)
+						// currently the only usecase that we have encountered is swaggers, and then only in like the comment/freestyle section (which is less relevant anyway)
+						// so we offer the ability to...ignore it!
+						else if (element != null && !(element.getType() instanceof ComplexType)) {
+							if (ignoreInconsistentTypes) {
+								element = null;
+							}
+							else {
+								throw new ParseException("The field " + fieldName + " is not a complex type", 0);
+							}
 						}
-						// if we have a raw field name, add it to alias
-						if (!rawFieldName.equals(fieldName)) {
-							element.setProperty(new ValueImpl<String>(AliasProperty.getInstance(), rawFieldName));
+					
+						ComplexContent child = element == null ? null : ((ComplexType) element.getType()).newInstance();
+					
+						// add the field name
+						if (dynamicKey != null) {
+							child.set(dynamicKey, fieldName);
+							// we must update the field name to match the element, but only after we log it in the instance
+							fieldName = element.getName();
 						}
-						if ((addDynamicElementDefinitions || inDynamic) && content.getType() instanceof ModifiableComplexType) {
-							((ModifiableComplexType) content.getType()).add(element);
+					
+						// there is nowhere to put it, so we simply skip to the end
+						if (child == null) {
+							skipValue(tokenizer, first);
+							break;
 						}
-						else if (!inDynamic) {
-							// only set this to true if we didn't start out with a java.lang.Object
-							// if we did start out that way, we can simply reuse the existing field to put the dynamic stuff in
-							dynamicToKeyValue = !isObject;
+						// recursively parse
+						String parentPath = path;
+						if (isTrackingPath()) {
+							path = path == null ? fieldName : path + "/" + fieldName;
 						}
-						inDynamic = true;
-					}
-					
-					// if we already already in content=null scenario, we are past caring
-					if (!ignoreUnknownElements && element == null && content != null) {
-						throw new ParseException("The field " + fieldName + " is unexpected at this position", 0);
-					}
-					// sometimes people will use varying definitions for a type (sometimes string, sometimes complex type)
-					// currently the only usecase that we have encountered is swaggers, and then only in like the comment/freestyle section (which is less relevant anyway)
-					// so we offer the ability to...ignore it!
-					else if (element != null && !(element.getType() instanceof ComplexType)) {
-						if (ignoreInconsistentTypes) {
-							element = null;
+						try {
+							readField(tokenizer, child, inDynamic);
 						}
-						else {
-							throw new ParseException("The field " + fieldName + " is not a complex type", 0);
+						catch (ParseException e) {
+							System.err.println("Could not parse field '" + fieldName + "' (index: " + index + ")");
+							throw e;
 						}
-					}
-					
-					ComplexContent child = element == null ? null : ((ComplexType) element.getType()).newInstance();
+						path = parentPath;
+						value = child;
 					
-					// add the field name
-					if (dynamicKey != null) {
-						child.set(dynamicKey, fieldName);
-						// we must update the field name to match the element, but only after we log it in the instance
-						fieldName = element.getName();
 					}
-					
-					// recursively parse
-					try {
-						readField(readable, child, inDynamic);
+				break;
+				case '"':
+	//				DelimitedCharContainer delimited = IOUtils.delimit(IOUtils.limitReadable(readable, MAX_SIZE), "[^\\\\]*\"$", 2);
+					Integer maxLength = element == null ? null : plan.getElement(element).maxLength;
+					if (maxStringLength > 0) {
+						maxLength = null;
 					}
-					catch (ParseException e) {
-						System.err.println("Could not parse field '" + fieldName + "' (index: " + index + ")");
-						throw e;
+					else if (maxLength == null) {
+						maxLength = MAX_SIZE;
 					}
-					value = child;
-					
-				}
-			break;
-			case '"':
-//				DelimitedCharContainer delimited = IOUtils.delimit(IOUtils.limitReadable(readable, MAX_SIZE), "[^\\\\]*\"$", 2);
-				Integer maxLength = element == null ? null : ValueUtils.getValue(MaxLengthProperty.getInstance(), element.getProperties());
-				if (maxLength == null) {
-					maxLength = MAX_SIZE;
-				}
-				// @2025-09-09: if you set an actual max size that matches _exactly_ with the content (e.g. country code with limit 2)
-				// so, if we only look ahead by the defined max size, we will never see the actual delimiter if it _is_ that max size!
-				// however, it seems that encoding for characters does not count towards the max length, so suppose the value is A", it has to be encoded as A\"
-				// however, that still counts as max size 2, even though it is 3 characters, because it's a transport thing
-				// for this reason, it becomes nearly impossible to guesstimate the actual possible size based on the max length
-				// the mechanism was added to allow mostly for _bigger_ strings (e.g. base64), so we just put a bottom on the max size
-				else if (maxLength < MAX_SIZE) {
-					maxLength = MAX_SIZE;
-				}
-				DelimitedCharContainer delimited = IOUtils.delimit(IOUtils.limitReadable(readable, maxLength), "\"", '\\');
-				String fieldValue = IOUtils.toString(delimited);
-				if (!delimited.isDelimiterFound()) {
-					throw new ParseException("Could not find the closing quote of the string value", 0);
-				}
-				if (replaceNonBreakingSpaces && fieldValue != null) {
-					fieldValue = fieldValue.replace("\u00A0", " ");
-				}
-				fieldValue = unescape(fieldValue, allowNilUnicode);
-				if (decodeUnicode) {
-					Pattern pattern = Pattern.compile("\\\\u([0-9a-f]{4})");
-					Matcher matcher = pattern.matcher(fieldValue);
-					while(matcher.find()) {
-						// unless explicitly toggled, we do not allow for 0 to be injected
-						// this can lead to odd scenarios because most c-based systems do not interact well with 0 in a string
-						// in particular for example XML parsing will fail, postgresql jdbc driver will fail etc
-						if (allowNilUnicode || !"0000".equals(matcher.group(1))) {
-							fieldValue = fieldValue.replace(matcher.group(), new String(new char [] { (char) Integer.parseInt(matcher.group(1), 16) }));
-						}
-						// instead we replace it, so it does not show up at all
-						else {
-							fieldValue = fieldValue.replace(matcher.group(), "");
-						}
+					// @2025-09-09: if you set an actual max size that matches _exactly_ with the content (e.g. country code with limit 2)
+					// so, if we only look ahead by the defined max size, we will never see the actual delimiter if it _is_ that max size!
+					// however, it seems that encoding for characters does not count towards the max length, so suppose the value is A", it has to be encoded as A\"
+					// however, that still counts as max size 2, even though it is 3 characters, because it's a transport thing
+					// for this reason, it becomes nearly impossible to guesstimate the actual possible size based on the max length
+					// the mechanism was added to allow mostly for _bigger_ strings (e.g. base64), so we just put a bottom on the max size
+					else if (maxLength < MAX_SIZE) {
+						maxLength = MAX_SIZE;
 					}
-				}
-				value = fieldValue;
-			break;
-			// has to be a native type (number or boolean)
-			default:
-				// should spell true
-				if (single[0] == 't' || single[0] == 'T') {
-					String rest = IOUtils.toString(IOUtils.limitReadable(readable, 3));
-					if (!rest.equalsIgnoreCase("rue")) {
-						throw new ParseException("The value " + single[0] + rest + " is not valid", 0);
+					if (!tokenizer.scanString(maxLength == null ? maxStringLength : maxLength)) {
+						throw new ParseException("Could not find the closing quote of the string value" + (maxLength == null ? " within the maximum length of " + maxStringLength : ""), (int) tokenizer.getPosition());
 					}
-					value = true;
-				}
-				// should spell false
-				else if (single[0] == 'f' || single[0] == 'F') {
-					String rest = IOUtils.toString(IOUtils.limitReadable(readable, 4));
-					if (!rest.equalsIgnoreCase("alse")) {
-						throw new ParseException("The value " + single[0] + rest + " is not valid", 0);
+					JSONValueDecoder decoder = element == null || !useValueDecoders ? null : plan.getElement(element).decoder;
+					if (decoder != null) {
+						value = decoder.decode(tokenizer.tokenEscaped ? tokenizer.getString(allowNilUnicode, replaceNonBreakingSpaces) : tokenizer.getSequence());
+						if (value != null) {
+							break;
+						}
 					}
-					value = false;
-				}
-				// should spell "null"
-				else if (single[0] == 'n' || single[0] == 'N') {
-					String rest = IOUtils.toString(IOUtils.limitReadable(readable, 3));
-					if (!rest.equalsIgnoreCase("ull")) {
-						throw new ParseException("The value " + single[0] + rest + " is not valid", 0);
+					String fieldValue = tokenizer.getString(allowNilUnicode, replaceNonBreakingSpaces);
+					value = fieldValue;
+				break;
+				// has to be a native type (number or boolean)
+				default:
+					// should spell true
+					if (first == 't' || first == 'T') {
+						if (!tokenizer.matchIgnoreCase("rue")) {
+							throw new ParseException("The value " + (char) first + tokenizer.peek(3) + " is not valid", (int) tokenizer.getPosition());
+						}
+						value = true;
 					}
-					isExplicitNull = true;
-					value = null;
-				}
-				// must be a number then...
-				else {
-					delimited = IOUtils.delimit(readable, "[^0-9.eE+-]+", 1);
-					value = single[0] + IOUtils.toString(delimited);
-					// interestingly we've had issues with a message like this:
-					// { "type": "TagSeen", "timestamp":"2025-09-03T17:28:40.8547487+02:00", "tags": ["41545356484400000008726A"], "tagswithrssi": [+TAGOBJECT-],  "location": "21" }
-					// which clearly contains an unreplaced placeholder
-					// however because of how this is parsed, it will actually end up with a string containing only "+" and thinking that it is a number
-					// to fully validate a json-compliant number, the following regex can be used:
-					// ^-?(0|[1-9]\d*)(\.\d+)?([eE][+-]?\d+)?$
-					// however, it does not allow numbers like "+0", "1.", "01" which is correct at the JSON spec level, however they _can_ be parsed successfully by java so i want to allow them 
-					if (!((String) value).matches("^.*[0-9]+.*$")) {
-						throw new ParseException("Not a valid number: " + value, 0);
+					// should spell false
+					else if (first == 'f' || first == 'F') {
+						if (!tokenizer.matchIgnoreCase("alse")) {
+							throw new ParseException("The value " + (char) first + tokenizer.peek(4) + " is not valid", (int) tokenizer.getPosition());
+						}
+						value = false;
 					}
-					if (parseNumbers) {
-						try {
-							if (((String) value).contains(".")) {
-								value = Double.parseDouble((String) value);
-							}
-							else {
-								value = Long.parseLong((String) value);
-							}
+					// should spell "null"
+					else if (first == 'n' || first == 'N') {
+						if (!tokenizer.matchIgnoreCase("ull")) {
+							throw new ParseException("The value " + (char) first + tokenizer.peek(3) + " is not valid", (int) tokenizer.getPosition());
 						}
-						catch (Exception e) {
-							try {
-								if (((String) value).contains(".")) {
-									value = new BigDecimal((String) value);
-								}
-								else {
-									value = new BigInteger((String) value);
-								}
-							}
-							catch (Exception e1) {
-								// just leave it as string
-							}
+						isExplicitNull = true;
+						value = null;
+					}
+					// must be a number then...
+					else {
+						tokenizer.scanNumber();
+						// interestingly we've had issues with a message like this:
+						// { "type": "TagSeen", "timestamp":"2025-09-03T17:28:40.8547487+02:00", "tags": ["41545356484400000008726A"], "tagswithrssi": [+TAGOBJECT-],  "location": "21" }
+						// which clearly contains an unreplaced placeholder
+						// however because of how this is parsed, it will actually end up with a string containing only "+" and thinking that it is a number
+						// to fully validate a json-compliant number, the following regex can be used:
+						// ^-?(0|[1-9]\d*)(\.\d+)?([eE][+-]?\d+)?$
+						// however, it does not allow numbers like "+0", "1.", "01" which is correct at the JSON spec level, however they _can_ be parsed successfully by java so i want to allow them 
+						if (!tokenizer.hasDigit()) {
+							throw new ParseException("Not a valid number: " + tokenizer.getToken(), (int) tokenizer.getPosition());
+						}
+						decoder = element == null || !useValueDecoders ? null : plan.getElement(element).decoder;
+						value = decoder == null ? null : decoder.decode(tokenizer.getSequence());
+						if (value == null && parseNumbers) {
+							value = tokenizer.getNumber();
+						}
+						// if we can't parse it, just leave it as string
+						if (value == null) {
+							value = tokenizer.getToken();
 						}
 					}
-					// the number is delimited by something that is not a number and this is very likely a valid part of the json syntax
-					// push this back onto the buffer so it is taken into account for the next parse
-					buffer.write(IOUtils.wrap(delimited.getMatchedDelimiter()));
-				}
+			}
 		}
 		if (ignoreEmptyStrings && value instanceof String && ((String) value).isEmpty()) {
 			value = null;
@@ -652,38 +1564,32 @@ public class JSONUnmarshaller {
 		if (value != null) {
 			// if we have a simple type and no element, first check if we have a dynamic key element with exactly one other field (no matter the name), we assume this is it
 			if (!(value instanceof ComplexContent) && element == null && content != null) {
-				for (Element<?> potential : TypeUtils.getAllChildren(content.getType())) {
-					Value<String> dynamicName = potential.getProperty(DynamicNameProperty.getInstance());
-					if (dynamicName != null && dynamicName.getValue() != null && potential.getType() instanceof ComplexType && potential.getType().isList(potential.getProperties())) {
-						List<Element<?>> allChildren = new ArrayList<Element<?>>(TypeUtils.getAllChildren((ComplexType) potential.getType()));
-						// if we have exactly 2 children (the key field and another field), we assume the other field is our match
-						if (allChildren.size() == 2) {
-							element = potential;
-							String dynamicKey = dynamicName.getValue();
-							// whatever the "other" field is, is the value field
-							String dynamicValue = allChildren.get(0).getName().equals(dynamicKey) ? allChildren.get(1).getName() : allChildren.get(0).getName(); 
-							// we get the current element so we can get the index
-							Object object = content.get(element.getName());
-							if (object == null || !((Iterable) object).iterator().hasNext()) {
-								index = 0;
-							}
-							else {
-								index = ((List) object).size();
-							}
-							ComplexContent newInstance = ((ComplexType) potential.getType()).newInstance();
-							newInstance.set(dynamicKey, fieldName);
-							newInstance.set(dynamicValue, value);
-							value = newInstance;
-							fieldName = element.getName();
-						}
+				// the dynamic key element must have exactly 2 children (the key field and another field), we assume the other field is our match
+				if (plan.getDynamicValueElement() != null) {
+					element = plan.getDynamicValueElement();
+					String dynamicKey = plan.getElement(element).dynamicName;
+					// whatever the "other" field is, is the value field
+					String dynamicValue = plan.getDynamicValueName();
+					// we get the current element so we can get the index
+					Object object = content.get(element.getName());
+					if (object == null || !((Iterable) object).iterator().hasNext()) {
+						index = 0;
+					}
+					else {
+						index = ((List) object).size();
 					}
+					ComplexContent newInstance = ((ComplexType) element.getType()).newInstance();
+					newInstance.set(dynamicKey, fieldName);
+					newInstance.set(dynamicValue, value);
+					value = newInstance;
+					fieldName = element.getName();
 				}
 			}
 			
 			boolean isKeyValuePair = false;
 			// if there is no element, let's see if you have a catch all keyvaluepair list
 			if (content != null && (element == null || dynamicToKeyValue)) {
-				Element<?> keyValueElement = getKeyValueElement(content.getType());
+				Element<?> keyValueElement = plan.getKeyValueElement();
 				if (keyValueElement != null) {
 					element = keyValueElement;
 					isKeyValuePair = true;
@@ -707,7 +1613,10 @@ public class JSONUnmarshaller {
 					element.setProperty(new ValueImpl<String>(AliasProperty.getInstance(), rawFieldName));
 				}
 				if ((addDynamicElementDefinitions || inDynamic) && content.getType() instanceof ModifiableComplexType) {
-					((ModifiableComplexType) content.getType()).add(element);
+					plan = define(tokenizer, content.getType(), element);
+					if (plan == null) {
+						return;
+					}
 				}
 			}
 			if (!ignoreUnknownElements && element == null && content != null) {
@@ -757,7 +1666,7 @@ public class JSONUnmarshaller {
 					}
 				}
 				else {
-					boolean isList = element.getType().isList(element.getProperties());
+					boolean isList = plan.getElement(element).list;
 					// if we set a string value and the target type is different, it will go through "regular" conversion
 					// this is 99% compatible with specific unmarshallable, _except_ for bytes which go through a base64 decode
 					if (value instanceof String && element.getType() instanceof Unmarshallable) {
@@ -809,7 +1718,7 @@ public class JSONUnmarshaller {
 			boolean isKeyValuePair = false;
 			// if there is no element but we are using dynamic key value pairs, do that!
 			if (element == null && content != null) {
-				Element<?> keyValueElement = getKeyValueElement(content.getType());
+				Element<?> keyValueElement = plan.getKeyValueElement();
 				if (keyValueElement != null) {
 					element = keyValueElement;
 					isKeyValuePair = true;
@@ -834,7 +1743,10 @@ public class JSONUnmarshaller {
 					element.setProperty(new ValueImpl<String>(AliasProperty.getInstance(), rawFieldName));
 				}
 				if ((addDynamicElementDefinitions || inDynamic) && content.getType() instanceof ModifiableComplexType) {
-					((ModifiableComplexType) content.getType()).add(element);
+					plan = define(tokenizer, content.getType(), element);
+					if (plan == null) {
+						return;
+					}
 				}
 			}
 			// if we have an element at this point, set the value
@@ -902,79 +1814,10 @@ public class JSONUnmarshaller {
 	}
 	
 	public static String unescapeFull(String content, boolean allowNil) {
-		StringBuilder builder = new StringBuilder();
-		int i = 0;
-		// we don't go to the end cause we generally have to inspect the next char for unescaping
-		for (i = 0; i < content.length() - 1; i++) {
-			char current = content.charAt(i);
-			char next = content.charAt(i + 1);
-			switch(current) {
-				// if we have a slash, we don't want to be preceeded by another slash (for escaping)
-				// suppose we have \\n as actual string value, we'll see \ first, followed by \. well append a single \ and move i + 1
-				// so instead of encountering the second \, we'll find a n and simply add that, ending in \n which is what we want (rather than an actual linefeed!)
-				case '\\':
-					switch(next) {
-						case 'n':
-							builder.append('\n');
-							// skip one
-							i++;
-						break;
-						case 'r':
-							builder.append('\r');
-							i++;
-						break;
-						case 'b':
-							builder.append('\b');
-							i++;
-						break;
-						case 'f':
-							builder.append('\f');
-							i++;
-						break;	
-						case 't':
-							builder.append('\t');
-							i++;
-						break;
-						case '\\':
-						case '/':
-						case '"':
-							builder.append(next);
-							i++;
-						break;
-						// if we have an escaped hex value...
-						case 'u':
-							// the next is already + 1
-							// so suppose length == 10
-							// i == 4 (0-based)
-							// next: 5 (0-based)
-							// we want [6-9] (0-based)
-							// so from the i-perspective, we want 5 more spots
-							if (i < content.length() - 5) {
-								String hex = content.substring(i + 2, i + 6);
-								// if it is 0 and we don't allow that, we simply append nothing
-								if (allowNil || !hex.equals("0000")) {
-									builder.append((char) Integer.parseInt(hex, 16));
-								}
-								i += 5;
-							}
-						break;
-					}
-				break;
-				default:
-					builder.append(current);
-			}
-		}
-		if (i < content.length()) {
-			builder.append(content.substring(i, i + 1));
-		}
-		return builder.toString();
+		char [] characters = content.toCharArray();
+		return JSONCharTokenizer.decode(characters, 0, characters.length, new char[characters.length], allowNil, false);
 	}
 	
-	@SuppressWarnings("unchecked")
-	private ReadableContainer<CharBuffer> ignoreWhitespace(ReadableContainer<CharBuffer> parent) {
-		return IOUtils.ignore(IOUtils.chain(false, buffer, parent), ' ', '\t', '\n', '\r');
-	}
-
 	public ModifiableComplexTypeGenerator getComplexTypeGenerator() {
 		return complexTypeGenerator;
 	}
@@ -1079,6 +1922,89 @@ public class JSONUnmarshaller {
 		this.addDynamicStringsOnly = addDynamicStringsOnly;
 	}
 
+	public boolean isShareDynamicTypes() {
+		return shareDynamicTypes;
+	}
+
+	public void setShareDynamicTypes(boolean shareDynamicTypes) {
+		this.shareDynamicTypes = shareDynamicTypes;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	public int getMaxElements() {
+		return maxElements;
+	}
+
+	public void setMaxElements(int maxElements) {
+		this.maxElements = maxElements;
+	}
+
+	public int getMaxDynamicElements() {
+		return maxDynamicElements;
+	}
+
+	public void setMaxDynamicElements(int maxDynamicElements) {
+		this.maxDynamicElements = maxDynamicElements;
+	}
+
+	public long getMaxDocumentSize() {
+		return maxDocumentSize;
+	}
+
+	public void setMaxDocumentSize(long maxDocumentSize) {
+		this.maxDocumentSize = maxDocumentSize;
+	}
+
+	public long getMaxStringLength() {
+		return maxStringLength;
+	}
+
+	public void setMaxStringLength(long maxStringLength) {
+		this.maxStringLength = maxStringLength;
+	}
+
+	public List<String> getParallelPaths() {
+		return parallelPaths;
+	}
+
+	public void setParallelPaths(List<String> parallelPaths) {
+		this.parallelPaths = parallelPaths;
+		parallelPathMatchers = null;
+		if (parallelPaths != null && !parallelPaths.isEmpty()) {
+			parallelPathMatchers = new ArrayList<ConfiguredPath<String>>();
+			for (String parallelPath : parallelPaths) {
+				parallelPathMatchers.add(new ConfiguredPath<String>(parallelPath, parallelPath));
+			}
+		}
+	}
+
+	public ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	public JSONShapeRegistry getShapeRegistry() {
+		return shapeRegistry;
+	}
+
+	/**
+	 * Fully dynamic documents are parsed into the type of an earlier document with the same shape, see {@link JSONShapeRegistry}.
+	 * Note that this reads the document twice: once to calculate the fingerprint and once to parse it. In between the document is kept in memory, up to the maximum document size of the registry (1MB by default).
+	 */
+	public void setShapeRegistry(JSONShapeRegistry shapeRegistry) {
+		this.shapeRegistry = shapeRegistry;
+	}
+
 	public boolean isAllowNilUnicode() {
 		return allowNilUnicode;
 	}
@@ -1102,4 +2028,105 @@ public class JSONUnmarshaller {
 	public void setEnableMapSupport(boolean enableMapSupport) {
 		this.enableMapSupport = enableMapSupport;
 	}
+
+	public boolean isUseValueDecoders() {
+		return useValueDecoders;
+	}
+
+	public void setUseValueDecoders(boolean useValueDecoders) {
+		this.useValueDecoders = useValueDecoders;
+	}
+
+	public JSONFieldNameCache getFieldNameCache() {
+		return nameCache;
+	}
+
+	/**
+	 * The cache is only used if it was created for the same name settings as this unmarshaller, otherwise a new one is created
+	 */
+	public void setFieldNameCache(JSONFieldNameCache nameCache) {
+		this.nameCache = nameCache;
+	}
+
+	public Window[] getWindows() {
+		return windows;
+	}
+
+	public void setWindows(Window...windows) {
+		this.windows = windows;
+		windowPaths = null;
+		if (windows != null && windows.length > 0) {
+			windowPaths = new ArrayList<ConfiguredPath<Window>>();
+			for (Window window : windows) {
+				windowPaths.add(new ConfiguredPath<Window>(window.getPath(), window));
+			}
+		}
+	}
+
+	public List<String> getProjection() {
+		return projection;
+	}
+
+	/**
+	 * Only the given paths (and everything below them) are parsed, the path can be expressed with or without the name of the root
+	 */
+	public void setProjection(List<String> projection) {
+		this.projection = null;
+		if (projection != null) {
+			// the leading slashes are stripped once rather than for every parse
+			this.projection = new ArrayList<String>();
+			for (String projectedPath : projection) {
+				this.projection.add(normalizePath(projectedPath));
+			}
+		}
+	}
+
+	public Map<String, JSONElementHandler> getHandlers() {
+		return handlers;
+	}
+
+	/**
+	 * Registers handlers by path, the objects in an array at that path are passed to the handler as soon as they are parsed and are not added to the result
+	 */
+	public void setHandlers(Map<String, JSONElementHandler> handlers) {
+		this.handlers = handlers;
+		handlerPaths = null;
+		if (handlers != null && !handlers.isEmpty()) {
+			handlerPaths = new ArrayList<ConfiguredPath<JSONElementHandler>>();
+			for (Map.Entry<String, JSONElementHandler> entry : handlers.entrySet()) {
+				handlerPaths.add(new ConfiguredPath<JSONElementHandler>(entry.getKey(), entry.getValue()));
+			}
+		}
+	}
+
+	/**
+	 * A path that is configured for a window or handler, split once into the part with and without the name of the root.
+	 * The path can be expressed with or without the name of the root, the root can be named differently depending on the type (e.g. the capitalization of a bean) so we are lenient there.
+	 */
+	private static class ConfiguredPath<T> {
+		private String path, root;
+		// the offset of the path without the root, -1 if there is only one segment
+		private int relative = -1;
+		private T target;
+		
+		public ConfiguredPath(String path, T target) {
+			this.path = normalizePath(path);
+			this.target = target;
+			int index = this.path.indexOf('/');
+			if (index > 0) {
+				root = this.path.substring(0, index);
+				relative = index + 1;
+			}
+		}
+		
+		/**
+		 * Checks whether this path points to the given child of the current path
+		 */
+		public boolean matches(String currentPath, String name, String rootName) {
+			if (isChildPath(path, 0, currentPath, name)) {
+				return true;
+			}
+			return relative > 0 && isChildPath(path, relative, currentPath, name) && (rootName == null || rootName.equalsIgnoreCase(root));
+		}
+	}
 }
@@ -0,0 +1,29 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+/**
+ * Decodes a simple value straight from the json, without going through an intermediate string and the unmarshallable type.
+ */
+public interface JSONValueDecoder {
+	/**
+	 * The characters are only valid for the duration of the call.
+	 * Return null if the value is not supported by this decoder, it will then be unmarshalled in the regular way.
+	 */
+	public Object decode(CharSequence value);
+}
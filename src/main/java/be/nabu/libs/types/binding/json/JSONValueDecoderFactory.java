@@ -0,0 +1,60 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import be.nabu.libs.types.api.Element;
+
+/**
+ * The registry of typed decoders, providers that are registered later take precedence over the ones that were registered before them (including the default ones).
+ * Decoders are resolved when the unmarshaller first encounters a type, so providers should be registered before that.
+ */
+public class JSONValueDecoderFactory {
+	
+	private static JSONValueDecoderFactory instance = new JSONValueDecoderFactory();
+	
+	public static JSONValueDecoderFactory getInstance() {
+		return instance;
+	}
+	
+	private List<JSONValueDecoderProvider> providers = new CopyOnWriteArrayList<JSONValueDecoderProvider>();
+	
+	public JSONValueDecoderFactory() {
+		providers.add(new JSONDefaultDecoderProvider());
+	}
+	
+	public void register(JSONValueDecoderProvider provider) {
+		providers.add(0, provider);
+	}
+	
+	public void unregister(JSONValueDecoderProvider provider) {
+		providers.remove(provider);
+	}
+	
+	public JSONValueDecoder getDecoder(Element<?> element) {
+		for (JSONValueDecoderProvider provider : providers) {
+			JSONValueDecoder decoder = provider.getDecoder(element);
+			if (decoder != null) {
+				return decoder;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,195 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.DefinedSimpleType;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.Marshallable;
+import be.nabu.libs.types.api.SimpleType;
+
+/**
+ * Writes a simple value straight to the output, bypassing the marshallable type and the escaping.
+ * Encoders are only used for types whose output does not depend on the properties of the element, elements with formatting properties simply go through the marshallable type.
+ * They are resolved once per element in the {@link JSONMarshalPlan} of its parent type.
+ */
+abstract class JSONValueEncoder {
+
+	// if any of these properties are set, the element has specific formatting needs that we don't want to replicate
+	private static List<String> formattingProperties = Arrays.asList("format", "timezone", "language", "country");
+	
+	/**
+	 * Writes the value (including quotes if necessary), returns false if it can not handle this particular value in which case nothing is written
+	 */
+	abstract boolean encode(Writer writer, Object value) throws IOException;
+	
+	/**
+	 * Returns the encoder for the element or null if it should go through the marshallable type
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static JSONValueEncoder newEncoder(Element<?> element) {
+		if (!(element.getType() instanceof SimpleType) || !(element.getType() instanceof Marshallable) || isFormatted(element.getProperties()) || isFormatted(element.getType().getProperties())) {
+			return null;
+		}
+		Class<?> instanceClass = ((SimpleType<?>) element.getType()).getInstanceClass();
+		if (instanceClass == null) {
+			return null;
+		}
+		// derived types (e.g. restrictions) might format their values differently, we only take over from the default type for the class
+		DefinedSimpleType<?> defaultType = SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(instanceClass);
+		if (defaultType == null || !defaultType.getClass().equals(element.getType().getClass())) {
+			return null;
+		}
+		if (Date.class.equals(instanceClass)) {
+			return new DateEncoder();
+		}
+		else if (instanceClass.isEnum()) {
+			Marshallable marshallable = (Marshallable) element.getType();
+			Object [] constants = instanceClass.getEnumConstants();
+			char [][] marshalled = new char[constants.length][];
+			for (int i = 0; i < constants.length; i++) {
+				String value;
+				try {
+					value = marshallable.marshal(constants[i], element.getProperties());
+				}
+				// if the type does not like its own constants, we don't use an encoder
+				catch (RuntimeException e) {
+					return null;
+				}
+				// we only keep the ones that don't need escaping, that way the encoder does not depend on the escaping settings
+				if (value == null || !value.equals(JSONBinding.escape(value, false, false))) {
+					return null;
+				}
+				marshalled[i] = ("\"" + value + "\"").toCharArray();
+			}
+			return new EnumEncoder(instanceClass, marshalled);
+		}
+		return null;
+	}
+	
+	private static boolean isFormatted(Value<?>...properties) {
+		if (properties != null) {
+			for (Value<?> value : properties) {
+				if (value != null && value.getValue() != null && formattingProperties.contains(value.getProperty().getName())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Writes iso 8601 timestamps in the default timezone with milliseconds, like 2024-01-31T13:45:00.123+02:00, which is the default format of the date type
+	 */
+	private static class DateEncoder extends JSONValueEncoder {
+		
+		@Override
+		boolean encode(Writer writer, Object value) throws IOException {
+			// subclasses like timestamps might be formatted differently
+			if (value == null || !Date.class.equals(value.getClass())) {
+				return false;
+			}
+			long time = ((Date) value).getTime();
+			// like the date type, we use the default timezone at the time of formatting
+			int offset = TimeZone.getDefault().getOffset(time);
+			long local = time + offset;
+			long days = Math.floorDiv(local, 86400000l);
+			int millisOfDay = (int) Math.floorMod(local, 86400000l);
+			// the civil date for the days since the epoch (proleptic gregorian)
+			long shifted = days + 719468;
+			long era = (shifted >= 0 ? shifted : shifted - 146096) / 146097;
+			long dayOfEra = shifted - era * 146097;
+			long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+			long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+			long monthPart = (5 * dayOfYear + 2) / 153;
+			int day = (int) (dayOfYear - (153 * monthPart + 2) / 5 + 1);
+			int month = (int) (monthPart < 10 ? monthPart + 3 : monthPart - 9);
+			long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+			// outside of this range the calendar of the date type (julian before the cutover) and the amount of digits differ
+			if (year <= 1582 || year > 9999) {
+				return false;
+			}
+			char [] buffer = new char[31];
+			int length = 0;
+			buffer[length++] = '"';
+			length = digits(buffer, length, (int) year, 4);
+			buffer[length++] = '-';
+			length = digits(buffer, length, month, 2);
+			buffer[length++] = '-';
+			length = digits(buffer, length, day, 2);
+			buffer[length++] = 'T';
+			length = digits(buffer, length, millisOfDay / 3600000, 2);
+			buffer[length++] = ':';
+			length = digits(buffer, length, (millisOfDay / 60000) % 60, 2);
+			buffer[length++] = ':';
+			length = digits(buffer, length, (millisOfDay / 1000) % 60, 2);
+			buffer[length++] = '.';
+			length = digits(buffer, length, millisOfDay % 1000, 3);
+			if (offset == 0) {
+				buffer[length++] = 'Z';
+			}
+			else {
+				int minutes = Math.abs(offset) / 60000;
+				buffer[length++] = offset < 0 ? '-' : '+';
+				length = digits(buffer, length, minutes / 60, 2);
+				buffer[length++] = ':';
+				length = digits(buffer, length, minutes % 60, 2);
+			}
+			buffer[length++] = '"';
+			writer.write(buffer, 0, length);
+			return true;
+		}
+		
+		private static int digits(char [] buffer, int position, int value, int amount) {
+			for (int i = position + amount - 1; i >= position; i--) {
+				buffer[i] = (char) ('0' + value % 10);
+				value /= 10;
+			}
+			return position + amount;
+		}
+	}
+	
+	private static class EnumEncoder extends JSONValueEncoder {
+		private Class<?> enumClass;
+		// the quoted value for every constant by ordinal
+		private char [][] marshalled;
+		
+		EnumEncoder(Class<?> enumClass, char [][] marshalled) {
+			this.enumClass = enumClass;
+			this.marshalled = marshalled;
+		}
+		
+		@SuppressWarnings("rawtypes")
+		@Override
+		boolean encode(Writer writer, Object value) throws IOException {
+			if (!(value instanceof Enum) || !enumClass.equals(((Enum) value).getDeclaringClass())) {
+				return false;
+			}
+			writer.write(marshalled[((Enum) value).ordinal()]);
+			return true;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.text.ParseException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.LoggerFactory;
+
+import be.nabu.libs.types.TypeUtils;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.java.BeanType;
+import be.nabu.utils.io.IOUtils;
+
+/**
+ * A list for a windowed array: the raw json of every object in the array is spooled to a temporary file while parsing and is only parsed when it is accessed.
+ * At most the size of the window (or the batch size if that is bigger) is kept in memory, the batch size determines how many objects are parsed at once.
+ * The temporary file is removed when the list is closed or, because the list usually ends up deep inside the parsed content, once the list is garbage collected.
+ */
+class JSONWindowedList extends AbstractList<Object> implements Closeable {
+
+	// the spools of lists that have been garbage collected end up here
+	private static final ReferenceQueue<JSONWindowedList> released = new ReferenceQueue<JSONWindowedList>();
+	// the spools are kept reachable until they are cleaned up
+	private static final Set<Spool> spools = Collections.newSetFromMap(new ConcurrentHashMap<Spool, Boolean>());
+	
+	static {
+		Thread cleaner = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (true) {
+					try {
+						((Spool) released.remove()).close();
+					}
+					catch (InterruptedException e) {
+						return;
+					}
+					catch (Exception e) {
+						LoggerFactory.getLogger(JSONWindowedList.class).warn("Could not clean up a json window", e);
+					}
+				}
+			}
+		}, "json-window-cleaner");
+		cleaner.setDaemon(true);
+		cleaner.start();
+	}
+
+	private Window window;
+	private ComplexType type;
+	// if the element is a bean, we return beans, not complex content
+	private Class<?> beanClass;
+	private JSONUnmarshaller unmarshaller;
+	
+	private Spool spool;
+	// the start of every object in the file, the end of the last one is the file size
+	private long [] offsets = new long[64];
+	private long written;
+	private int size;
+	
+	// the objects currently in memory by index, in access order
+	private Map<Integer, Object> loaded;
+	
+	JSONWindowedList(Window window, Element<?> element, JSONUnmarshaller unmarshaller) {
+		this.window = window;
+		this.type = (ComplexType) element.getType();
+		this.beanClass = type instanceof BeanType ? ((BeanType<?>) type).getBeanClass() : null;
+		this.unmarshaller = unmarshaller;
+		final int capacity = Math.max(1, Math.max(window.getSize(), window.getBatchSize()));
+		this.loaded = new LinkedHashMap<Integer, Object>(capacity * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Object> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+	
+	/**
+	 * Spools the object that was last scanned by the tokenizer
+	 */
+	void add(JSONTokenizer tokenizer) throws IOException {
+		if (spool == null) {
+			spool = new Spool(this, File.createTempFile("json-window", ".json"));
+			spools.add(spool);
+		}
+		if (size == offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		offsets[size++] = written;
+		written += tokenizer.writeToken(spool.output);
+	}
+	
+	/**
+	 * Called once the whole array has been spooled
+	 */
+	void seal() throws IOException {
+		if (spool != null) {
+			spool.output.close();
+		}
+	}
+	
+	@Override
+	public synchronized Object get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is not within the " + size + " elements");
+		}
+		Object object = loaded.get(index);
+		if (object == null && !loaded.containsKey(index)) {
+			try {
+				load(index);
+			}
+			catch (Exception e) {
+				throw new RuntimeException("Could not load element " + index + " of the window " + window.getPath(), e);
+			}
+			object = loaded.get(index);
+		}
+		return object;
+	}
+	
+	private void load(int index) throws IOException, ParseException {
+		if (spool == null) {
+			throw new IOException("The window is closed");
+		}
+		if (spool.input == null) {
+			spool.input = new RandomAccessFile(spool.file, "r");
+		}
+		RandomAccessFile input = spool.input;
+		int batch = Math.max(1, window.getBatchSize());
+		// we load the batch the index is in
+		int from = (index / batch) * batch;
+		int to = Math.min(size, from + batch);
+		long end = to == size ? input.length() : offsets[to];
+		input.seek(offsets[from]);
+		for (int i = from; i < to; i++) {
+			byte [] bytes = new byte[(int) ((i == to - 1 ? end : offsets[i + 1]) - offsets[i])];
+			input.readFully(bytes);
+			ComplexContent content = unmarshaller.unmarshal(new JSONByteTokenizer(IOUtils.wrap(bytes, true)), type);
+			loaded.put(i, beanClass == null ? content : TypeUtils.getAsBean(content, beanClass));
+		}
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The temporary file, this is null if nothing was spooled or the list was closed
+	 */
+	File getFile() {
+		return spool == null ? null : spool.file;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (spool != null) {
+			spool.close();
+			spool = null;
+		}
+		loaded.clear();
+	}
+	
+	/**
+	 * The resources of the list, they must not refer back to the list or it would never be collected
+	 */
+	private static class Spool extends PhantomReference<JSONWindowedList> {
+		private File file;
+		private OutputStream output;
+		private RandomAccessFile input;
+		
+		private Spool(JSONWindowedList list, File file) throws IOException {
+			super(list, released);
+			this.file = file;
+			this.output = new BufferedOutputStream(new FileOutputStream(file));
+		}
+		
+		private void close() throws IOException {
+			spools.remove(this);
+			clear();
+			try {
+				output.close();
+				if (input != null) {
+					input.close();
+				}
+			}
+			finally {
+				file.delete();
+			}
+		}
+	}
+}
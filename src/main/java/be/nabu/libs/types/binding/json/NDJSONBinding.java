@@ -0,0 +1,266 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import be.nabu.libs.property.api.Value;
+import be.nabu.libs.types.CollectionHandlerFactory;
+import be.nabu.libs.types.ComplexContentWrapperFactory;
+import be.nabu.libs.types.TypeUtils;
+import be.nabu.libs.types.api.CollectionHandlerProvider;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.ModifiableComplexType;
+import be.nabu.libs.types.api.ModifiableComplexTypeGenerator;
+import be.nabu.libs.types.base.ComplexElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.utils.io.IOUtils;
+
+/**
+ * Newline delimited json (also known as json lines): every record is a compact json object on a line of its own.
+ * Much like a root array with ignoreRootIfArrayWrapper, the type should have a single list element that holds the records.
+ * When reading, root objects that are simply concatenated are accepted as well.
+ */
+public class NDJSONBinding extends JSONBinding {
+
+	// flush the output after this amount of records, 0 means we only flush at the end
+	private int flushInterval;
+	
+	public NDJSONBinding(ModifiableComplexTypeGenerator complexTypeGenerator, Charset charset) {
+		super(complexTypeGenerator, charset);
+	}
+
+	public NDJSONBinding(ComplexType type, Charset charset) {
+		super(type, charset);
+	}
+
+	public NDJSONBinding(ComplexType type) {
+		super(type);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	public void marshal(OutputStream output, ComplexContent content, Value<?>...values) throws IOException {
+		Element<?> element = getRecordElement(content.getType(), false);
+		// not a wrapper, the content is the only record
+		if (element == null) {
+			marshal(output, Arrays.asList(content));
+			return;
+		}
+		Object value = content.get(element.getName());
+		if (value == null) {
+			value = new ArrayList<Object>();
+		}
+		else if (!(value instanceof Iterable)) {
+			CollectionHandlerProvider handler = CollectionHandlerFactory.getInstance().getHandler().getHandler(value.getClass());
+			if (handler == null) {
+				throw new IllegalArgumentException("Can not find collection handler for " + value.getClass() + ": " + value);
+			}
+			value = handler.getAsIterable(value);
+		}
+		marshal(output, (Iterable) value, element);
+	}
+	
+	/**
+	 * Writes the records one per line as they are iterated over, the iterable can be lazy
+	 */
+	public void marshal(OutputStream output, Iterable<?> records) throws IOException {
+		marshal(output, records, getRecordElement(getType(), false));
+	}
+	
+	private void marshal(OutputStream output, Iterable<?> records, Element<?> element) throws IOException {
+		Writer writer = new OutputStreamWriter(output, getCharset());
+		int count = 0;
+		for (Object record : records) {
+			// the records themselves are never null in json lines
+			if (record == null) {
+				continue;
+			}
+			if (element != null) {
+				marshal(writer, record, element, 0);
+			}
+			else {
+				if (!(record instanceof ComplexContent)) {
+					Object converted = ComplexContentWrapperFactory.getInstance().getWrapper().wrap(record);
+					if (converted == null) {
+						throw new ClassCastException("Can not convert " + record + " to a complex content");
+					}
+					record = converted;
+				}
+				marshal(writer, (ComplexContent) record, 0);
+			}
+			writer.write("\n");
+			if (flushInterval > 0 && ++count % flushInterval == 0) {
+				writer.flush();
+			}
+		}
+		writer.flush();
+	}
+
+	/**
+	 * The unmarshaller and tokenizer are set up by the json binding, this reads the records instead of a single document
+	 */
+	@Override
+	ComplexContent unmarshal(JSONUnmarshaller unmarshaller, JSONTokenizer tokenizer, ComplexType type, Value<?>... values) throws IOException, ParseException {
+		Element<?> element = getRecordElement(type, true);
+		if (element == null) {
+			throw new ParseException("The type " + type.getName() + " should have a single list element to hold the records", 0);
+		}
+		// the handlers are for the records, not for the paths within them
+		unmarshaller.setHandlers(null);
+		// the plans and the like are kept for all the records
+		unmarshaller.prepare((ComplexType) element.getType());
+		JSONElementHandler handler = getHandler(element.getName());
+		ComplexContent instance = type.newInstance();
+		int index = 0;
+		ComplexContent record;
+		while ((record = unmarshaller.readRecord(tokenizer, (ComplexType) element.getType())) != null) {
+			if (handler != null) {
+				handler.handle(instance, element, index++, record);
+			}
+			else {
+				instance.set(element.getName() + "[" + index++ + "]", record);
+			}
+		}
+		if (index == 0 && handler == null && isSetEmptyArrays()) {
+			instance.set(element.getName(), new ArrayList<Object>());
+		}
+		return instance;
+	}
+	
+	/**
+	 * Reads the records one at a time, only the current record is kept in memory
+	 */
+	public Iterator<ComplexContent> iterate(InputStream input) {
+		final Element<?> element = getRecordElement(getType(), true);
+		if (element == null) {
+			throw new IllegalArgumentException("The type " + getType().getName() + " should have a single list element to hold the records");
+		}
+		final JSONTokenizer tokenizer = JSONTokenizer.newTokenizer(IOUtils.wrap(input), getCharset());
+		final JSONUnmarshaller unmarshaller = newUnmarshaller();
+		unmarshaller.setProjection(getProjection());
+		unmarshaller.prepare((ComplexType) element.getType());
+		return new Iterator<ComplexContent>() {
+			private ComplexContent next;
+			private boolean done;
+			@Override
+			public boolean hasNext() {
+				if (next == null && !done) {
+					try {
+						next = unmarshaller.readRecord(tokenizer, (ComplexType) element.getType());
+					}
+					catch (Exception e) {
+						throw new RuntimeException("Could not read the next record at position " + tokenizer.getPosition(), e);
+					}
+					done = next == null;
+				}
+				return next != null;
+			}
+			@Override
+			public ComplexContent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				ComplexContent current = next;
+				next = null;
+				return current;
+			}
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	/**
+	 * The records are parsed one at a time rather than lazily
+	 */
+	@Override
+	boolean isLazy(Window[] windows) {
+		return false;
+	}
+	
+	private JSONElementHandler getHandler(String name) {
+		Map<String, JSONElementHandler> handlers = getHandlers();
+		if (handlers != null) {
+			for (Map.Entry<String, JSONElementHandler> entry : handlers.entrySet()) {
+				if (JSONUnmarshaller.normalizePath(entry.getKey()).equals(name)) {
+					return entry.getValue();
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * The list element that holds the records, if allowed we create it for dynamic types
+	 */
+	private Element<?> getRecordElement(ComplexType type, boolean create) {
+		Collection<Element<?>> children = TypeUtils.getAllChildren(type);
+		if (children.isEmpty() && create && isAllowDynamicElements() && getComplexTypeGenerator() != null) {
+			Element<?> element = new ComplexElementImpl("array", getComplexTypeGenerator().newComplexType(), type, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0));
+			if (isAddDynamicElementDefinitions() && type instanceof ModifiableComplexType) {
+				((ModifiableComplexType) type).add(element);
+			}
+			return element;
+		}
+		else if (children.size() == 1) {
+			Element<?> element = children.iterator().next();
+			if (element.getType() instanceof ComplexType && element.getType().isList(element.getProperties())) {
+				return element;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * A record has to fit on a single line so pretty printing is not supported
+	 */
+	@Override
+	public void setPrettyPrint(boolean prettyPrint) {
+		if (prettyPrint) {
+			throw new IllegalArgumentException("Newline delimited json can not be pretty printed");
+		}
+		super.setPrettyPrint(prettyPrint);
+	}
+	
+	public int getFlushInterval() {
+		return flushInterval;
+	}
+
+	public void setFlushInterval(int flushInterval) {
+		checkMutable();
+		this.flushInterval = flushInterval;
+	}
+}
@@ -34,4 +34,9 @@ public class TestEscape extends TestCase {
 		String unescaped = JSONUnmarshaller.unescapeFull(escape, false);
 		assertEquals(content, unescaped);
 	}
+	public void testUnescapeUnicode() {
+		// surrogate pairs, the nil character is dropped and an escaped backslash is not decoded a second time
+		assertEquals("\ud83d\ude00\u00e9\\u0041", JSONUnmarshaller.unescapeFull("\\ud83d\\ude00\\u0000\\u00E9\\\\u0041", false));
+		assertEquals("a\u0000", JSONUnmarshaller.unescapeFull("a\\u0000", true));
+	}
 }
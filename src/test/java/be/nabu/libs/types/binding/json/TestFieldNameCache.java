@@ -0,0 +1,104 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+
+import junit.framework.TestCase;
+import be.nabu.libs.resources.URIUtils;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.map.MapTypeGenerator;
+
+public class TestFieldNameCache extends TestCase {
+
+	public void testProcessedNames() throws IOException, ParseException {
+		JSONBinding binding = dynamic();
+		binding.setCamelCaseDashes(true);
+		binding.setCamelCaseUnderscores(true);
+		// the same names in every object, the last one escaped
+		String json = "{\"first-name\": \"a\", \"last_name\": \"b\", \"_x\": 1, \"\\u005fy\": 2, \"na\\u00efve\": 3}";
+		for (int i = 0; i < 3; i++) {
+			ComplexContent content = unmarshal(binding, json);
+			assertEquals("a", content.get("firstName"));
+			assertEquals("b", content.get("lastName"));
+			assertEquals("1", content.get("x"));
+			assertEquals("2", content.get("y"));
+			// names are uri encoded
+			assertEquals("3", content.get(URIUtils.encodeURIComponent("na\u00efve")));
+		}
+		JSONFieldNameCache cache = binding.getFieldNameCache();
+		assertEquals(5, cache.getSize());
+		// every name was only processed once, after that the escaped names come from the cache
+		assertEquals(5, cache.getMisses());
+		assertTrue(cache.getHits() >= 4);
+	}
+
+	public void testSettings() throws IOException, ParseException {
+		JSONBinding camelCased = dynamic();
+		camelCased.setCamelCaseDashes(true);
+		JSONBinding plain = dynamic();
+		String json = "{\"first-name\": \"a\"}";
+		assertEquals("a", unmarshal(camelCased, json).get("firstName"));
+		assertNull(unmarshal(plain, json).get("firstName"));
+		// every binding has its own cache for its own settings
+		assertNotSame(camelCased.getFieldNameCache(), plain.getFieldNameCache());
+		assertTrue(camelCased.getFieldNameCache().isFor(true, true, false));
+		assertTrue(plain.getFieldNameCache().isFor(true, false, false));
+	}
+
+	public void testLeastRecentlyUsed() {
+		JSONFieldNameCache cache = new JSONFieldNameCache(true, false, false, 2);
+		cache.put("a", "A");
+		cache.put("b", "B");
+		assertEquals("A", cache.get("a"));
+		// b is now the least recently used
+		cache.put("c", "C");
+		assertEquals(2, cache.getSize());
+		assertEquals("A", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("C", cache.get("c"));
+		cache.setMaxSize(1);
+		assertEquals(1, cache.getSize());
+		assertEquals("C", cache.get("c"));
+	}
+
+	public void testBounded() throws IOException, ParseException {
+		JSONBinding binding = dynamic();
+		binding.getFieldNameCache().setMaxSize(10);
+		// names that never come back (e.g. ids as keys) can not grow the cache
+		for (int i = 0; i < 100; i++) {
+			assertEquals("" + i, unmarshal(binding, "{\"id-" + i + "\": " + i + ", \"name\": \"x\"}").get("id-" + i));
+		}
+		assertEquals(10, binding.getFieldNameCache().getSize());
+	}
+
+	private static JSONBinding dynamic() {
+		JSONBinding binding = new JSONBinding(new MapTypeGenerator(), Charset.forName("UTF-8"));
+		binding.setAllowDynamicElements(true);
+		binding.setAddDynamicElementDefinitions(true);
+		return binding;
+	}
+
+	private static ComplexContent unmarshal(JSONBinding binding, String json) throws IOException, ParseException {
+		return binding.unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]);
+	}
+}
@@ -0,0 +1,120 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.base.ComplexElementImpl;
+import be.nabu.libs.types.base.SimpleElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class TestIterate extends TestCase {
+	
+	private static final String JSON = "{\"n\\u0061me\": \"Nabu\", \"business-unit\": \"x\", \"employees\": [{\"id\": \"1\", \"first\\u004eame\": \"John\"}, {\"id\": \"2\"}], \"unit\": \"Organizational\"}";
+	
+	public void testIterate() throws IOException, ParseException {
+		JSONBinding binding = new JSONBinding(company());
+		binding.setCamelCaseDashes(true);
+		JSONElementIterator iterator = binding.iterate(new ByteArrayInputStream(JSON.getBytes("UTF-8")), "company/employees");
+		List<ComplexContent> employees = new ArrayList<ComplexContent>();
+		try {
+			while (iterator.hasNext()) {
+				employees.add(iterator.next());
+			}
+		}
+		finally {
+			iterator.close();
+		}
+		assertEquals(2, employees.size());
+		assertEquals("1", employees.get(0).get("id"));
+		assertEquals("John", employees.get(0).get("firstName"));
+		assertEquals("2", employees.get(1).get("id"));
+		// the fields around the array are parsed the same way as they are by the binding
+		ComplexContent parsed = binding.unmarshal(new ByteArrayInputStream(JSON.getBytes("UTF-8")), new Window[0]);
+		ComplexContent content = iterator.getContent();
+		assertEquals(parsed.get("name"), content.get("name"));
+		assertEquals("Nabu", content.get("name"));
+		assertEquals(parsed.get("businessUnit"), content.get("businessUnit"));
+		assertEquals("Organizational", content.get("unit"));
+		assertNull(content.get("employees"));
+	}
+	
+	public void testIterateMissingPath() throws IOException, ParseException {
+		JSONElementIterator iterator = new JSONBinding(company()).iterate(new ByteArrayInputStream("{\"unit\": \"u\"}".getBytes("UTF-8")), "company/employees");
+		assertFalse(iterator.hasNext());
+		assertEquals("u", iterator.getContent().get("unit"));
+		iterator.close();
+	}
+	
+	public void testHandlerPaths() throws IOException, ParseException {
+		// the path can be expressed with or without the root, the root is not case sensitive
+		for (String path : new String [] { "company/employees", "/company/employees", "//Company/employees", "employees", "/employees" }) {
+			final List<ComplexContent> handled = new ArrayList<ComplexContent>();
+			ComplexContent content = handle(path, handled);
+			assertEquals(path, 2, handled.size());
+			assertEquals(path, "2", handled.get(1).get("id"));
+			assertNull(path, content.get("employees"));
+		}
+		// only full segments match
+		for (String path : new String [] { "company/employee", "company/employees/id", "other/employees", "compan/employees", "ompany/employees", "company", "ees" }) {
+			final List<ComplexContent> handled = new ArrayList<ComplexContent>();
+			ComplexContent content = handle(path, handled);
+			assertEquals(path, 0, handled.size());
+			assertEquals(path, 2, ((List<?>) content.get("employees")).size());
+		}
+	}
+	
+	private static ComplexContent handle(String path, final List<ComplexContent> handled) throws IOException, ParseException {
+		JSONBinding binding = new JSONBinding(company());
+		binding.setCamelCaseDashes(true);
+		Map<String, JSONElementHandler> handlers = new HashMap<String, JSONElementHandler>();
+		handlers.put(path, new JSONElementHandler() {
+			@Override
+			public void handle(ComplexContent parent, Element<?> element, int index, ComplexContent child) {
+				handled.add(child);
+			}
+		});
+		binding.setHandlers(handlers);
+		return binding.unmarshal(new ByteArrayInputStream(JSON.getBytes("UTF-8")), new Window[0]);
+	}
+	
+	static Structure company() {
+		Structure company = new Structure("company");
+		company.add(new SimpleElementImpl<String>("name", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), company));
+		company.add(new SimpleElementImpl<String>("businessUnit", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), company));
+		company.add(new SimpleElementImpl<String>("unit", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), company));
+		Structure employee = new Structure("employee");
+		employee.add(new SimpleElementImpl<String>("id", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), employee));
+		employee.add(new SimpleElementImpl<String>("firstName", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), employee));
+		company.add(new ComplexElementImpl("employees", employee, company, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0)));
+		return company;
+	}
+}
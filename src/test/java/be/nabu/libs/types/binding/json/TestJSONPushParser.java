@@ -0,0 +1,194 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.api.ComplexContent;
+
+public class TestJSONPushParser extends TestCase {
+
+	// strings with braces, brackets, escaped quotes and unicode escapes that should not be mistaken for structure
+	private static final String FIRST = "{\"name\": \"N{a\\\"b}u\", \"unit\": \"]\\\\\", \"employees\": [{\"id\": \"1\", \"firstName\": \"J\\u00f6hn\"}, {\"id\": \"2\", \"firstName\": \"\u20ac\"}]}";
+	private static final String SECOND = "{\"name\": \"second\"}";
+
+	public void testChunkBoundaries() throws IOException, ParseException {
+		byte [] bytes = (FIRST + "\n" + SECOND).getBytes("UTF-8");
+		// every possible split in two, this includes splits inside strings, escapes and multibyte characters
+		for (int split = 0; split <= bytes.length; split++) {
+			JSONPushParser parser = new JSONPushParser(new JSONBinding(TestIterate.company()));
+			List<ComplexContent> documents = new ArrayList<ComplexContent>();
+			documents.addAll(parser.push(bytes, 0, split));
+			documents.addAll(parser.push(bytes, split, bytes.length - split));
+			assertDocuments(documents);
+		}
+		// random chunk sizes
+		Random random = new Random(42);
+		for (int i = 0; i < 50; i++) {
+			JSONPushParser parser = new JSONPushParser(new JSONBinding(TestIterate.company()));
+			List<ComplexContent> documents = new ArrayList<ComplexContent>();
+			int offset = 0;
+			while (offset < bytes.length) {
+				int length = Math.min(bytes.length - offset, random.nextInt(8));
+				documents.addAll(parser.push(bytes, offset, length));
+				offset += length;
+			}
+			assertDocuments(documents);
+			assertEquals(0, parser.getBuffered());
+		}
+	}
+
+	public void testByteOrderMark() throws IOException, ParseException {
+		byte [] bytes = ("\ufeff" + SECOND).getBytes("UTF-8");
+		// the byte order mark is 3 bytes, split it across pushes
+		for (int split = 1; split < 3; split++) {
+			JSONPushParser parser = new JSONPushParser(new JSONBinding(TestIterate.company()));
+			assertTrue(parser.push(bytes, 0, split).isEmpty());
+			List<ComplexContent> documents = parser.push(bytes, split, bytes.length - split);
+			assertEquals(1, documents.size());
+			assertEquals("second", documents.get(0).get("name"));
+		}
+	}
+
+	public void testConcatenated() throws IOException, ParseException {
+		JSONPushParser parser = new JSONPushParser(new JSONBinding(TestIterate.company()));
+		// no whitespace in between and a trailing partial document
+		List<ComplexContent> documents = parser.push(ByteBuffer.wrap((FIRST + SECOND + SECOND + "{\"name\"").getBytes("UTF-8")));
+		assertEquals(3, documents.size());
+		assertEquals("N{a\"b}u", documents.get(0).get("name"));
+		assertEquals("second", documents.get(2).get("name"));
+		assertEquals(7, parser.getBuffered());
+		documents = parser.push(ByteBuffer.wrap(": \"last\"}".getBytes("UTF-8")));
+		assertEquals(1, documents.size());
+		assertEquals("last", documents.get(0).get("name"));
+		assertNull(parser.end());
+	}
+
+	public void testIncomplete() throws IOException, ParseException {
+		JSONPushParser parser = new JSONPushParser(new JSONBinding(TestIterate.company()));
+		parser.push(ByteBuffer.wrap("{\"name\": \"x".getBytes("UTF-8")));
+		try {
+			parser.end();
+			fail("Expecting the incomplete document to be reported");
+		}
+		catch (ParseException e) {
+			// expected
+		}
+	}
+
+	public void testMaxDepth() throws IOException {
+		JSONPushParser parser = new JSONPushParser(new JSONBindingBuilder(TestIterate.company()).maxDepth(2).build());
+		try {
+			// the depth is checked as the data comes in, not once the document is complete
+			parser.push(ByteBuffer.wrap("{\"employees\": [".getBytes("UTF-8")));
+			parser.push(ByteBuffer.wrap("{".getBytes("UTF-8")));
+			fail("Expecting the depth to be exceeded");
+		}
+		catch (ParseException e) {
+			assertTrue(e.getMessage().contains("maximum depth of 2"));
+		}
+	}
+
+	public void testMaxDocumentSize() throws IOException {
+		JSONPushParser parser = new JSONPushParser(new JSONBindingBuilder(TestIterate.company()).maxDocumentSize(10).build());
+		try {
+			// an unfinished document can not grow beyond the limit
+			parser.push(ByteBuffer.wrap("{\"name\": ".getBytes("UTF-8")));
+			parser.push(ByteBuffer.wrap("\"0123456789\"".getBytes("UTF-8")));
+			fail("Expecting the size to be exceeded");
+		}
+		catch (ParseException e) {
+			assertTrue(e.getMessage().contains("maximum size of 10"));
+		}
+	}
+
+	public void testFailureAfterCompletedDocuments() throws IOException, ParseException {
+		String invalid = "{\"unknown\": 1}";
+		JSONPushParser parser = new JSONPushParser(new JSONBinding(TestIterate.company()));
+		// the document before the failure is not lost
+		List<ComplexContent> documents = parser.push(ByteBuffer.wrap((FIRST + invalid + SECOND).getBytes("UTF-8")));
+		assertEquals(1, documents.size());
+		assertEquals("N{a\"b}u", documents.get(0).get("name"));
+		// the failure is reported by the next call, the data it brings is kept
+		try {
+			parser.push(ByteBuffer.wrap(SECOND.getBytes("UTF-8")));
+			fail("Expecting the failure to be reported");
+		}
+		catch (ParseException e) {
+			// expected
+		}
+		// the documents after the failure
+		documents = parser.push(ByteBuffer.allocate(0));
+		assertEquals(2, documents.size());
+		assertEquals("second", documents.get(0).get("name"));
+		assertEquals("second", documents.get(1).get("name"));
+		assertNull(parser.end());
+	}
+
+	public void testFailureWithoutCompletedDocuments() throws IOException, ParseException {
+		JSONPushParser parser = new JSONPushParser(new JSONBinding(TestIterate.company()));
+		try {
+			parser.push(ByteBuffer.wrap(("{\"unknown\": 1}" + SECOND).getBytes("UTF-8")));
+			fail("Expecting the failure to be reported right away");
+		}
+		catch (ParseException e) {
+			// expected
+		}
+		// the failure is not reported twice
+		List<ComplexContent> documents = parser.push(ByteBuffer.allocate(0));
+		assertEquals(1, documents.size());
+		assertEquals("second", documents.get(0).get("name"));
+	}
+
+	public void testFailureReportedByEnd() throws IOException, ParseException {
+		JSONPushParser parser = new JSONPushParser(new JSONBinding(TestIterate.company()));
+		assertEquals(1, parser.push(ByteBuffer.wrap((SECOND + "{\"unknown\": 1}" + SECOND).getBytes("UTF-8"))).size());
+		try {
+			parser.end();
+			fail("Expecting the failure to be reported");
+		}
+		catch (ParseException e) {
+			// expected
+		}
+		try {
+			parser.end();
+			fail("Expecting the remaining data to be pushed first");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+		assertEquals(1, parser.push(ByteBuffer.allocate(0)).size());
+		assertNull(parser.end());
+	}
+
+	private static void assertDocuments(List<ComplexContent> documents) {
+		assertEquals(2, documents.size());
+		ComplexContent first = documents.get(0);
+		assertEquals("N{a\"b}u", first.get("name"));
+		assertEquals("]\\", first.get("unit"));
+		assertEquals("J\u00f6hn", ((ComplexContent) first.get("employees[0]")).get("firstName"));
+		assertEquals("\u20ac", ((ComplexContent) first.get("employees[1]")).get("firstName"));
+		assertEquals("second", documents.get(1).get("name"));
+	}
+}
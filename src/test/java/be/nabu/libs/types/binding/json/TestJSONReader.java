@@ -0,0 +1,168 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+
+import junit.framework.TestCase;
+
+public class TestJSONReader extends TestCase {
+	public void testEvents() throws IOException, ParseException {
+		String json = "{\"name\": \"te\\\"st\", \"values\": [1, 2.5, true, null], \"nested\": {\"a\": [{}]}}";
+		JSONReader reader = new JSONReader(new ByteArrayInputStream(json.getBytes("UTF-8")), Charset.forName("UTF-8"));
+		try {
+			assertEquals(JSONReader.Event.START_OBJECT, reader.next());
+			assertEquals(JSONReader.Event.FIELD_NAME, reader.next());
+			assertEquals("name", reader.getFieldName());
+			assertEquals(JSONReader.Event.VALUE_STRING, reader.next());
+			assertEquals("te\"st", reader.getString());
+			assertEquals(JSONReader.Event.FIELD_NAME, reader.next());
+			assertEquals(JSONReader.Event.START_ARRAY, reader.next());
+			assertEquals(JSONReader.Event.VALUE_NUMBER, reader.next());
+			assertEquals(1, reader.getInt());
+			assertEquals(JSONReader.Event.VALUE_NUMBER, reader.next());
+			assertEquals(2.5, reader.getDouble());
+			assertEquals(JSONReader.Event.VALUE_BOOLEAN, reader.next());
+			assertTrue(reader.getBoolean());
+			assertEquals(JSONReader.Event.VALUE_NULL, reader.next());
+			assertEquals(JSONReader.Event.END_ARRAY, reader.next());
+			assertEquals(JSONReader.Event.FIELD_NAME, reader.next());
+			assertEquals("nested", reader.getFieldName());
+			reader.skipValue();
+			assertEquals(JSONReader.Event.END_OBJECT, reader.next());
+			assertNull(reader.next());
+		}
+		finally {
+			reader.close();
+		}
+	}
+	
+	public void testSkip() throws IOException, ParseException {
+		// the skipped parts contain everything that could be mistaken for structure
+		String json = "{\"a\": {\"b\": \"}]\\\"\", \"c\": [[{}], \"[\"]}, \"d\": \"\\\\\", \"e\": [\"{\", {\"f\": 1}], \"g\": 2.5, \"h\": {}}";
+		JSONReader reader = new JSONReader(new ByteArrayInputStream(json.getBytes("UTF-8")), Charset.forName("UTF-8"));
+		try {
+			assertEquals(JSONReader.Event.START_OBJECT, reader.next());
+			assertEquals(JSONReader.Event.FIELD_NAME, reader.next());
+			assertEquals("a", reader.getFieldName());
+			reader.skipValue();
+			assertEquals(JSONReader.Event.END_OBJECT, reader.getEvent());
+			assertEquals(1, reader.getDepth());
+			assertEquals(JSONReader.Event.FIELD_NAME, reader.next());
+			assertEquals("d", reader.getFieldName());
+			reader.skipValue();
+			assertEquals(JSONReader.Event.VALUE_STRING, reader.getEvent());
+			assertEquals(JSONReader.Event.FIELD_NAME, reader.next());
+			assertEquals("e", reader.getFieldName());
+			assertEquals(JSONReader.Event.START_ARRAY, reader.next());
+			reader.skipChildren();
+			assertEquals(JSONReader.Event.END_ARRAY, reader.getEvent());
+			assertEquals(1, reader.getDepth());
+			assertEquals(JSONReader.Event.FIELD_NAME, reader.next());
+			reader.skipValue();
+			assertEquals(JSONReader.Event.VALUE_NUMBER, reader.getEvent());
+			assertEquals("2.5", reader.getString());
+			assertEquals(JSONReader.Event.FIELD_NAME, reader.next());
+			assertEquals("h", reader.getFieldName());
+			reader.skipValue();
+			assertEquals(JSONReader.Event.END_OBJECT, reader.next());
+			assertEquals(0, reader.getDepth());
+			assertNull(reader.next());
+		}
+		finally {
+			reader.close();
+		}
+	}
+	
+	public void testSkipUnterminated() throws IOException, ParseException {
+		JSONReader reader = new JSONReader(new ByteArrayInputStream("{\"a\": [1, {\"b\": \"]}".getBytes("UTF-8")), Charset.forName("UTF-8"));
+		try {
+			reader.next();
+			reader.next();
+			reader.skipValue();
+			fail("Expecting the end of the input to be reported");
+		}
+		catch (ParseException e) {
+			// expected
+		}
+		finally {
+			reader.close();
+		}
+	}
+	
+	public void testTrailingComma() throws IOException, ParseException {
+		for (String json : new String [] { "{\"a\": 1, }", "[1, ]" }) {
+			JSONReader reader = new JSONReader(new ByteArrayInputStream(json.getBytes("UTF-8")), Charset.forName("UTF-8"));
+			try {
+				while (reader.next() != null) {
+					// read until it fails
+				}
+				fail("Expecting the trailing comma to be reported: " + json);
+			}
+			catch (ParseException e) {
+				char close = json.charAt(json.length() - 1);
+				assertTrue(e.getMessage(), e.getMessage().startsWith("Unexpected '" + close + "' after ','"));
+			}
+			finally {
+				reader.close();
+			}
+		}
+	}
+	
+	public void testFieldNameLimit() throws IOException, ParseException {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			name.append('a');
+		}
+		// the same maximum as the unmarshaller
+		JSONReader reader = new JSONReader(new ByteArrayInputStream(("{\"" + name + "\": 1}").getBytes("UTF-8")), Charset.forName("UTF-8"));
+		try {
+			assertEquals(JSONReader.Event.START_OBJECT, reader.next());
+			reader.next();
+			fail("Expecting the field name to exceed the maximum length");
+		}
+		catch (ParseException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("delimiter of field name"));
+		}
+		finally {
+			reader.close();
+		}
+	}
+	
+	public void testCount() throws IOException, ParseException {
+		InputStream input = TestJSONReader.class.getClassLoader().getResourceAsStream("test.json");
+		JSONReader reader = new JSONReader(input, Charset.forName("UTF-8"));
+		try {
+			int employees = 0;
+			JSONReader.Event event;
+			while ((event = reader.next()) != null) {
+				if (event == JSONReader.Event.FIELD_NAME && "firstName".equals(reader.getFieldName())) {
+					employees++;
+				}
+			}
+			assertEquals(24, employees);
+		}
+		finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.List;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.base.ComplexElementImpl;
+import be.nabu.libs.types.base.SimpleElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class TestLazy extends TestCase {
+
+	private static final String JSON = "{\"id\": \"o1\", \"customer\": {\"n\\u0061me\": \"j\\u00f6hn\", \"billing-address\": {\"city\": \"Gent\"}}, \"lines\": [{\"sku\": \"a\", \"qty\": 2}, {\"sku\": \"b\", \"qty\": 3}], \"notes\": null}";
+
+	public void testGetAndSet() throws IOException, ParseException {
+		ComplexContent content = unmarshal(lazy(), JSON);
+		assertTrue(content instanceof JSONLazyContent);
+		assertEquals("o1", content.get("id"));
+		assertNull(content.get("notes"));
+		content.set("id", "o2");
+		assertEquals("o2", content.get("id"));
+		// a value that is set before it is accessed is not overwritten by the json
+		content.set("notes", "some notes");
+		assertEquals("some notes", content.get("notes"));
+	}
+
+	public void testNested() throws IOException, ParseException {
+		ComplexContent content = unmarshal(lazy(), JSON);
+		ComplexContent customer = (ComplexContent) content.get("customer");
+		assertTrue(customer instanceof JSONLazyContent);
+		// escaped and camel cased names are resolved like they are in a regular parse
+		assertEquals("j\u00f6hn", customer.get("name"));
+		ComplexContent address = (ComplexContent) customer.get("billingAddress");
+		assertTrue(address instanceof JSONLazyContent);
+		assertEquals("Gent", address.get("city"));
+
+		ComplexContent eager = unmarshal(binding(), JSON);
+		assertEquals(((ComplexContent) eager.get("customer")).get("name"), customer.get("name"));
+	}
+
+	public void testLists() throws IOException, ParseException {
+		ComplexContent content = unmarshal(lazy(), JSON);
+		List<?> lines = (List<?>) content.get("lines");
+		assertEquals(2, lines.size());
+		assertEquals("a", ((ComplexContent) content.get("lines[0]")).get("sku"));
+		assertEquals(3, ((ComplexContent) content.get("lines[1]")).get("qty"));
+	}
+
+	public void testErrors() throws IOException, ParseException {
+		// errors in values are only found when they are accessed
+		ComplexContent content = unmarshal(lazy(), "{\"id\": \"o1\", \"lines\": [{\"sku\": \"a\", \"qty\": \"x\"}]}");
+		assertEquals("o1", content.get("id"));
+		for (int i = 0; i < 2; i++) {
+			try {
+				content.get("lines");
+				fail("Expecting the broken field to be reported every time it is accessed");
+			}
+			catch (RuntimeException e) {
+				assertTrue(e.getCause() instanceof ParseException);
+			}
+		}
+		// errors in the structure of the object itself are reported right away
+		try {
+			unmarshal(lazy(), "{\"id\": \"o1\" \"notes\": \"x\"}");
+			fail("Expecting the broken document to be reported");
+		}
+		catch (ParseException e) {
+			// expected
+		}
+	}
+
+	private static JSONBinding lazy() {
+		JSONBinding binding = binding();
+		binding.setLazy(true);
+		return binding;
+	}
+
+	private static JSONBinding binding() {
+		JSONBinding binding = new JSONBinding(order());
+		binding.setCamelCaseDashes(true);
+		return binding;
+	}
+
+	private static ComplexContent unmarshal(JSONBinding binding, String json) throws IOException, ParseException {
+		return binding.unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]);
+	}
+
+	private static Structure order() {
+		Structure order = new Structure("order");
+		order.add(new SimpleElementImpl<String>("id", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), order));
+		order.add(new SimpleElementImpl<String>("notes", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), order));
+		Structure address = new Structure("address");
+		address.add(new SimpleElementImpl<String>("city", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), address));
+		Structure customer = new Structure("customer");
+		customer.add(new SimpleElementImpl<String>("name", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), customer));
+		customer.add(new ComplexElementImpl("billingAddress", address, customer));
+		order.add(new ComplexElementImpl("customer", customer, order));
+		Structure line = new Structure("line");
+		line.add(new SimpleElementImpl<String>("sku", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), line));
+		line.add(new SimpleElementImpl<Integer>("qty", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Integer.class), line));
+		order.add(new ComplexElementImpl("lines", line, order, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0)));
+		return order;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.map.MapTypeGenerator;
+
+public class TestLimits extends TestCase {
+
+	public void testMaxDepth() throws IOException {
+		String json = "{\"a\": {\"b\": {\"c\": {\"d\": 1}}}}";
+		// the position is right after the object that is one too deep
+		assertLimit(dynamic().maxDepth(3).build(), json, "maximum depth of 3", json.indexOf("{\"d\"") + 1);
+		assertParsed(dynamic().maxDepth(4).build(), json);
+	}
+
+	public void testMaxElements() throws IOException {
+		String json = "{\"a\": [1, 2, 3]}";
+		assertLimit(dynamic().maxElements(2).build(), json, "maximum amount of elements of 2", json.indexOf("3") + 1);
+		json = "{\"a\": 1, \"b\": 2, \"c\": 3}";
+		assertLimit(dynamic().maxElements(2).build(), json, "maximum amount of elements of 2", json.indexOf("3") + 1);
+		assertParsed(dynamic().maxElements(3).build(), json);
+	}
+
+	public void testMaxDynamicElements() throws IOException {
+		String json = "{\"a\": 1, \"b\": 2, \"c\": 3}";
+		assertLimit(dynamic().maxDynamicElements(2).build(), json, "maximum amount of dynamic elements of 2", json.indexOf("3") + 1);
+		assertParsed(dynamic().maxDynamicElements(3).build(), json);
+	}
+
+	public void testMaxDocumentSize() throws IOException {
+		String json = "{\"a\": 1, \"b\": 2, \"c\": 3}";
+		// the size is checked for every value so the first one that crosses it is reported
+		assertLimit(dynamic().maxDocumentSize(20).build(), json, "maximum size of 20", json.indexOf("3") + 1);
+		assertParsed(dynamic().maxDocumentSize(json.length()).build(), json);
+	}
+
+	public void testMaxDocumentSizeInWindow() throws IOException {
+		StringBuilder json = new StringBuilder("{\"employees\": [{\"id\": \"1\"}, {\"id\": \"");
+		for (int i = 0; i < 100; i++) {
+			json.append("0123456789");
+		}
+		json.append("\"}]}");
+		JSONBinding binding = new JSONBindingBuilder(TestIterate.company()).maxDocumentSize(500).build();
+		try {
+			binding.unmarshal(new ByteArrayInputStream(json.toString().getBytes("UTF-8")), new Window[] { new Window("company/employees", 1, 1) });
+			fail("Expecting the size to be exceeded");
+		}
+		catch (ParseException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("maximum size of 500"));
+			// the scan of the object stops once it crosses the limit
+			assertTrue(e.getErrorOffset() > 500 && e.getErrorOffset() < json.length());
+		}
+	}
+
+	public void testMaxStringLength() throws IOException {
+		String json = "{\"name\": \"123456\"}";
+		// the position is right after the first character that does not fit
+		assertLimit(new JSONBindingBuilder(TestIterate.company()).maxStringLength(5).build(), json, "maximum length of 5", json.indexOf("123456") + 6);
+		assertParsed(new JSONBindingBuilder(TestIterate.company()).maxStringLength(6).build(), json);
+	}
+
+	public void testMaxStringLengthInReader() throws IOException, ParseException {
+		JSONReader reader = new JSONReader(new ByteArrayInputStream("[\"12345\", \"123456\"]".getBytes("UTF-8")), Charset.forName("UTF-8"));
+		reader.setMaxStringLength(5);
+		try {
+			assertEquals(JSONReader.Event.START_ARRAY, reader.next());
+			assertEquals(JSONReader.Event.VALUE_STRING, reader.next());
+			assertEquals("12345", reader.getString());
+			reader.next();
+			fail("Expecting the string to exceed the maximum length");
+		}
+		catch (ParseException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("maximum length of 5"));
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	public void testUnlimited() throws IOException {
+		StringBuilder json = new StringBuilder("{\"name\": \"");
+		for (int i = 0; i < 10000; i++) {
+			json.append("0123456789");
+		}
+		json.append("\", \"deep\": ");
+		for (int i = 0; i < 100; i++) {
+			json.append("{\"a\": ");
+		}
+		json.append("[1, 2, 3]");
+		for (int i = 0; i < 100; i++) {
+			json.append("}");
+		}
+		for (int i = 0; i < 1000; i++) {
+			json.append(", \"field" + i + "\": " + i);
+		}
+		json.append("}");
+		// 0 means there is no limit
+		assertParsed(dynamic().maxDepth(0).maxElements(0).maxDynamicElements(0).maxDocumentSize(0).maxStringLength(0).build(), json.toString());
+	}
+
+	private static JSONBindingBuilder dynamic() {
+		return new JSONBindingBuilder(new MapTypeGenerator(), Charset.forName("UTF-8"))
+			.allowDynamicElements(true)
+			.addDynamicElementDefinitions(true);
+	}
+
+	private static void assertLimit(JSONBinding binding, String json, String message, int position) throws IOException {
+		try {
+			binding.unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]);
+			fail("Expecting the limit to be exceeded: " + message);
+		}
+		catch (ParseException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(message));
+			assertEquals(position, e.getErrorOffset());
+		}
+	}
+
+	private static void assertParsed(JSONBinding binding, String json) throws IOException {
+		try {
+			ComplexContent content = binding.unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]);
+			assertNotNull(content);
+		}
+		catch (ParseException e) {
+			fail("The document should be within the limits: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.util.List;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.binding.api.Window;
+
+public class TestMappedFile extends TestCase {
+
+	public void testMappedParse() throws IOException, ParseException {
+		StringBuilder json = new StringBuilder("{\"name\": \"Nabu\", \"employees\": [");
+		for (int i = 0; i < 1000; i++) {
+			json.append(i == 0 ? "" : ", ").append("{\"id\": \"" + i + "\", \"firstName\": \"J\u00f6hn \\\"" + i + "\\\" \u20ac\"}");
+		}
+		json.append("], \"unit\": \"Organizational\"}");
+		File file = File.createTempFile("mapped", ".json");
+		try {
+			OutputStream output = new FileOutputStream(file);
+			try {
+				output.write(json.toString().getBytes("UTF-8"));
+			}
+			finally {
+				output.close();
+			}
+			JSONBinding binding = new JSONBinding(TestIterate.company());
+			// the readable of a resource may do more than read the file, mapping has to be asked for
+			assertFalse(binding.isMapFiles());
+
+			ComplexContent streamed;
+			InputStream input = new FileInputStream(file);
+			try {
+				streamed = binding.unmarshal(input, new Window[0]);
+			}
+			finally {
+				input.close();
+			}
+			// small regions make sure that values are split across region boundaries
+			for (long regionSize : new long[] { 7, 4096, 1024*1024 }) {
+				ComplexContent mapped = binding.newUnmarshaller().unmarshal(new JSONMappedTokenizer(file, regionSize), binding.getType());
+				assertEquals(streamed.get("name"), mapped.get("name"));
+				assertEquals(streamed.get("unit"), mapped.get("unit"));
+				List<?> expected = (List<?>) streamed.get("employees"), actual = (List<?>) mapped.get("employees");
+				assertEquals(1000, actual.size());
+				for (int i = 0; i < expected.size(); i++) {
+					assertEquals(((ComplexContent) expected.get(i)).get("id"), ((ComplexContent) actual.get(i)).get("id"));
+					assertEquals(((ComplexContent) expected.get(i)).get("firstName"), ((ComplexContent) actual.get(i)).get("firstName"));
+				}
+			}
+		}
+		finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.TypeUtils;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.base.ComplexElementImpl;
+import be.nabu.libs.types.base.SimpleElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.map.MapTypeGenerator;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class TestNDJSON extends TestCase {
+	
+	public void testRoundTrip() throws IOException, ParseException {
+		NDJSONBinding binding = new NDJSONBinding(records(), Charset.forName("UTF-8"));
+		ComplexContent content = binding.getType().newInstance();
+		for (int i = 0; i < 3; i++) {
+			ComplexContent record = ((ComplexType) binding.getType().get("records").getType()).newInstance();
+			record.set("id", "" + i);
+			record.set("name", "line\n" + i);
+			content.set("records[" + i + "]", record);
+		}
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		binding.marshal(output, content);
+		String marshalled = new String(output.toByteArray(), "UTF-8");
+		assertEquals("{\"id\": \"0\", \"name\": \"line\\n0\"}\n{\"id\": \"1\", \"name\": \"line\\n1\"}\n{\"id\": \"2\", \"name\": \"line\\n2\"}\n", marshalled);
+		
+		ComplexContent unmarshalled = binding.unmarshal(new ByteArrayInputStream(output.toByteArray()), new Window[0]);
+		List<?> records = (List<?>) unmarshalled.get("records");
+		assertEquals(3, records.size());
+		for (int i = 0; i < 3; i++) {
+			assertEquals("" + i, ((ComplexContent) records.get(i)).get("id"));
+			assertEquals("line\n" + i, ((ComplexContent) records.get(i)).get("name"));
+		}
+	}
+	
+	public void testIterate() throws IOException {
+		NDJSONBinding binding = new NDJSONBinding(records(), Charset.forName("UTF-8"));
+		// blank lines, explicit nulls and records that are simply concatenated are accepted
+		String json = "{\"id\": \"0\"}\n\nnull\n{\"id\": \"1\"}{\"id\": \"2\"}\n";
+		Iterator<ComplexContent> iterator = binding.iterate(new ByteArrayInputStream(json.getBytes("UTF-8")));
+		for (int i = 0; i < 3; i++) {
+			assertTrue(iterator.hasNext());
+			assertEquals("" + i, iterator.next().get("id"));
+		}
+		assertFalse(iterator.hasNext());
+	}
+	
+	public void testSealed() throws IOException, ParseException {
+		NDJSONBinding typed = new NDJSONBinding(records(), Charset.forName("UTF-8"));
+		typed.seal();
+		NDJSONBinding dynamic = new NDJSONBinding(new MapTypeGenerator(), Charset.forName("UTF-8"));
+		dynamic.setAllowDynamicElements(true);
+		dynamic.setAddDynamicElementDefinitions(true);
+		dynamic.seal();
+		// the parser state of the thread is reused by every document
+		for (int i = 0; i < 3; i++) {
+			String json = "{\"id\": \"" + i + "\"}\n{\"id\": \"" + (i + 1) + "\", \"field" + i + "\": 1}\n";
+			List<?> records = (List<?>) typed.unmarshal(new ByteArrayInputStream(("{\"id\": \"" + i + "\"}\n{\"id\": \"" + (i + 1) + "\"}\n").getBytes("UTF-8")), new Window[0]).get("records");
+			assertEquals(2, records.size());
+			assertEquals("" + (i + 1), ((ComplexContent) records.get(1)).get("id"));
+			// every document gets its own root type
+			ComplexContent content = dynamic.unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]);
+			records = (List<?>) content.get("array");
+			assertEquals(2, records.size());
+			assertEquals("" + i, ((ComplexContent) records.get(0)).get("id"));
+			assertTrue(content.getType() != dynamic.getType());
+			assertTrue(TypeUtils.getAllChildren(dynamic.getType()).isEmpty());
+		}
+	}
+	
+	public void testHandler() throws IOException, ParseException {
+		NDJSONBinding binding = new NDJSONBinding(records(), Charset.forName("UTF-8"));
+		final List<ComplexContent> handled = new ArrayList<ComplexContent>();
+		binding.setHandlers(Collections.<String, JSONElementHandler>singletonMap("/records", new JSONElementHandler() {
+			@Override
+			public void handle(ComplexContent parent, Element<?> element, int index, ComplexContent child) {
+				handled.add(child);
+			}
+		}));
+		binding.seal();
+		ComplexContent content = binding.unmarshal(new ByteArrayInputStream("{\"id\": \"0\"}\n{\"id\": \"1\"}\n".getBytes("UTF-8")), new Window[0]);
+		assertEquals(2, handled.size());
+		assertEquals("1", handled.get(1).get("id"));
+		assertNull(content.get("records"));
+	}
+	
+	public void testPrettyPrint() {
+		NDJSONBinding binding = new NDJSONBinding(records());
+		binding.setPrettyPrint(false);
+		try {
+			binding.setPrettyPrint(true);
+			fail("Pretty printing should not be allowed");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertFalse(binding.isPrettyPrint());
+	}
+	
+	private static Structure records() {
+		Structure records = new Structure("records");
+		Structure record = new Structure("record");
+		record.add(new SimpleElementImpl<String>("id", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), record));
+		record.add(new SimpleElementImpl<String>("name", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), record));
+		records.add(new ComplexElementImpl("records", record, records, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0)));
+		return records;
+	}
+}
@@ -0,0 +1,174 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.map.MapTypeGenerator;
+
+public class TestNumbers extends TestCase {
+
+	public void testLongBoundaries() throws IOException, ParseException {
+		assertBaseline("-9223372036854775809");
+		assertBaseline("-9223372036854775808");
+		assertBaseline("-9223372036854775807");
+		assertBaseline("9223372036854775806");
+		assertBaseline("9223372036854775807");
+		assertBaseline("9223372036854775808");
+		assertBaseline("92233720368547758070");
+		assertBaseline("0");
+		assertBaseline("+1");
+		assertBaseline("-1");
+	}
+
+	public void testExactDoubleBoundaries() throws IOException, ParseException {
+		// 2^53, the largest mantissa that can be used as is
+		for (String value : new String [] { "9007199254740991", "9007199254740992", "9007199254740993" }) {
+			assertBaseline(value);
+			assertBaseline("-" + value);
+			assertBaseline(value + ".0");
+			assertBaseline("-" + value + ".0");
+			assertBaseline(value.substring(0, 10) + "." + value.substring(10));
+			assertBaseline("0." + value);
+		}
+	}
+
+	public void testExponentBoundaries() throws IOException, ParseException {
+		// 10^22 is the largest exact power of ten
+		for (String exponent : new String [] { "22", "+22", "-22", "23", "+23", "-23" }) {
+			assertBaseline("1.0e" + exponent);
+			assertBaseline("1.5E" + exponent);
+			assertBaseline("-3.7e" + exponent);
+			assertBaseline("123456789.123456789e" + exponent);
+		}
+		// the same exponents expressed with digits
+		assertBaseline("0.0000000000000000000001");
+		assertBaseline("0.00000000000000000000001");
+		assertBaseline("10000000000000000000000.0");
+		assertBaseline("100000000000000000000000.0");
+	}
+
+	public void testNegativeZero() throws IOException, ParseException {
+		assertBaseline("-0");
+		assertBaseline("-0.0");
+		assertBaseline("0.0");
+		assertBaseline("-0.000");
+	}
+
+	public void testOverflow() throws IOException, ParseException {
+		// previously an infinite double, now the exact value is kept
+		assertEquals(Double.POSITIVE_INFINITY, baseline("1.0e400"));
+		assertEquals(new BigDecimal("1.0e400"), parse("1.0e400"));
+		assertEquals(new BigDecimal("-1.0e400"), parse("-1.0e400"));
+		// previously left as a string because there is no dot
+		assertEquals("1e400", baseline("1e400"));
+		assertEquals(new BigDecimal("1e400"), parse("1e400"));
+		// underflow is not an overflow
+		assertBaseline("1.0e-400");
+	}
+
+	public void testExponentWithoutDot() throws IOException, ParseException {
+		// previously left as a string, now parsed like any other decimal
+		for (String value : new String [] { "1e5", "1E+22", "-1e23", "5e-324", "12e-1" }) {
+			assertEquals(value, baseline(value));
+			assertEquals(Double.parseDouble(value), parse(value));
+		}
+	}
+
+	public void testMalformed() throws IOException, ParseException {
+		// java has always accepted these
+		assertBaseline("1.");
+		assertBaseline("01");
+		assertBaseline(".5");
+		assertBaseline("-.5");
+		// these are left as a string
+		assertBaseline("1e");
+		assertBaseline("1e+");
+		assertBaseline("1.2.3");
+		assertBaseline("1-2");
+		assertBaseline("--1");
+		// there is no digit at all
+		for (String value : new String [] { "-", "+", ".", "-." }) {
+			try {
+				parse(value);
+				fail("Expecting an invalid number: " + value);
+			}
+			catch (ParseException e) {
+				assertTrue(e.getMessage().contains("Not a valid number"));
+			}
+		}
+	}
+
+	public void testRandom() throws IOException, ParseException {
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder value = new StringBuilder();
+			if (random.nextBoolean()) {
+				value.append('-');
+			}
+			value.append(random.nextInt(100000000));
+			if (random.nextBoolean()) {
+				value.append('.').append(random.nextInt(1000000000));
+				if (random.nextBoolean()) {
+					value.append(random.nextBoolean() ? "e-" : "e+").append(random.nextInt(30));
+				}
+			}
+			assertBaseline(value.toString());
+		}
+	}
+
+	/**
+	 * This is how numbers were parsed before the dedicated number parser
+	 */
+	private static Object baseline(String value) {
+		try {
+			return value.contains(".") ? (Object) Double.parseDouble(value) : (Object) Long.parseLong(value);
+		}
+		catch (Exception e) {
+			try {
+				return value.contains(".") ? new BigDecimal(value) : new BigInteger(value);
+			}
+			catch (Exception e1) {
+				return value;
+			}
+		}
+	}
+
+	private static void assertBaseline(String value) throws IOException, ParseException {
+		// the double equals compares the bits so 0.0 and -0.0 are different
+		assertEquals(value, baseline(value), parse(value));
+	}
+
+	private static Object parse(String value) throws IOException, ParseException {
+		JSONBinding binding = new JSONBinding(new MapTypeGenerator(), Charset.forName("UTF-8"));
+		binding.setAllowDynamicElements(true);
+		binding.setAddDynamicElementDefinitions(true);
+		binding.setParseNumbers(true);
+		ComplexContent content = binding.unmarshal(new ByteArrayInputStream(("{\"value\": " + value + "}").getBytes("UTF-8")), new Window[0]);
+		return content.get("value");
+	}
+}
@@ -0,0 +1,154 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.TypeUtils;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.base.ComplexElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.java.BeanType;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class TestParallel extends TestCase {
+
+	private ForkJoinPool pool = new ForkJoinPool(4);
+
+	@Override
+	protected void tearDown() throws Exception {
+		pool.shutdown();
+	}
+
+	public void testLargeArray() throws IOException, ParseException {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < 10000; i++) {
+			json.append(i == 0 ? "" : ", ").append("{\"name\": \"c" + i + "\", \"employees\": [{\"id\": \"" + i + "\", \"firstName\": \"f\\u00e9\"}]}");
+		}
+		json.append("]");
+		assertSame(unmarshal(companies(null), json.toString()), unmarshal(companies(pool), json.toString()));
+	}
+
+	public void testNonObjectEntries() throws IOException, ParseException {
+		// the parallel parse hands off to the sequential one at the first entry that is not an object
+		String json = "[{\"name\": \"a\"}, null, {\"name\": \"c\"}]";
+		List<?> parallel = unmarshal(companies(pool), json);
+		assertSame(unmarshal(companies(null), json), parallel);
+		assertEquals("c", ((ComplexContent) parallel.get(parallel.size() - 1)).get("name"));
+
+		assertEquals(0, unmarshal(companies(pool), "[]").size());
+	}
+
+	public void testParallelPath() throws IOException, ParseException {
+		String json = "{\"company\": {\"name\": \"n\", \"employees\": [{\"id\": \"1\"}, {\"id\": \"2\"}]}}";
+		ComplexContent company = (ComplexContent) root(pool).unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]).get("company");
+		assertEquals("1", ((ComplexContent) company.get("employees[0]")).get("id"));
+		assertEquals("2", ((ComplexContent) company.get("employees[1]")).get("id"));
+		assertEquals("n", company.get("name"));
+		// nested arrays are left to the sequential parse
+		json = "{\"company\": {\"employees\": [{\"id\": \"1\"}, [{\"id\": \"2\"}, {\"id\": \"3\"}], {\"id\": \"4\"}]}}";
+		ComplexContent sequential = (ComplexContent) root(null).unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]).get("company");
+		company = (ComplexContent) root(pool).unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]).get("company");
+		List<?> employees = (List<?>) company.get("employees");
+		assertEquals(((List<?>) sequential.get("employees")).size(), employees.size());
+		assertEquals("4", ((ComplexContent) employees.get(employees.size() - 1)).get("id"));
+	}
+
+	public void testLimits() throws IOException {
+		String json = "[{\"name\": \"a\", \"employees\": [{\"id\": \"1\"}]}]";
+		// the objects in the array are parsed at the depth of the array
+		JSONBinding binding = companies(pool);
+		binding.setMaxDepth(3);
+		try {
+			unmarshal(binding, json);
+			fail("Expecting the depth to be exceeded");
+		}
+		catch (ParseException e) {
+			assertTrue(e.getMessage().contains("depth"));
+		}
+		binding = companies(pool);
+		binding.setMaxDocumentSize(20);
+		try {
+			unmarshal(binding, json);
+			fail("Expecting the size to be exceeded");
+		}
+		catch (ParseException e) {
+			assertTrue(e.getMessage().contains("size"));
+		}
+	}
+
+	public void testBean() throws IOException, ParseException {
+		JSONBinding binding = new JSONBinding(new BeanType<Listable>(Listable.class));
+		binding.setIgnoreRootIfArrayWrapper(true);
+		binding.setForkJoinPool(pool);
+		ComplexContent content = binding.unmarshal(new ByteArrayInputStream("[{\"name\": \"test1\"}, {\"name\": \"test2\"}]".getBytes("UTF-8")), new Window[0]);
+		Listable bean = TypeUtils.getAsBean(content, Listable.class);
+		assertEquals(Arrays.asList(new Listable.TestClass("test1"), new Listable.TestClass("test2")), bean.getTests());
+	}
+
+	private static void assertSame(List<?> expected, List<?> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			if (expected.get(i) == null) {
+				assertNull(actual.get(i));
+			}
+			else {
+				ComplexContent company = (ComplexContent) expected.get(i), other = (ComplexContent) actual.get(i);
+				assertEquals(company.get("name"), other.get("name"));
+				ComplexContent employee = (ComplexContent) company.get("employees[0]"), otherEmployee = (ComplexContent) other.get("employees[0]");
+				if (employee == null) {
+					assertNull(otherEmployee);
+				}
+				else {
+					assertEquals(employee.get("id"), otherEmployee.get("id"));
+					assertEquals(employee.get("firstName"), otherEmployee.get("firstName"));
+				}
+			}
+		}
+	}
+
+	private static List<?> unmarshal(JSONBinding binding, String json) throws IOException, ParseException {
+		return (List<?>) binding.unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]).get("company");
+	}
+
+	private static JSONBinding root(ForkJoinPool pool) {
+		Structure root = new Structure("root");
+		root.add(new ComplexElementImpl("company", TestIterate.company(), root));
+		JSONBinding binding = new JSONBinding(root);
+		binding.setForkJoinPool(pool);
+		binding.setParallelPaths(Arrays.asList("root/company/employees"));
+		return binding;
+	}
+
+	private static JSONBinding companies(ForkJoinPool pool) {
+		Structure companies = new Structure("companies");
+		companies.add(new ComplexElementImpl("company", TestIterate.company(), companies, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0)));
+		JSONBinding binding = new JSONBinding(companies);
+		binding.setIgnoreRootIfArrayWrapper(true);
+		binding.setForkJoinPool(pool);
+		return binding;
+	}
+}
@@ -0,0 +1,80 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.binding.api.Window;
+
+public class TestProjection extends TestCase {
+	
+	// the skipped values contain everything that could confuse a skip: brackets, escaped quotes and backslashes in strings, nested arrays and unicode
+	private static final String JSON = "{\"name\": \"Nabu\", \"businessUnit\": \"{[\\\"\\\\\", \"employees\": [{\"id\": \"1\", \"firstName\": \"J\\u00f6hn ]}\"}, {\"id\": \"2\", \"firstName\": \"\u20ac\\\\\"}], \"unit\": \"Organizational\"}";
+	
+	public void testProjectedField() throws IOException, ParseException {
+		ComplexContent content = project("company/unit");
+		assertEquals("Organizational", content.get("unit"));
+		assertNull(content.get("name"));
+		assertNull(content.get("businessUnit"));
+		assertNull(content.get("employees"));
+	}
+	
+	public void testProjectedSubtree() throws IOException, ParseException {
+		ComplexContent content = project("employees/id", "name");
+		assertEquals("Nabu", content.get("name"));
+		List<?> employees = (List<?>) content.get("employees");
+		assertEquals(2, employees.size());
+		assertEquals("1", ((ComplexContent) employees.get(0)).get("id"));
+		assertNull(((ComplexContent) employees.get(0)).get("firstName"));
+		assertEquals("2", ((ComplexContent) employees.get(1)).get("id"));
+		assertNull(content.get("unit"));
+	}
+	
+	public void testEverythingBelowIsProjected() throws IOException, ParseException {
+		ComplexContent content = project("company/employees", "businessUnit");
+		assertEquals("{[\"\\", content.get("businessUnit"));
+		List<?> employees = (List<?>) content.get("employees");
+		assertEquals("J\u00f6hn ]}", ((ComplexContent) employees.get(0)).get("firstName"));
+		assertEquals("\u20ac\\", ((ComplexContent) employees.get(1)).get("firstName"));
+		assertNull(content.get("name"));
+		assertNull(content.get("unit"));
+	}
+	
+	public void testPaths() throws IOException, ParseException {
+		// the path can be expressed with or without the root and with leading slashes
+		for (String path : new String [] { "unit", "/unit", "//company/unit", "Company/unit" }) {
+			assertEquals(path, "Organizational", project(path).get("unit"));
+		}
+		// only full segments match
+		for (String path : new String [] { "uni", "units", "nit", "other/unit", "company/name" }) {
+			assertNull(path, project(path).get("unit"));
+		}
+	}
+	
+	private static ComplexContent project(String...paths) throws IOException, ParseException {
+		JSONBinding binding = new JSONBinding(TestIterate.company());
+		binding.setProjection(Arrays.asList(paths));
+		return binding.unmarshal(new ByteArrayInputStream(JSON.getBytes("UTF-8")), new Window[0]);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.base.SimpleElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.properties.RawProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class TestRaw extends TestCase {
+	
+	// brackets and quotes inside strings, escapes, non-ascii characters and whitespace all have to be kept as is
+	private static final String [] STRUCTURES = {
+		"{}",
+		"[]",
+		"{\"a\": \"}\", \"b\": [1, {\"c\": \"\\\"]\"}],\n\t\"d\": null}",
+		"[\"]\", {\"}\": \"\\\\\"}, [[]], \"\u00e9\u20ac\ud83d\ude00\", \"\\u00e9\", -1.5e3, true]",
+		"{ \"nested\" : { \"deeper\" : [ { } ] } }"
+	};
+	
+	public void testStringReceivesStructure() throws IOException, ParseException {
+		for (String structure : STRUCTURES) {
+			for (Charset charset : new Charset [] { Charset.forName("UTF-8"), Charset.forName("UTF-16") }) {
+				String message = structure + " in " + charset;
+				ComplexContent content = unmarshal("{\"name\": \"before\", \"payload\": " + structure + ", \"tags\": [\"a\", \"b\"], \"description\": \"after\"}", charset);
+				assertEquals(message, structure, content.get("payload"));
+				assertEquals(message, "before", content.get("name"));
+				assertEquals(message, "after", content.get("description"));
+				// a list of strings still receives the separate strings
+				assertEquals(message, Arrays.asList("a", "b"), content.get("tags"));
+			}
+		}
+	}
+	
+	public void testRawElement() throws IOException, ParseException {
+		String [] values = { "\"a\\\"b\\u00e9\"", "1.50", "-0", "1e400", "true", "false", "\"\"" };
+		for (Charset charset : new Charset [] { Charset.forName("UTF-8"), Charset.forName("UTF-16") }) {
+			for (String structure : STRUCTURES) {
+				assertEquals(structure, unmarshal("{\"raw\": " + structure + ", \"name\": \"after\"}", charset).get("raw"));
+			}
+			for (String value : values) {
+				ComplexContent content = unmarshal("{\"raw\": " + value + ", \"name\": \"after\"}", charset);
+				// strings keep their quotes and escapes, numbers their notation
+				assertEquals(value, content.get("raw"));
+				assertEquals("after", content.get("name"));
+			}
+			assertNull(unmarshal("{\"raw\": null}", charset).get("raw"));
+		}
+	}
+	
+	public void testRoundTrip() throws IOException, ParseException {
+		Structure type = type();
+		for (String structure : STRUCTURES) {
+			ComplexContent content = type.newInstance();
+			content.set("raw", structure);
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			new JSONBinding(type).marshal(output, content);
+			String json = new String(output.toByteArray(), "UTF-8");
+			assertTrue(json, json.contains(structure));
+			assertEquals(json, structure, unmarshal(json, Charset.forName("UTF-8")).get("raw"));
+		}
+	}
+	
+	private static ComplexContent unmarshal(String json, Charset charset) throws IOException, ParseException {
+		return new JSONBinding(type(), charset).unmarshal(new ByteArrayInputStream(json.getBytes(charset)), new Window[0]);
+	}
+	
+	private static Structure type() {
+		Structure type = new Structure("document");
+		type.add(new SimpleElementImpl<String>("name", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), type));
+		type.add(new SimpleElementImpl<String>("payload", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), type));
+		type.add(new SimpleElementImpl<String>("tags", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), type, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0)));
+		type.add(new SimpleElementImpl<String>("raw", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), type, new ValueImpl<Boolean>(RawProperty.getInstance(), true)));
+		type.add(new SimpleElementImpl<String>("description", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), type));
+		return type;
+	}
+}
@@ -0,0 +1,99 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.TypeUtils;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.map.MapTypeGenerator;
+
+public class TestSealed extends TestCase {
+
+	public void testTwoThreads() throws Exception {
+		final JSONBinding typed = new JSONBindingBuilder(TestIterate.company()).build();
+		final JSONBinding dynamic = new JSONBindingBuilder(new MapTypeGenerator(), Charset.forName("UTF-8"))
+			.allowDynamicElements(true)
+			.addDynamicElementDefinitions(true)
+			.build();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int thread = 0; thread < 2; thread++) {
+				final String field = "field" + thread;
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						for (int i = 0; i < 500; i++) {
+							String json = "{\"name\": \"" + field + i + "\", \"employees\": [{\"id\": \"" + i + "\"}]}";
+							ComplexContent company = typed.unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]);
+							assertEquals(field + i, company.get("name"));
+							assertEquals("" + i, ((ComplexContent) company.get("employees[0]")).get("id"));
+
+							// every document gets its own root type, the fields of the other thread never show up
+							json = "{\"" + field + "\": \"" + i + "\"}";
+							ComplexContent content = dynamic.unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]);
+							assertEquals("" + i, content.get(field));
+							assertEquals(1, TypeUtils.getAllChildren(content.getType()).size());
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testSharedRootTypeIsRejected() {
+		JSONBindingBuilder builder = new JSONBindingBuilder(TestIterate.company())
+			.allowDynamicElements(true)
+			.addDynamicElementDefinitions(true);
+		try {
+			builder.build();
+			fail("Dynamic definitions can not be added to a shared root type");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	public void testImmutable() {
+		JSONBinding binding = new JSONBindingBuilder(TestIterate.company()).build();
+		try {
+			binding.setIgnoreUnknownElements(true);
+			fail("A sealed binding can not be modified");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.List;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.TypeUtils;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.utils.io.IOUtils;
+
+public class TestShapeRegistry extends TestCase {
+
+	public void testHit() throws IOException, ParseException {
+		JSONShapeRegistry registry = new JSONShapeRegistry();
+		ComplexContent first = unmarshal(binding(registry, false), "{\"a\": 1, \"b\": [{\"c\": \"x\"}]}");
+		ComplexContent second = unmarshal(binding(registry, false), "{\"a\": 2, \"b\": [{\"c\": \"y\"}, {\"c\": \"z\"}]}");
+		assertTrue(first.getType() == second.getType());
+		assertEquals(1, registry.getHits());
+		assertEquals(1, registry.getMisses());
+		assertEquals("z", ((ComplexContent) second.get("b[1]")).get("c"));
+		assertEquals("x", ((ComplexContent) first.get("b[0]")).get("c"));
+	}
+
+	public void testMiss() throws IOException, ParseException {
+		JSONShapeRegistry registry = new JSONShapeRegistry();
+		ComplexContent first = unmarshal(binding(registry, false), "{\"a\": 1, \"b\": [{\"c\": \"x\"}]}");
+		ComplexContent second = unmarshal(binding(registry, false), "{\"a\": 1, \"b\": [{\"c\": \"x\", \"d\": \"y\"}]}");
+		assertTrue(first.getType() != second.getType());
+		assertNull(((ComplexType) first.getType().get("b").getType()).get("d"));
+		assertEquals(0, registry.getHits());
+		assertEquals(2, registry.getMisses());
+		assertEquals(2, registry.getSize());
+	}
+
+	public void testEmptyStringIsNotNull() throws IOException, ParseException {
+		JSONShapeRegistry registry = new JSONShapeRegistry();
+		// an ignored empty string generates nothing
+		ComplexContent empty = unmarshal(binding(registry, true), "{\"a\": \"\"}");
+		assertTrue(TypeUtils.getAllChildren(empty.getType()).isEmpty());
+		// an explicit null generates a string element, it must not end up in the type of the empty string
+		ComplexContent nil = unmarshal(binding(registry, true), "{\"a\": null}");
+		assertTrue(empty.getType() != nil.getType());
+		assertNotNull(nil.getType().get("a"));
+		assertTrue(TypeUtils.getAllChildren(empty.getType()).isEmpty());
+		assertEquals(0, registry.getHits());
+		assertEquals(0, registry.getCollisions());
+	}
+
+	public void testCollision() throws IOException, ParseException {
+		JSONShapeRegistry registry = new JSONShapeRegistry();
+		JSONBinding binding = binding(registry, false);
+		ComplexType registered = unmarshal(binding, "{\"a\": 1}").getType();
+		// register the type under the fingerprint of a document with a different shape
+		String colliding = "{\"a\": 1, \"b\": \"x\"}";
+		registry.put(fingerprint(binding, colliding), registered);
+
+		ComplexContent content = unmarshal(binding(registry, false), colliding);
+		assertTrue(content.getType() != registered);
+		assertEquals("x", content.get("b"));
+		// the registered type is never modified
+		assertNull(registered.get("b"));
+		assertEquals(1, TypeUtils.getAllChildren(registered).size());
+		assertEquals(1, registry.getCollisions());
+
+		// the colliding shape replaces the untrusted type
+		ComplexContent again = unmarshal(binding(registry, false), colliding);
+		assertTrue(again.getType() == content.getType());
+	}
+
+	public void testNestedCollision() throws IOException, ParseException {
+		JSONShapeRegistry registry = new JSONShapeRegistry();
+		JSONBinding binding = binding(registry, false);
+		ComplexType registered = unmarshal(binding, "{\"a\": 1, \"n\": {}}").getType();
+		// the definitions are missing in nested objects and arrays of objects
+		String colliding = "{\"a\": 1, \"n\": {\"x\": [{\"y\": \"}\"}, {\"y\": \"z\"}]}, \"b\": true}";
+		registry.put(fingerprint(binding, colliding), registered);
+
+		ComplexContent content = unmarshal(binding(registry, false), colliding);
+		assertTrue(content.getType() != registered);
+		assertEquals("z", ((ComplexContent) ((List<?>) ((ComplexContent) content.get("n")).get("x")).get(1)).get("y"));
+		assertEquals(true, content.get("b"));
+		assertEquals(2, TypeUtils.getAllChildren(registered).size());
+		assertEquals(0, TypeUtils.getAllChildren((ComplexType) registered.get("n").getType()).size());
+		assertEquals(1, registry.getCollisions());
+	}
+
+	private static JSONBinding binding(JSONShapeRegistry registry, boolean ignoreEmptyStrings) {
+		JSONBinding binding = (JSONBinding) new JSONBindingProvider().getDynamicUnmarshallableBinding(Charset.forName("UTF-8"));
+		binding.setShapeRegistry(registry);
+		binding.setIgnoreEmptyStrings(ignoreEmptyStrings);
+		return binding;
+	}
+
+	private static ComplexContent unmarshal(JSONBinding binding, String json) throws IOException, ParseException {
+		return binding.unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]);
+	}
+
+	private static Long fingerprint(JSONBinding binding, String json) throws IOException {
+		return binding.newUnmarshaller().fingerprint(JSONTokenizer.newTokenizer(IOUtils.wrap(new ByteArrayInputStream(json.getBytes("UTF-8"))), Charset.forName("UTF-8")));
+	}
+}
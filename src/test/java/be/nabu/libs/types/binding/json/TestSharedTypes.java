@@ -0,0 +1,100 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.List;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.ComplexType;
+import be.nabu.libs.types.base.ComplexElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.java.BeanResolver;
+import be.nabu.libs.types.map.MapTypeGenerator;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class TestSharedTypes extends TestCase {
+	
+	private static final String JSON = "{\"items\": [{\"a\": \"1\", \"inner\": {\"x\": \"1\"}}, {\"a\": \"2\", \"b\": \"x\"}, {\"c\": \"true\", \"inner\": {\"y\": \"2\"}}]}";
+	
+	public void testShared() throws IOException, ParseException {
+		JSONBinding binding = dynamic();
+		binding.setShareDynamicTypes(true);
+		List<?> items = (List<?>) unmarshal(binding, JSON).get("items");
+		assertEquals(3, items.size());
+		ComplexType type = ((ComplexContent) items.get(0)).getType();
+		for (Object item : items) {
+			assertSame(type, ((ComplexContent) item).getType());
+		}
+		// the type is widened by the fields of later siblings
+		assertNotNull(type.get("a"));
+		assertNotNull(type.get("b"));
+		assertNotNull(type.get("c"));
+		assertNotNull(type.get("inner"));
+		// nested objects share a type per field as well
+		ComplexContent first = (ComplexContent) ((ComplexContent) items.get(0)).get("inner"), last = (ComplexContent) ((ComplexContent) items.get(2)).get("inner");
+		assertSame(first.getType(), last.getType());
+		assertNotNull(first.getType().get("x"));
+		assertNotNull(first.getType().get("y"));
+		// the values themselves are not shared
+		assertEquals("1", ((ComplexContent) items.get(0)).get("a"));
+		assertEquals("2", ((ComplexContent) items.get(1)).get("a"));
+		assertNull(((ComplexContent) items.get(1)).get("c"));
+		assertEquals("true", ((ComplexContent) items.get(2)).get("c"));
+		assertEquals("1", first.get("x"));
+		assertNull(first.get("y"));
+		assertEquals("2", last.get("y"));
+		
+		// a next document starts over
+		List<?> next = (List<?>) unmarshal(binding, "{\"items\": [{\"d\": \"1\"}]}").get("items");
+		ComplexType nextType = ((ComplexContent) next.get(0)).getType();
+		assertNotSame(type, nextType);
+		assertNull(nextType.get("a"));
+		assertNotNull(nextType.get("d"));
+	}
+	
+	public void testNotShared() throws IOException, ParseException {
+		// off by default, every object gets its own type
+		List<?> items = (List<?>) unmarshal(dynamic(), JSON).get("items");
+		assertEquals(3, items.size());
+		ComplexType first = ((ComplexContent) items.get(0)).getType(), second = ((ComplexContent) items.get(1)).getType();
+		assertNotSame(first, second);
+		assertNull(first.get("b"));
+		assertNull(second.get("inner"));
+	}
+	
+	private static JSONBinding dynamic() {
+		// the objects end up in a java.lang.Object so their types are not added to the parent definition
+		Structure type = new Structure("document");
+		type.add(new ComplexElementImpl("items", (ComplexType) BeanResolver.getInstance().resolve(Object.class), type, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0)));
+		JSONBinding binding = new JSONBinding(type, Charset.forName("UTF-8"));
+		binding.setComplexTypeGenerator(new MapTypeGenerator());
+		binding.setAllowDynamicElements(true);
+		return binding;
+	}
+	
+	private static ComplexContent unmarshal(JSONBinding binding, String json) throws IOException, ParseException {
+		return binding.unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]);
+	}
+}
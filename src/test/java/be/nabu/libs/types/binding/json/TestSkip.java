@@ -0,0 +1,118 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.List;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.base.ComplexElementImpl;
+import be.nabu.libs.types.base.SimpleElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class TestSkip extends TestCase {
+	
+	// unknown values with brackets, quotes, backslashes and non-ascii characters inside strings and in names
+	private static final String [] UNKNOWN = {
+		"{\"a\": \"}\", \"b\": [\"]\", \"\\\"]}\"], \"c\": {\"\\\\\": \"\\\\\"}}",
+		"[[], {}, [{\"x\": \"[{\"}], \"\\u005d\", \"\u00e9\u20ac\ud83d\ude00\", 1.5e3, true, null]",
+		"\"{[\\\"\\\\\\\"]}\\\\\"",
+		"\"\u20ac \\ud83d\\ude00\"",
+		"-12.5e-3",
+		"true",
+		"null",
+		"{\"\u00e9}\": {\"\\\"{\": [[[[\"]]]]\"]]]]}}"
+	};
+	
+	public void testUnknownSubtrees() throws IOException, ParseException {
+		for (String unknown : UNKNOWN) {
+			String json = "{\"unknown\": " + unknown + ", \"name\": \"Nabu\", \"employees\": [{\"firstName\": \"J\u00f6hn\", \"skipped\": " + unknown + ", \"id\": \"1\"}, {\"skipped\": " + unknown + "}, {\"id\": \"2\", \"last\": " + unknown + "}], \"other\": " + unknown + ", \"unit\": \"R&D \\\"}\"}";
+			for (Charset charset : new Charset [] { Charset.forName("UTF-8"), Charset.forName("UTF-16") }) {
+				String message = unknown + " in " + charset;
+				ComplexContent content = unmarshal(json, charset);
+				assertEquals(message, "Nabu", content.get("name"));
+				assertEquals(message, "R&D \"}", content.get("unit"));
+				List<?> employees = (List<?>) content.get("employees");
+				assertEquals(message, 3, employees.size());
+				assertEquals(message, "1", ((ComplexContent) employees.get(0)).get("id"));
+				assertEquals(message, "J\u00f6hn", ((ComplexContent) employees.get(0)).get("firstName"));
+				assertNull(message, ((ComplexContent) employees.get(1)).get("id"));
+				assertEquals(message, "2", ((ComplexContent) employees.get(2)).get("id"));
+			}
+		}
+	}
+	
+	public void testLargerThanWindow() throws IOException, ParseException {
+		// nothing of a skipped subtree is kept, so it can be much larger than the window of the tokenizer
+		StringBuilder unknown = new StringBuilder("[");
+		for (int i = 0; i < 20000; i++) {
+			unknown.append(i == 0 ? "" : ", ").append(UNKNOWN[i % UNKNOWN.length]);
+		}
+		unknown.append("]");
+		String json = "{\"name\": \"Nabu\", \"unknown\": " + unknown + ", \"unit\": \"Organizational\"}";
+		for (Charset charset : new Charset [] { Charset.forName("UTF-8"), Charset.forName("UTF-16") }) {
+			ComplexContent content = unmarshal(json, charset);
+			assertEquals("Nabu", content.get("name"));
+			assertEquals("Organizational", content.get("unit"));
+		}
+	}
+	
+	public void testUnterminated() throws IOException {
+		String [][] documents = {
+			{ "{\"unknown\": {\"a\": [1, 2]", "object" },
+			{ "{\"unknown\": [{\"a\": \"]}\"}", "array" },
+			{ "{\"unknown\": \"}\\\"", "string" }
+		};
+		for (String [] document : documents) {
+			for (Charset charset : new Charset [] { Charset.forName("UTF-8"), Charset.forName("UTF-16") }) {
+				try {
+					unmarshal(document[0], charset);
+					fail("Expecting an unterminated " + document[1] + " in " + charset);
+				}
+				catch (ParseException e) {
+					assertTrue(e.getMessage(), e.getMessage().contains("skipped " + document[1]));
+				}
+			}
+		}
+	}
+	
+	private static ComplexContent unmarshal(String json, Charset charset) throws IOException, ParseException {
+		JSONBinding binding = new JSONBinding(company(), charset);
+		binding.setIgnoreUnknownElements(true);
+		return binding.unmarshal(new ByteArrayInputStream(json.getBytes(charset)), new Window[0]);
+	}
+	
+	private static Structure company() {
+		Structure employee = new Structure("employee");
+		employee.add(new SimpleElementImpl<String>("id", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), employee));
+		employee.add(new SimpleElementImpl<String>("firstName", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), employee));
+		Structure company = new Structure("company");
+		company.add(new SimpleElementImpl<String>("name", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), company));
+		company.add(new ComplexElementImpl("employees", employee, company, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0)));
+		company.add(new SimpleElementImpl<String>("unit", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), company));
+		return company;
+	}
+}
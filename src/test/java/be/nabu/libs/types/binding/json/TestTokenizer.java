@@ -0,0 +1,189 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import junit.framework.TestCase;
+import be.nabu.utils.io.IOUtils;
+
+/**
+ * The byte tokenizer scans 8 bytes at a time, the char tokenizer does not, both should see exactly the same tokens.
+ * Every special character is put at every offset within and across a word and the data is delivered in chunks so it also ends up at the end of the window.
+ */
+public class TestTokenizer extends TestCase {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8"), UTF16 = Charset.forName("UTF-16BE");
+
+	// escapes, multibyte characters (2, 3 and 4 bytes) and structural characters that have no meaning inside a string
+	private static final String [] SPECIALS = { "\\\"", "\\\\", "\\/", "\\n", "\\u00e9", "\u00e9", "\u20ac", "\ud83d\ude00", "{", "}", "[", "]", "\\\"}" };
+
+	// how many bytes are read at once, a word never fits in the smaller ones
+	private static final int [] CHUNKS = { 1, 3, 7, 8, 9, 4096 };
+
+	public void testScanString() throws IOException {
+		for (String special : SPECIALS) {
+			for (int prefix = 0; prefix <= 17; prefix++) {
+				for (int suffix = 0; suffix <= 9; suffix += 3) {
+					String value = repeat('a', prefix) + special + repeat('b', suffix);
+					for (String trailing : new String [] { "\", 1", "\"" }) {
+						for (Charset charset : new Charset [] { UTF8, UTF16 }) {
+							for (int chunk : CHUNKS) {
+								String message = value + trailing + " in " + charset + " per " + chunk;
+								JSONTokenizer tokenizer = tokenizer(value + trailing, charset, chunk);
+								assertTrue(message, tokenizer.scanString(Long.MAX_VALUE));
+								assertEquals(message, JSONUnmarshaller.unescapeFull(value, false), tokenizer.getString(false, false));
+								assertEquals(message, trailing.length() > 1 ? ',' : -1, tokenizer.readNonWhitespace());
+
+								tokenizer = tokenizer(value + trailing, charset, chunk);
+								assertTrue(message, tokenizer.skipString());
+								assertEquals(message, trailing.length() > 1 ? ',' : -1, tokenizer.readNonWhitespace());
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	public void testUnterminatedString() throws IOException {
+		for (String special : SPECIALS) {
+			for (int prefix = 0; prefix <= 17; prefix++) {
+				// also ends right after a backslash
+				for (String value : new String [] { repeat('a', prefix) + special, repeat('a', prefix) + special + "\\" }) {
+					for (Charset charset : new Charset [] { UTF8, UTF16 }) {
+						for (int chunk : CHUNKS) {
+							String message = value + " in " + charset + " per " + chunk;
+							assertFalse(message, tokenizer(value, charset, chunk).scanString(Long.MAX_VALUE));
+							assertFalse(message, tokenizer(value, charset, chunk).skipString());
+						}
+					}
+				}
+			}
+		}
+	}
+
+	public void testScanStructure() throws IOException {
+		for (String special : SPECIALS) {
+			for (int prefix = 0; prefix <= 17; prefix++) {
+				for (int suffix = 0; suffix <= 9; suffix += 3) {
+					String string = "\"" + repeat('a', prefix) + special + repeat('b', suffix) + "\"";
+					// the special character is inside a string, the brackets outside of it are nested
+					String [] structures = {
+						"{\"a\": " + string + ", \"b\": {\"c\": [" + repeat('1', suffix) + "]}}",
+						"[" + string + ", [{}, [" + repeat('1', prefix) + "]]]",
+						"{" + repeat(' ', prefix) + "\"" + special + "\": {}" + repeat(' ', suffix) + "}"
+					};
+					for (String structure : structures) {
+						for (String trailing : new String [] { ", 1", "" }) {
+							for (Charset charset : new Charset [] { UTF8, UTF16 }) {
+								for (int chunk : CHUNKS) {
+									String message = structure + trailing + " in " + charset + " per " + chunk;
+									char open = structure.charAt(0), close = open == '{' ? '}' : ']';
+									JSONTokenizer tokenizer = tokenizer(structure + trailing, charset, chunk);
+									assertEquals(message, open, tokenizer.read());
+									assertTrue(message, tokenizer.scanStructure(open, close, Long.MAX_VALUE));
+									assertEquals(message, structure, tokenizer.getToken());
+									assertEquals(message, trailing.isEmpty() ? -1 : ',', tokenizer.readNonWhitespace());
+
+									tokenizer = tokenizer(structure + trailing, charset, chunk);
+									assertEquals(message, open, tokenizer.read());
+									assertTrue(message, tokenizer.skipStructure());
+									assertEquals(message, trailing.isEmpty() ? -1 : ',', tokenizer.readNonWhitespace());
+
+									// without the last closing bracket
+									String unterminated = structure.substring(0, structure.length() - 1);
+									tokenizer = tokenizer(unterminated, charset, chunk);
+									tokenizer.read();
+									assertFalse(message, tokenizer.scanStructure(open, close, Long.MAX_VALUE));
+									tokenizer = tokenizer(unterminated, charset, chunk);
+									tokenizer.read();
+									assertFalse(message, tokenizer.skipStructure());
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	public void testMaxLength() throws IOException {
+		for (String special : SPECIALS) {
+			for (int prefix = 0; prefix <= 17; prefix++) {
+				String value = repeat('a', prefix) + special;
+				String structure = "{\"a\": \"" + value + "\"}";
+				for (Charset charset : new Charset [] { UTF8, UTF16 }) {
+					// the max length is the amount of units (bytes or chars) the token may have, the quotes of a string are not part of the token, the brackets of a structure are
+					int units = charset == UTF8 ? value.getBytes(UTF8).length : value.length();
+					int structureUnits = charset == UTF8 ? structure.getBytes(UTF8).length : structure.length();
+					for (int chunk : CHUNKS) {
+						String message = value + " in " + charset + " per " + chunk;
+						assertTrue(message, tokenizer(value + "\"", charset, chunk).scanString(units));
+						assertFalse(message, tokenizer(value + "\"", charset, chunk).scanString(units - 1));
+
+						JSONTokenizer tokenizer = tokenizer(structure, charset, chunk);
+						tokenizer.read();
+						assertTrue(message, tokenizer.scanStructure('{', '}', structureUnits));
+						tokenizer = tokenizer(structure, charset, chunk);
+						tokenizer.read();
+						assertFalse(message, tokenizer.scanStructure('{', '}', structureUnits - 1));
+					}
+				}
+			}
+		}
+	}
+
+	private static JSONTokenizer tokenizer(String json, Charset charset, int chunk) {
+		return JSONTokenizer.newTokenizer(IOUtils.wrap(new ChunkedInputStream(json.getBytes(charset), chunk)), charset);
+	}
+
+	private static String repeat(char character, int amount) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < amount; i++) {
+			builder.append(character);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Never returns more than the given amount of bytes at once
+	 */
+	private static class ChunkedInputStream extends InputStream {
+		private InputStream parent;
+		private int chunk;
+
+		public ChunkedInputStream(byte [] bytes, int chunk) {
+			this.parent = new ByteArrayInputStream(bytes);
+			this.chunk = chunk;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return parent.read();
+		}
+
+		@Override
+		public int read(byte [] bytes, int offset, int length) throws IOException {
+			return parent.read(bytes, offset, Math.min(length, chunk));
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.base.ComplexElementImpl;
+import be.nabu.libs.types.base.SimpleElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.structure.Structure;
+
+/**
+ * Utf-8 is tokenized at the byte level, every other charset goes through the char tokenizer. Both should end up with the same content.
+ */
+public class TestUTF8 extends TestCase {
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8"), UTF16 = Charset.forName("UTF-16");
+	
+	// 1, 2, 3 and 4 bytes in utf-8 and escapes
+	private static final String [] PARTS = { "a", "\u00e9", "\u20ac", "\ud83d\ude00", "\\\"", "\\\\", "\\u00e9", "\\ud83d\\ude00", "\\n", " ", "{", "]" };
+	
+	public void testSameAsCharPath() throws IOException, ParseException {
+		Random random = new Random(42);
+		StringBuilder json = new StringBuilder("{\"name\": \"catalog\", \"items\": [");
+		for (int i = 0; i < 500; i++) {
+			json.append(i == 0 ? "" : ", ").append("{\"name\": \"").append(random(random)).append("\", \"description\": \"").append(random(random)).append("\"}");
+		}
+		json.append("]}");
+		ComplexContent bytes = unmarshal(UTF8, json.toString());
+		ComplexContent chars = unmarshal(UTF16, json.toString());
+		List<?> byteItems = (List<?>) bytes.get("items"), charItems = (List<?>) chars.get("items");
+		assertEquals(500, byteItems.size());
+		assertEquals(500, charItems.size());
+		for (int i = 0; i < byteItems.size(); i++) {
+			assertEquals(((ComplexContent) charItems.get(i)).get("name"), ((ComplexContent) byteItems.get(i)).get("name"));
+			assertEquals(((ComplexContent) charItems.get(i)).get("description"), ((ComplexContent) byteItems.get(i)).get("description"));
+		}
+	}
+	
+	public void testMultibyteAcrossReads() throws IOException, ParseException {
+		// the data is read in blocks of 4096 bytes, the multibyte characters end up at every position around the end of a block
+		for (int padding = 4080; padding < 4100; padding++) {
+			StringBuilder name = new StringBuilder();
+			for (int i = 0; i < padding; i++) {
+				name.append('a');
+			}
+			name.append("\u00e9\u20ac\ud83d\ude00\u00e9\ud83d\ude00\u20ac");
+			ComplexContent content = unmarshal(UTF8, "{\"name\": \"" + name + "\", \"items\": [{\"name\": \"\u20ac\"}]}");
+			assertEquals(name.toString(), content.get("name"));
+			assertEquals("\u20ac", ((ComplexContent) content.get("items[0]")).get("name"));
+		}
+	}
+	
+	public void testByteOrderMark() throws IOException, ParseException {
+		ComplexContent content = unmarshal(UTF8, "\ufeff{\"name\": \"\u00e9\"}");
+		assertEquals("\u00e9", content.get("name"));
+		// only at the start
+		content = unmarshal(UTF8, "{\"name\": \"\ufeff\"}");
+		assertEquals("\ufeff", content.get("name"));
+	}
+	
+	private static String random(Random random) {
+		StringBuilder builder = new StringBuilder();
+		int length = random.nextInt(20);
+		for (int i = 0; i < length; i++) {
+			builder.append(PARTS[random.nextInt(PARTS.length)]);
+		}
+		return builder.toString();
+	}
+	
+	private static ComplexContent unmarshal(Charset charset, String json) throws IOException, ParseException {
+		return new JSONBinding(catalog(), charset).unmarshal(new ByteArrayInputStream(json.getBytes(charset)), new Window[0]);
+	}
+	
+	private static Structure catalog() {
+		Structure catalog = new Structure("catalog");
+		catalog.add(new SimpleElementImpl<String>("name", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), catalog));
+		Structure item = new Structure("item");
+		item.add(new SimpleElementImpl<String>("name", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), item));
+		item.add(new SimpleElementImpl<String>("description", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), item));
+		catalog.add(new ComplexElementImpl("items", item, catalog, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0)));
+		return catalog;
+	}
+}
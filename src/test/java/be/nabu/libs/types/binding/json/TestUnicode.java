@@ -0,0 +1,90 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.base.SimpleElementImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.structure.Structure;
+
+public class TestUnicode extends TestCase {
+	
+	// escapes, control characters, multibyte characters and a surrogate pair
+	private static final String SPECIALS = "a\"b\\c/d\ne\tf\u0001g\u00e9h\u20aci\ud83d\ude00j";
+	
+	public void testRoundTrip() throws IOException, ParseException {
+		for (String charset : new String [] { "UTF-8", "UTF-16", "UTF-16LE" }) {
+			// long enough to be spread over multiple windows, the specials end up at every position in a read
+			StringBuilder body = new StringBuilder();
+			for (int i = 0; i < 2000; i++) {
+				body.append(SPECIALS).append(i);
+			}
+			assertRoundTrip(Charset.forName(charset), SPECIALS, body.toString());
+		}
+		// only characters that can be encoded
+		assertRoundTrip(Charset.forName("ISO-8859-1"), "caf\u00e9 \"\\/\n", "\u00e0 la carte");
+	}
+	
+	public void testEscaped() throws IOException, ParseException {
+		// escaped names and escaped values, including a surrogate pair that is escaped as two separate units
+		String json = "{\"\\u0073ubject\": \"\\u00e9\\ud83d\\ude00\\\"\", \"b\\u006fdy\": \"\\t\\\\x\"}";
+		for (String charset : new String [] { "UTF-8", "UTF-16" }) {
+			ComplexContent content = unmarshal(Charset.forName(charset), json);
+			assertEquals("\u00e9\ud83d\ude00\"", content.get("subject"));
+			assertEquals("\t\\x", content.get("body"));
+		}
+	}
+	
+	public void testUnquotedNames() throws IOException, ParseException {
+		ComplexContent content = unmarshal(Charset.forName("UTF-8"), "{subject: \"\u20ac\", body : \"x\"}");
+		assertEquals("\u20ac", content.get("subject"));
+		assertEquals("x", content.get("body"));
+	}
+	
+	private static void assertRoundTrip(Charset charset, String subject, String body) throws IOException, ParseException {
+		Structure type = message();
+		JSONBinding binding = new JSONBinding(type, charset);
+		ComplexContent content = type.newInstance();
+		content.set("subject", subject);
+		content.set("body", body);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		binding.marshal(output, content);
+		ComplexContent unmarshalled = binding.unmarshal(new ByteArrayInputStream(output.toByteArray()), new Window[0]);
+		assertEquals(charset.name(), subject, unmarshalled.get("subject"));
+		assertEquals(charset.name(), body, unmarshalled.get("body"));
+	}
+	
+	private static ComplexContent unmarshal(Charset charset, String json) throws IOException, ParseException {
+		return new JSONBinding(message(), charset).unmarshal(new ByteArrayInputStream(json.getBytes(charset)), new Window[0]);
+	}
+	
+	private static Structure message() {
+		Structure message = new Structure("message");
+		message.add(new SimpleElementImpl<String>("subject", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), message));
+		message.add(new SimpleElementImpl<String>("body", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), message));
+		return message;
+	}
+}
@@ -0,0 +1,161 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.base.ComplexElementImpl;
+import be.nabu.libs.types.base.SimpleElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.properties.AliasProperty;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class TestUnmarshalPlan extends TestCase {
+	
+	public void testAlias() throws IOException, ParseException {
+		Structure type = order();
+		ComplexContent content = unmarshal(new JSONBinding(type), "{\"order-id\": \"1\", \"ref\": \"2\"}");
+		assertEquals("1", content.get("orderId"));
+		// the name of an element wins over the alias of another
+		content = unmarshal(new JSONBinding(type), "{\"orderId\": \"1\", \"reference\": \"3\"}");
+		assertEquals("1", content.get("orderId"));
+		assertEquals("3", content.get("reference"));
+		assertNull(content.get("code"));
+	}
+	
+	public void testAttributeFallback() throws IOException, ParseException {
+		Structure type = order();
+		// allowed by default
+		JSONBinding binding = new JSONBinding(type);
+		// by name and by alias
+		ComplexContent content = unmarshal(binding, "{\"id\": \"1\", \"ref\": \"2\"}");
+		assertEquals("1", content.get("@id"));
+		assertEquals("2", content.get("@code"));
+		// the attribute itself is always found
+		content = unmarshal(binding, "{\"@id\": \"3\"}");
+		assertEquals("3", content.get("@id"));
+		
+		binding = new JSONBinding(type);
+		binding.setAllowAttributeFallback(false);
+		binding.setIgnoreUnknownElements(true);
+		content = unmarshal(binding, "{\"id\": \"1\", \"orderId\": \"2\"}");
+		assertNull(content.get("@id"));
+		assertEquals("2", content.get("orderId"));
+	}
+	
+	public void testModifiedType() throws IOException, ParseException {
+		Structure type = order();
+		JSONBinding binding = new JSONBinding(type);
+		binding.setIgnoreUnknownElements(true);
+		assertNull(unmarshal(binding, "{\"status\": \"new\"}").get("status"));
+		// the plan is rebuilt once the type changes
+		type.add(new SimpleElementImpl<String>("status", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), type));
+		assertEquals("new", unmarshal(binding, "{\"status\": \"new\"}").get("status"));
+	}
+	
+	public void testFieldOrder() throws IOException, ParseException {
+		Structure order = order();
+		order.add(new SimpleElementImpl<String>("na\u00efve", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), order));
+		order.add(new SimpleElementImpl<String>("\u20ac", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), order));
+		Structure orders = new Structure("orders");
+		orders.add(new ComplexElementImpl("orders", order, orders, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0)));
+		
+		// every field as it can appear in the json: by name, escaped, by alias, as attribute and non-ascii
+		String [][] fields = {
+			{ "reference", "reference" },
+			{ "r\\u0065ference", "reference" },
+			{ "order-id", "orderId" },
+			{ "@id", "@id" },
+			{ "ref", "@code" },
+			{ "na\u00efve", "na\u00efve" },
+			{ "\u20ac", "\u20ac" }
+		};
+		Random random = new Random(42);
+		List<Integer> indexes = new ArrayList<Integer>();
+		for (int i = 0; i < fields.length; i++) {
+			indexes.add(i);
+		}
+		List<List<Integer>> expected = new ArrayList<List<Integer>>();
+		StringBuilder json = new StringBuilder("{\"orders\": [");
+		for (int i = 0; i < 200; i++) {
+			// the first objects are in definition order so the prediction is set up, after that the order keeps changing and fields are left out
+			List<Integer> used = new ArrayList<Integer>(indexes);
+			if (i >= 5) {
+				Collections.shuffle(used, random);
+				used = used.subList(0, 1 + random.nextInt(used.size()));
+			}
+			// the escaped and unescaped variant of a name can not both be present
+			List<Integer> unique = new ArrayList<Integer>();
+			for (Integer index : used) {
+				if (index > 1 || !unique.contains(index ^ 1)) {
+					unique.add(index);
+				}
+			}
+			expected.add(unique);
+			json.append(i == 0 ? "" : ", ").append("{");
+			for (int j = 0; j < unique.size(); j++) {
+				json.append(j == 0 ? "" : ", ").append("\"").append(fields[unique.get(j)][0]).append("\": \"").append(i + "-" + unique.get(j)).append("\"");
+			}
+			json.append("}");
+		}
+		json.append("]}");
+		for (Charset charset : new Charset [] { Charset.forName("UTF-8"), Charset.forName("UTF-16") }) {
+			ComplexContent content = new JSONBinding(orders, charset).unmarshal(new ByteArrayInputStream(json.toString().getBytes(charset)), new Window[0]);
+			List<?> list = (List<?>) content.get("orders");
+			assertEquals(200, list.size());
+			for (int i = 0; i < list.size(); i++) {
+				ComplexContent child = (ComplexContent) list.get(i);
+				for (int j = 0; j < fields.length; j++) {
+					// the value of the field, if it is present in any of its variants
+					String value = null;
+					for (Integer index : expected.get(i)) {
+						if (fields[index][1].equals(fields[j][1])) {
+							value = i + "-" + index;
+						}
+					}
+					assertEquals(charset + ": " + json, value, child.get(fields[j][1]));
+				}
+			}
+		}
+	}
+	
+	private static ComplexContent unmarshal(JSONBinding binding, String json) throws IOException, ParseException {
+		return binding.unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]);
+	}
+	
+	private static Structure order() {
+		Structure order = new Structure("order");
+		order.add(new SimpleElementImpl<String>("orderId", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), order, new ValueImpl<String>(AliasProperty.getInstance(), "order-id")));
+		order.add(new SimpleElementImpl<String>("reference", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), order, new ValueImpl<String>(AliasProperty.getInstance(), "orderId")));
+		order.add(new SimpleElementImpl<String>("@id", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), order));
+		order.add(new SimpleElementImpl<String>("@code", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), order, new ValueImpl<String>(AliasProperty.getInstance(), "@ref")));
+		return order;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.base.SimpleElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.properties.FormatProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class TestValueDecoders extends TestCase {
+
+	public enum Status {
+		ACTIVE, INACTIVE
+	}
+
+	public void testSameAsUnmarshallable() throws IOException, ParseException {
+		String [] documents = {
+			"{\"amount\": 123, \"count\": -42, \"ratio\": 1.5, \"big\": 123456789012345678901234567890, \"decimal\": 12345678901234567890.123, \"active\": true, \"status\": \"ACTIVE\", \"id\": \"0f8fad5b-d9cb-469f-a165-70867728950e\", \"created\": \"2024-01-31T13:45:00Z\", \"formatted\": \"2024-03-01\"}",
+			// the same values as strings
+			"{\"amount\": \"123\", \"count\": \"-42\", \"ratio\": \"1.5\", \"big\": \"123456789012345678901234567890\", \"decimal\": \"12345678901234567890.123\", \"active\": \"false\", \"status\": \"INACTIVE\", \"id\": \"0f8fad5bd9cb469fa16570867728950e\", \"created\": \"2024-01-31T13:45:00.123+02:00\"}",
+			// boundaries and exponents
+			"{\"amount\": -9223372036854775808, \"count\": 2147483647, \"ratio\": -1.5e-3, \"decimal\": 1.0E+22, \"created\": \"2024-02-29T23:59:59.1-03:30\"}",
+			"{\"amount\": 9223372036854775807, \"count\": -2147483648, \"ratio\": 0, \"decimal\": -0.0, \"created\": \"2000-12-31T00:00:00+14:00\"}",
+			// timestamps the decoder leaves to the date type: no offset and before the gregorian cutover
+			"{\"created\": \"2024-01-31T13:45:00\"}",
+			"{\"created\": \"1500-01-31T13:45:00Z\"}"
+		};
+		Structure type = type();
+		TimeZone original = TimeZone.getDefault();
+		try {
+			for (String timezone : new String [] { "UTC", "Europe/Brussels", "Asia/Kathmandu" }) {
+				TimeZone.setDefault(TimeZone.getTimeZone(timezone));
+				for (String json : documents) {
+					JSONBinding decoded = new JSONBinding(type);
+					JSONBinding unmarshalled = new JSONBinding(type);
+					unmarshalled.setUseValueDecoders(false);
+					ComplexContent expected = unmarshal(unmarshalled, json), actual = unmarshal(decoded, json);
+					for (Element<?> child : type) {
+						assertEquals(timezone + ": " + json + " [" + child.getName() + "]", expected.get(child.getName()), actual.get(child.getName()));
+					}
+				}
+			}
+		}
+		finally {
+			TimeZone.setDefault(original);
+		}
+	}
+
+	public void testEligibility() {
+		Structure type = type();
+		JSONValueDecoderFactory factory = JSONValueDecoderFactory.getInstance();
+		assertNotNull(factory.getDecoder(type.get("amount")));
+		assertNotNull(factory.getDecoder(type.get("created")));
+		// an element with formatting properties is left to the date type
+		assertNull(factory.getDecoder(type.get("formatted")));
+		// strings don't need decoding
+		assertNull(factory.getDecoder(type.get("name")));
+		// the decoder returns null for anything it does not support
+		JSONValueDecoder decoder = factory.getDecoder(type.get("created"));
+		assertEquals(new Date(0), decoder.decode("1970-01-01T00:00:00Z"));
+		assertNull(decoder.decode("1970-01-01T00:00:00"));
+		assertNull(decoder.decode("1970-01-01T00:00:00+0200"));
+		assertNull(decoder.decode("1970-01-01T00:00:00.123456Z"));
+		assertNull(decoder.decode("2023-02-29T00:00:00Z"));
+		assertNull(factory.getDecoder(type.get("status")).decode("UNKNOWN"));
+	}
+
+	public void testProvider() throws IOException, ParseException {
+		JSONValueDecoderProvider provider = new JSONValueDecoderProvider() {
+			@Override
+			public JSONValueDecoder getDecoder(Element<?> element) {
+				return !"name".equals(element.getName()) ? null : new JSONValueDecoder() {
+					@Override
+					public Object decode(CharSequence value) {
+						// only decodes what it recognizes, the rest falls back to the type
+						return value.length() > 0 && value.charAt(0) == '#' ? value.subSequence(1, value.length()).toString().toUpperCase() : null;
+					}
+				};
+			}
+		};
+		JSONValueDecoderFactory.getInstance().register(provider);
+		try {
+			// a new type, the decoders of other types are already resolved
+			Structure type = type();
+			JSONBinding binding = new JSONBinding(type);
+			assertEquals("NABU", unmarshal(binding, "{\"name\": \"#nabu\"}").get("name"));
+			assertEquals("nabu", unmarshal(binding, "{\"name\": \"nabu\"}").get("name"));
+			// the escaped value is decoded too
+			assertEquals("NA\"BU", unmarshal(binding, "{\"name\": \"#na\\\"bu\"}").get("name"));
+			// the other elements are still handled by the default provider
+			assertEquals(123l, unmarshal(binding, "{\"name\": \"#nabu\", \"amount\": 123}").get("amount"));
+			
+			binding.setUseValueDecoders(false);
+			assertEquals("#nabu", unmarshal(binding, "{\"name\": \"#nabu\"}").get("name"));
+		}
+		finally {
+			JSONValueDecoderFactory.getInstance().unregister(provider);
+		}
+	}
+
+	private static ComplexContent unmarshal(JSONBinding binding, String json) throws IOException, ParseException {
+		return binding.unmarshal(new ByteArrayInputStream(json.getBytes("UTF-8")), new Window[0]);
+	}
+
+	private static Structure type() {
+		Structure type = new Structure("payment");
+		type.add(new SimpleElementImpl<String>("name", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), type));
+		type.add(new SimpleElementImpl<Long>("amount", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Long.class), type));
+		type.add(new SimpleElementImpl<Integer>("count", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Integer.class), type));
+		type.add(new SimpleElementImpl<Double>("ratio", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Double.class), type));
+		type.add(new SimpleElementImpl<BigInteger>("big", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(BigInteger.class), type));
+		type.add(new SimpleElementImpl<BigDecimal>("decimal", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(BigDecimal.class), type));
+		type.add(new SimpleElementImpl<Boolean>("active", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Boolean.class), type));
+		type.add(new SimpleElementImpl<Status>("status", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Status.class), type));
+		type.add(new SimpleElementImpl<UUID>("id", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(UUID.class), type));
+		type.add(new SimpleElementImpl<Date>("created", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Date.class), type));
+		type.add(new SimpleElementImpl<Date>("formatted", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Date.class), type, new ValueImpl<String>(FormatProperty.getInstance(), "yyyy-MM-dd")));
+		return type;
+	}
+}
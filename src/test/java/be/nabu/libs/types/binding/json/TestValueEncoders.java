@@ -0,0 +1,117 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.api.Element;
+import be.nabu.libs.types.api.Marshallable;
+import be.nabu.libs.types.base.SimpleElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.properties.FormatProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class TestValueEncoders extends TestCase {
+
+	public enum Status {
+		ACTIVE, INACTIVE
+	}
+
+	public void testSameAsMarshallable() throws IOException {
+		Structure type = type();
+		TimeZone original = TimeZone.getDefault();
+		try {
+			// zones with a daylight saving time, with offsets that are not whole hours and negative ones
+			for (String timezone : new String [] { "UTC", "Europe/Brussels", "Asia/Kathmandu", "America/St_Johns", "Pacific/Kiritimati" }) {
+				TimeZone.setDefault(TimeZone.getTimeZone(timezone));
+				Random random = new Random(42);
+				for (int i = 0; i < 500; i++) {
+					ComplexContent content = type.newInstance();
+					// anywhere between roughly 1336 and 2096, including dates the encoder leaves to the date type
+					content.set("created", new Date((long) (random.nextDouble() * 4000000000000l) - (i % 2 == 0 ? 0 : 20000000000000l)));
+					content.set("status", Status.values()[i % 2]);
+					content.set("id", new UUID(random.nextLong(), random.nextLong()));
+					content.set("formatted", new Date(random.nextLong() % 4000000000000l));
+					assertEquals(timezone, expected(type, content), marshal(type, content));
+				}
+			}
+		}
+		finally {
+			TimeZone.setDefault(original);
+		}
+	}
+
+	public void testEligibility() {
+		Structure type = type();
+		JSONMarshalPlan plan = JSONMarshalPlan.get(type);
+		assertNotNull(plan.getEncoder(type.get("created")));
+		assertNotNull(plan.getEncoder(type.get("status")));
+		// the uuid type decides its own format
+		assertNull(plan.getEncoder(type.get("id")));
+		// an element with formatting properties is left to the date type
+		assertNull(plan.getEncoder(type.get("formatted")));
+		// elements are looked up by identity, not by name
+		assertNull(plan.getEncoder(new SimpleElementImpl<Date>("created", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Date.class), type)));
+	}
+
+	public void testModifiedType() {
+		Structure type = type();
+		assertNull(JSONMarshalPlan.get(type).getEncoder(type.get("updated")));
+		type.add(new SimpleElementImpl<Date>("updated", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Date.class), type));
+		// the plan is rebuilt once the type changes
+		assertNotNull(JSONMarshalPlan.get(type).getEncoder(type.get("updated")));
+	}
+
+	private static String marshal(Structure type, ComplexContent content) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new JSONBinding(type).marshal(output, content);
+		return new String(output.toByteArray(), "UTF-8");
+	}
+
+	/**
+	 * What the marshallable types write for the content
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static String expected(Structure type, ComplexContent content) {
+		StringBuilder builder = new StringBuilder("{");
+		for (Element<?> child : type) {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append("\"" + child.getName() + "\": \"" + ((Marshallable) child.getType()).marshal(content.get(child.getName()), child.getProperties()) + "\"");
+		}
+		return builder.append("}").toString();
+	}
+
+	private static Structure type() {
+		Structure type = new Structure("audit");
+		type.add(new SimpleElementImpl<Date>("created", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Date.class), type));
+		type.add(new SimpleElementImpl<Status>("status", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Status.class), type));
+		type.add(new SimpleElementImpl<UUID>("id", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(UUID.class), type));
+		type.add(new SimpleElementImpl<Date>("formatted", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(Date.class), type, new ValueImpl<String>(FormatProperty.getInstance(), "yyyy-MM-dd")));
+		return type;
+	}
+}
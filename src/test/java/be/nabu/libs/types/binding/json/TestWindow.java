@@ -0,0 +1,78 @@
+/*
+* Copyright (C) 2014 Alexander Verbruggen
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU Lesser General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU Lesser General Public License for more details.
+*
+* You should have received a copy of the GNU Lesser General Public License
+* along with this program. If not, see <https://www.gnu.org/licenses/>.
+*/
+
+package be.nabu.libs.types.binding.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.List;
+
+import junit.framework.TestCase;
+import be.nabu.libs.types.SimpleTypeWrapperFactory;
+import be.nabu.libs.types.api.ComplexContent;
+import be.nabu.libs.types.base.ComplexElementImpl;
+import be.nabu.libs.types.base.SimpleElementImpl;
+import be.nabu.libs.types.base.ValueImpl;
+import be.nabu.libs.types.binding.api.Window;
+import be.nabu.libs.types.properties.MaxOccursProperty;
+import be.nabu.libs.types.structure.Structure;
+
+public class TestWindow extends TestCase {
+	
+	public void testWindowIsReleased() throws IOException, ParseException, InterruptedException {
+		List<?> employees = parse();
+		assertEquals(10, employees.size());
+		// reading past the window forces older entries out of memory and back in from the file
+		assertEquals("7", ((ComplexContent) employees.get(7)).get("id"));
+		assertEquals("0", ((ComplexContent) employees.get(0)).get("id"));
+		assertEquals("9", ((ComplexContent) employees.get(9)).get("id"));
+		File file = ((JSONWindowedList) employees).getFile();
+		assertTrue(file.exists());
+		employees = null;
+		// once the list is no longer referenced, the file is cleaned up in the background
+		for (int i = 0; i < 100 && file.exists(); i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		assertFalse(file.exists());
+	}
+	
+	public void testWindowIsClosed() throws IOException, ParseException {
+		List<?> employees = parse();
+		assertEquals("5", ((ComplexContent) employees.get(5)).get("id"));
+		File file = ((JSONWindowedList) employees).getFile();
+		((JSONWindowedList) employees).close();
+		assertFalse(file.exists());
+		assertNull(((JSONWindowedList) employees).getFile());
+	}
+	
+	private List<?> parse() throws IOException, ParseException {
+		Structure company = new Structure("company");
+		Structure employee = new Structure("employee");
+		employee.add(new SimpleElementImpl<String>("id", SimpleTypeWrapperFactory.getInstance().getWrapper().wrap(String.class), employee));
+		company.add(new ComplexElementImpl("employees", employee, company, new ValueImpl<Integer>(MaxOccursProperty.getInstance(), 0)));
+		StringBuilder json = new StringBuilder("{\"employees\": [");
+		for (int i = 0; i < 10; i++) {
+			json.append(i == 0 ? "" : ", ").append("{\"id\": \"" + i + "\"}");
+		}
+		json.append("]}");
+		ComplexContent content = new JSONBinding(company).unmarshal(new ByteArrayInputStream(json.toString().getBytes("UTF-8")), new Window[] { new Window("company/employees", 3, 3) });
+		return (List<?>) content.get("employees");
+	}
+}